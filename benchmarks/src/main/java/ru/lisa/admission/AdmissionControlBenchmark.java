@@ -0,0 +1,76 @@
+package ru.lisa.admission;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Цена допуска одного запроса: лимиты адреса и клиента (RateLimiter в Caffeine) + AIMD-лимит одновременных запросов,
+// 8 потоков на общих объектах, как под нагрузкой. Лимиты заведомо не достигаются — меряется путь допущенного
+// запроса, который добавляется к каждому вызову /api/users
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class AdmissionControlBenchmark {
+
+    @Param({"10", "10000"})
+    private int clients;
+
+    private AdmissionControlInterceptor interceptor;
+    private String[] clientIds;
+
+    @Setup
+    public void setUp() {
+        ClientRateLimiters addressRateLimiters = new ClientRateLimiters(
+                "address", Integer.MAX_VALUE, Duration.ofSeconds(1), Duration.ofMinutes(10), 100_000);
+        ClientRateLimiters clientRateLimiters = new ClientRateLimiters(
+                "client", Integer.MAX_VALUE, Duration.ofSeconds(1), Duration.ofMinutes(10), 100_000);
+        AdaptiveConcurrencyLimit concurrencyLimit =
+                new AdaptiveConcurrencyLimit(1000, 4, 1000, Duration.ofSeconds(1), 0.9);
+        interceptor = new AdmissionControlInterceptor(
+                addressRateLimiters, clientRateLimiters, concurrencyLimit, Bulkhead.ofDefaults("long-running"),
+                "X-Client-Id");
+        clientIds = new String[clients];
+        for (int i = 0; i < clients; i++) {
+            clientIds[i] = "partner-" + i;
+        }
+    }
+
+    @Benchmark
+    public boolean admit() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/1");
+        request.addHeader("X-Client-Id", clientIds[ThreadLocalRandom.current().nextInt(clients)]);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        boolean admitted = interceptor.preHandle(request, response, null);
+        interceptor.afterCompletion(request, response, null, null);
+        return admitted;
+    }
+
+    // то же без лимитов: стоимость самих mock-запроса и ответа
+    @Benchmark
+    public MockHttpServletRequest baseline() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/1");
+        request.addHeader("X-Client-Id", clientIds[ThreadLocalRandom.current().nextInt(clients)]);
+        new MockHttpServletResponse();
+        return request;
+    }
+}
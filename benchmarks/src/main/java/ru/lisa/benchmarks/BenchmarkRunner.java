@@ -0,0 +1,38 @@
+package ru.lisa.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Обёртка над JMH: принимает те же аргументы командной строки, но по умолчанию
+// сохраняет результаты в JSON, чтобы прогоны разных релизов можно было сравнивать автоматически
+public class BenchmarkRunner {
+
+    private static final String DEFAULT_RESULT_FILE = "target/jmh-result.json";
+    private static final String LOGBACK_CONFIG = "-Dlogback.configurationFile=logback-benchmarks.xml";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListProfilers() || cmd.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+        if (!cmd.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cmd.getResult().hasValue()) {
+            options.result(DEFAULT_RESULT_FILE);
+        }
+        // вне Spring logback-spring.xml не читается, и logback по умолчанию пишет DEBUG в консоль; в форках подключаем тихую конфигурацию
+        List<String> jvmArgsAppend = new ArrayList<>(cmd.getJvmArgsAppend().orElse(List.of()));
+        jvmArgsAppend.add(LOGBACK_CONFIG);
+        options.jvmArgsAppend(jvmArgsAppend.toArray(new String[0]));
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,175 @@
+package ru.lisa.benchmarks;
+
+import org.springframework.dao.DuplicateKeyException;
+import ru.lisa.dto.UserView;
+import ru.lisa.entity.User;
+import ru.lisa.repository.UserRepository;
+import ru.lisa.repository.UserRepositoryCustom.UpdatedUser;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Подмена UserRepository в памяти: реализует только методы, которые вызывает UserServiceImpl,
+// чтобы бенчмарки сервиса измеряли его собственные накладные расходы без базы данных.
+// Каждый вызов репозитория считается одним обращением к БД (счётчик queries)
+public class InMemoryUserRepository {
+
+    private final NavigableMap<Long, User> byId = new ConcurrentSkipListMap<>();
+    private final Map<String, User> byEmail = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong queries = new AtomicLong();
+
+    public UserRepository asRepository() {
+        return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> {
+                    if (method.getDeclaringClass() != Object.class) {
+                        queries.incrementAndGet();
+                    }
+                    return invoke(proxy, method.getName(), args);
+                });
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object invoke(Object proxy, String method, Object[] args) {
+        return switch (method) {
+            case "save" -> save((User) args[0]);
+            case "saveAll" -> saveAll((Iterable<User>) args[0]);
+            case "findById" -> Optional.ofNullable(byId.get((Long) args[0]));
+            case "findByEmailIn" -> findByEmailIn((Collection<String>) args[0]);
+            case "findExistingEmails" -> findByEmailIn((Collection<String>) args[0]).stream().map(User::getEmail).toList();
+            case "insertIfEmailAbsent" -> insertIfEmailAbsent((String) args[0], (String) args[1], (Integer) args[2]);
+            case "findAllById" -> findAllById((Iterable<Long>) args[0]);
+            case "findViewById" -> Optional.ofNullable(byId.get((Long) args[0])).map(InMemoryUserRepository::toView);
+            case "findViewByEmail" -> Optional.ofNullable(byEmail.get((String) args[0])).map(InMemoryUserRepository::toView);
+            case "findViewsAfter" -> findPage((Long) args[0], (Integer) args[1]);
+            case "updateReturning" -> updateReturning((Long) args[0], (Long) args[1], (String) args[2], (String) args[3],
+                    (Integer) args[4]);
+            case "existsById" -> byId.containsKey((Long) args[0]);
+            case "streamAll" -> {
+                byId.tailMap((Long) args[0], false).values().forEach((Consumer<User>) args[1]);
+                yield null;
+            }
+            case "deleteById" -> {
+                delete(byId.get((Long) args[0]));
+                yield null;
+            }
+            case "deleteAllInBatch" -> {
+                ((Iterable<User>) args[0]).forEach(this::delete);
+                yield null;
+            }
+            case "count" -> (long) byId.size();
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            case "toString" -> "InMemoryUserRepository";
+            default -> throw new UnsupportedOperationException(method);
+        };
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    public long queries() {
+        return queries.get();
+    }
+
+    private User save(User user) {
+        if (user.getId() == null) {
+            user.setId(sequence.incrementAndGet());
+        }
+        user.setVersion(user.getVersion() == null ? 0L : user.getVersion() + 1);
+        User previous = byId.put(user.getId(), user);
+        if (previous != null) {
+            byEmail.remove(previous.getEmail(), previous);
+        }
+        byEmail.put(user.getEmail(), user);
+        return user;
+    }
+
+    private List<User> saveAll(Iterable<User> users) {
+        List<User> saved = new ArrayList<>();
+        users.forEach(user -> saved.add(save(user)));
+        return saved;
+    }
+
+    private Optional<User> insertIfEmailAbsent(String name, String email, Integer age) {
+        if (byEmail.containsKey(email)) {
+            return Optional.empty();
+        }
+        return Optional.of(save(new User(name, email, age)));
+    }
+
+    private Optional<UpdatedUser> updateReturning(Long id, Long expectedVersion, String name, String email, Integer age) {
+        User user = byId.get(id);
+        if (user == null || expectedVersion != null && !expectedVersion.equals(user.getVersion())) {
+            return Optional.empty();
+        }
+        User owner = byEmail.get(email);
+        if (owner != null && owner != user) {
+            throw new DuplicateKeyException("duplicate key value violates unique constraint \"idx_user_email_unique\"");
+        }
+        String previousEmail = user.getEmail();
+        User updated = new User(name, email, age);
+        updated.setId(id);
+        updated.setCreatedAt(user.getCreatedAt());
+        updated.setVersion(user.getVersion() + 1);
+        byEmail.remove(previousEmail, user);
+        byId.put(id, updated);
+        byEmail.put(email, updated);
+        return Optional.of(new UpdatedUser(updated, previousEmail));
+    }
+
+    private List<User> findByEmailIn(Collection<String> emails) {
+        List<User> found = new ArrayList<>();
+        for (String email : emails) {
+            User user = byEmail.get(email);
+            if (user != null) {
+                found.add(user);
+            }
+        }
+        return found;
+    }
+
+    private List<User> findAllById(Iterable<Long> ids) {
+        List<User> found = new ArrayList<>();
+        for (Long id : ids) {
+            User user = byId.get(id);
+            if (user != null) {
+                found.add(user);
+            }
+        }
+        return found;
+    }
+
+    private List<UserView> findPage(Long afterId, int limit) {
+        List<UserView> page = new ArrayList<>(limit);
+        for (User user : byId.tailMap(afterId, false).values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(toView(user));
+        }
+        return page;
+    }
+
+    // как USER_VIEW_MAPPER: каждое чтение отдаёт новую проекцию строки
+    private static UserView toView(User user) {
+        return new UserView(user.getId(), user.getName(), user.getEmail(), user.getAge(), user.getCreatedAt(), user.getVersion());
+    }
+
+    private void delete(User user) {
+        if (user != null) {
+            byId.remove(user.getId());
+            byEmail.remove(user.getEmail(), user);
+        }
+    }
+}
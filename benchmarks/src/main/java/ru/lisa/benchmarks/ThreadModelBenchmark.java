@@ -0,0 +1,121 @@
+package ru.lisa.benchmarks;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lisa.config.DatabaseConcurrencyGate;
+
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Пропускная способность и p50/p99 задержки запроса для пула платформенных потоков (как у Tomcat, 200)
+// и виртуальных потоков при одинаковой нагрузке: за одну операцию приходит пачка одновременных запросов,
+// каждый ждёт remoteMillis вне БД и dbMillis под DatabaseConcurrencyGate.
+// Режим virtual требует запуска на Java 21+ (java -jar benchmarks.jar под JDK 21)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class ThreadModelBenchmark {
+
+    private static final int CONCURRENT_REQUESTS = 1_000;
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"10"})
+    public int dbPermits;
+
+    @Param({"2"})
+    public int dbMillis;
+
+    @Param({"0", "20"})
+    public int remoteMillis;
+
+    // p50/p99 задержки запроса за итерацию (от постановки до завершения) и отказы ограничителя
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Latency {
+
+        public long p50Micros;
+        public long p99Micros;
+        public long rejected;
+    }
+
+    private ExecutorService executor;
+    private DatabaseConcurrencyGate gate;
+    private final ConcurrentHistogram histogram = new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(1), 3);
+    private final AtomicLong rejected = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        executor = "virtual".equals(threads)
+                ? (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null)
+                : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+        gate = new DatabaseConcurrencyGate(dbPermits, Duration.ofSeconds(30));
+    }
+
+    @Setup(Level.Iteration)
+    public void resetIteration() {
+        histogram.reset();
+        rejected.set(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENT_REQUESTS)
+    public void requests(Latency latency) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[CONCURRENT_REQUESTS];
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            long submittedAt = System.nanoTime();
+            futures[i] = CompletableFuture.runAsync(() -> handle(submittedAt), executor);
+        }
+        CompletableFuture.allOf(futures).join();
+        latency.p50Micros = TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(50));
+        latency.p99Micros = TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(99));
+        latency.rejected = rejected.get();
+    }
+
+    private void handle(long submittedAt) {
+        if (remoteMillis > 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(remoteMillis));
+        }
+        try {
+            gate.acquire();
+            try {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(dbMillis));
+            } finally {
+                gate.release();
+            }
+        } catch (SQLTransientConnectionException e) {
+            rejected.incrementAndGet();
+        }
+        histogram.recordValue(System.nanoTime() - submittedAt);
+    }
+}
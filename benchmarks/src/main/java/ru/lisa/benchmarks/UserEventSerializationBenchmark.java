@@ -0,0 +1,68 @@
+package ru.lisa.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lisa.event.BinaryUserEventSerializer;
+import ru.lisa.event.EventType;
+import ru.lisa.event.JsonUserEventSerializer;
+import ru.lisa.event.UserEvent;
+import ru.lisa.event.UserEventSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+// ns на событие для форматов UserEventSerializer; json — прежний путь Gson -> String -> UTF-8.
+// Размер события в байтах уходит в результаты (и в jmh-result.json) вспомогательным счётчиком bytesPerEvent
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserEventSerializationBenchmark {
+
+    @Param({"json", "binary"})
+    public String format;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Size {
+
+        public long bytesPerEvent;
+    }
+
+    private UserEventSerializer serializer;
+    private UserEvent event;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        event = new UserEvent(EventType.CREATED, 1_048_576L, "leonid.ivanov@rambler.com");
+        serializer = BinaryUserEventSerializer.FORMAT.equals(format)
+                ? new BinaryUserEventSerializer()
+                : new JsonUserEventSerializer();
+        encoded = serializer.serialize(event);
+    }
+
+    @Benchmark
+    public byte[] encode(Size size) {
+        byte[] data = serializer.serialize(event);
+        size.bytesPerEvent = data.length;
+        return data;
+    }
+
+    @Benchmark
+    public UserEvent decode(Size size) {
+        size.bytesPerEvent = encoded.length;
+        return serializer.deserialize(encoded);
+    }
+}
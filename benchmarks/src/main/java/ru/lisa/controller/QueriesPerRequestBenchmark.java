@@ -0,0 +1,100 @@
+package ru.lisa.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import ru.lisa.benchmarks.InMemoryUserRepository;
+import ru.lisa.cache.UserCache;
+import ru.lisa.dto.UserModel;
+import ru.lisa.service.UserServiceImpl;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Обращения к репозиторию на один POST/PUT контроллера. Абсолютное время здесь вторично:
+// главная метрика — queries/requests (счётчики за итерацию в результатах JMH, итог печатается в конце)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class QueriesPerRequestBenchmark {
+
+    private static final int USERS = 1_000;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class QueryCounter {
+
+        public long queries;
+        public long requests;
+    }
+
+    private InMemoryUserRepository repository;
+    private UserController controller;
+    private long nextId;
+    private long sequence;
+    private long totalQueries;
+    private long totalRequests;
+
+    @Setup
+    public void setUp() {
+        repository = new InMemoryUserRepository();
+        UserServiceImpl userService = new UserServiceImpl(repository.asRepository(), (eventType, userId, email) -> {
+        }, new UserCache(true, USERS, Duration.ofMinutes(5)), null, null);
+        for (int i = 0; i < USERS; i++) {
+            userService.createUser("Пользователь " + i, "user" + i + "@example.com", 20 + i % 50);
+        }
+        controller = new UserController(userService, new ObjectMapper(), new UserLinks(), null, null);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest("PUT", "/api/users")));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        System.out.printf("%nqueries/request: %.2f%n", (double) totalQueries / totalRequests);
+    }
+
+    private void count(QueryCounter counter, long queries) {
+        counter.queries += queries;
+        counter.requests++;
+        totalQueries += queries;
+        totalRequests++;
+    }
+
+    @Benchmark
+    public ResponseEntity<EntityModel<UserModel>> createUser(QueryCounter counter) {
+        UserModel request = new UserModel(null, "Новый", "new" + sequence++ + "@example.com", 25, null);
+        long before = repository.queries();
+        ResponseEntity<EntityModel<UserModel>> response = controller.createUser(request, null);
+        count(counter, repository.queries() - before);
+        return response;
+    }
+
+    @Benchmark
+    public ResponseEntity<EntityModel<UserModel>> updateUser(QueryCounter counter) {
+        long id = nextId++ % USERS + 1;
+        UserModel request = new UserModel(id, "Обновлённый " + id, "user" + (id - 1) + "@example.com", 42, null);
+        long before = repository.queries();
+        ResponseEntity<EntityModel<UserModel>> response = controller.updateUser(request, null);
+        count(counter, repository.queries() - before);
+        return response;
+    }
+}
@@ -0,0 +1,127 @@
+package ru.lisa.controller;
+
+import jakarta.persistence.EntityManager;
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.lisa.dto.UserModel;
+import ru.lisa.dto.UserView;
+import ru.lisa.entity.User;
+import ru.lisa.repository.UserIdAllocator;
+import ru.lisa.repository.UserRepositoryCustomImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Путь чтения от БД до UserModel: управляемые сущности в транзакции (как было через JpaRepository
+// под @Transactional на классе) против JDBC-проекций UserView без persistence context.
+// Основная метрика — аллокации на операцию: запускать с -prof gc и смотреть gc.alloc.rate.norm.
+// БД — H2 в памяти, поэтому абсолютное время меньше, чем с PostgreSQL, а разница — накладные расходы Hibernate
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadPathBenchmark {
+
+    private static final int USERS = 1_000;
+    private static final int PAGE = 50;
+
+    private SessionFactory sessionFactory;
+    private UserRepositoryCustomImpl repository;
+    private long nextId;
+
+    @Setup
+    public void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:read-path;MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        Configuration configuration = new Configuration().addAnnotatedClass(User.class);
+        configuration.getProperties().put(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, dataSource);
+        configuration.setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop");
+        configuration.setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, "50");
+        sessionFactory = configuration.buildSessionFactory();
+        sessionFactory.inTransaction(session -> {
+            for (int i = 0; i < USERS; i++) {
+                session.persist(new User("Пользователь " + i, "user" + i + "@example.com", 20 + i % 50));
+            }
+        });
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        repository = new UserRepositoryCustomImpl(jdbcTemplate, new UserIdAllocator(jdbcTemplate), 1000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public UserModel getByIdEntity() {
+        long id = nextId++ % USERS + 1;
+        EntityManager em = sessionFactory.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            User user = em.find(User.class, id);
+            UserModel model = UserController.toUserModel(user);
+            // коммит проходит flush с dirty checking по снимку загруженной сущности
+            em.getTransaction().commit();
+            return model;
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public UserModel getByIdView() {
+        long id = nextId++ % USERS + 1;
+        UserView user = repository.findViewById(id).orElseThrow();
+        return UserController.toUserModel(user);
+    }
+
+    @Benchmark
+    public List<UserModel> listEntity() {
+        long after = nextId++ % (USERS - PAGE);
+        EntityManager em = sessionFactory.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            List<User> users = em.createQuery("select u from User u where u.id > :after order by u.id", User.class)
+                    .setParameter("after", after)
+                    .setMaxResults(PAGE)
+                    .getResultList();
+            List<UserModel> models = new ArrayList<>(users.size());
+            for (User user : users) {
+                models.add(UserController.toUserModel(user));
+            }
+            em.getTransaction().commit();
+            return models;
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public List<UserModel> listView() {
+        long after = nextId++ % (USERS - PAGE);
+        List<UserView> users = repository.findViewsAfter(after, PAGE);
+        List<UserModel> models = new ArrayList<>(users.size());
+        for (UserView user : users) {
+            models.add(UserController.toUserModel(user));
+        }
+        return models;
+    }
+}
@@ -0,0 +1,122 @@
+package ru.lisa.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.ServletWebRequest;
+import ru.lisa.benchmarks.InMemoryUserRepository;
+import ru.lisa.cache.UserCache;
+import ru.lisa.dto.UserModel;
+import ru.lisa.entity.User;
+import ru.lisa.service.UserServiceImpl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+// Преобразование в UserModel и построение HATEOAS-ссылок: отдельно и в составе методов контроллера.
+// Ссылки строятся относительно MockHttpServletRequest, как при реальном запросе
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserControllerBenchmark {
+
+    private static final int USERS = 1_000;
+
+    private UserController controller;
+    private UserLinks userLinks;
+    private MockHttpServletRequest request;
+    private MockHttpServletRequest notModifiedRequest;
+    private User user;
+    private long nextId;
+
+    @Setup
+    public void setUp() {
+        InMemoryUserRepository repository = new InMemoryUserRepository();
+        UserServiceImpl userService = new UserServiceImpl(repository.asRepository(), (eventType, userId, email) -> {
+        }, new UserCache(true, USERS, Duration.ofMinutes(5)), null, null);
+        for (int i = 0; i < USERS; i++) {
+            userService.createUser("Пользователь " + i, "user" + i + "@example.com", 20 + i % 50);
+        }
+        userLinks = new UserLinks();
+        controller = new UserController(userService, new ObjectMapper(), userLinks, null, null);
+        user = new User("Леонид", "leonid@example.com", 30);
+        user.setId(42L);
+        user.setCreatedAt(LocalDateTime.of(2024, 5, 1, 12, 0));
+
+        request = new MockHttpServletRequest("GET", "/api/users");
+        request.setServerName("localhost");
+        request.setServerPort(8080);
+        notModifiedRequest = new MockHttpServletRequest("GET", "/api/users");
+        notModifiedRequest.addHeader(HttpHeaders.IF_NONE_MATCH, "\"0\"");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public UserModel toUserModel() {
+        return UserController.toUserModel(user);
+    }
+
+    // прежний способ построения ссылки, для сравнения с UserLinks
+    @Benchmark
+    public Link selfLinkMethodOn() {
+        return linkTo(methodOn(UserController.class).getUserById(user.getId(), true, null)).withSelfRel();
+    }
+
+    @Benchmark
+    public Link selfLinkUserLinks() {
+        return userLinks.forCurrentRequest().self(user.getId());
+    }
+
+    @Benchmark
+    public ResponseEntity<EntityModel<UserModel>> getUserById() {
+        return controller.getUserById(nextId++ % USERS + 1, true, new ServletWebRequest(request, new MockHttpServletResponse()));
+    }
+
+    // повторный запрос с актуальным ETag: 304 без построения модели и ссылок
+    @Benchmark
+    public ResponseEntity<EntityModel<UserModel>> getUserByIdNotModified() {
+        return controller.getUserById(nextId++ % USERS + 1, true,
+                new ServletWebRequest(notModifiedRequest, new MockHttpServletResponse()));
+    }
+
+    @Benchmark
+    public ResponseEntity<CollectionModel<EntityModel<UserModel>>> getAllUsersPage() {
+        return controller.getAllUsers(nextId++ % (USERS - 50), 50, true);
+    }
+
+    @Benchmark
+    public ResponseEntity<CollectionModel<EntityModel<UserModel>>> getAllUsersPageWithoutLinks() {
+        return controller.getAllUsers(nextId++ % (USERS - 50), 50, false);
+    }
+}
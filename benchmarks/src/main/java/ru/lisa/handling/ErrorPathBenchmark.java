@@ -0,0 +1,88 @@
+package ru.lisa.handling;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import ru.lisa.exception.UserNotFoundException;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Путь ответа 404: исключение бросается на глубине стека, сопоставимой с вызовом сервиса
+// из контроллера через фильтры, прокси и аспекты, и превращается в тело ответа.
+// legacy — как было: IllegalArgumentException со стеком, HashMap с timestamp и печать стека;
+// typed — UserNotFoundException без стека и ProblemDetail из GlobalExceptionHandler без логирования.
+// Запускать с -prof gc: кроме времени важен gc.alloc.rate.norm
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorPathBenchmark {
+
+    @Param({"100"})
+    private int depth;
+
+    private GlobalExceptionHandler handler;
+    private long nextId;
+
+    @Setup
+    public void setUp() {
+        handler = new GlobalExceptionHandler(Duration.ofMinutes(1));
+    }
+
+    @Benchmark
+    public ResponseEntity<Map<String, Object>> legacy() {
+        long id = nextId++;
+        try {
+            return throwAt(depth, () -> {
+                throw new IllegalArgumentException("Пользователь с ID " + id + " не найден");
+            });
+        } catch (IllegalArgumentException ex) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("timestamp", LocalDateTime.now());
+            response.put("error", ex.getMessage());
+            // вывод стека без дискового I/O: учитывается только его форматирование
+            StringWriter trace = new StringWriter();
+            ex.printStackTrace(new PrintWriter(trace));
+            response.put("trace", trace.getBuffer().length());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<ProblemDetail> typed() {
+        long id = nextId++;
+        try {
+            return throwAt(depth, () -> {
+                throw UserNotFoundException.byId(id);
+            });
+        } catch (UserNotFoundException ex) {
+            return handler.handleUserNotFound(ex);
+        }
+    }
+
+    private static <T> T throwAt(int depth, Runnable thrower) {
+        if (depth == 0) {
+            thrower.run();
+            return null;
+        }
+        return throwAt(depth - 1, thrower);
+    }
+}
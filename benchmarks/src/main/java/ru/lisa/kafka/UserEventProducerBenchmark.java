@@ -0,0 +1,83 @@
+package ru.lisa.kafka;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import ru.lisa.event.BinaryUserEventSerializer;
+import ru.lisa.event.EventType;
+import ru.lisa.event.JsonUserEventSerializer;
+import ru.lisa.event.UserEventSerializers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// send() вне транзакции: постановка в очередь и отправка фоновым потоком в KafkaTemplate,
+// который сразу подтверждает запись. При BLOCK замеряется пропускная способность всего конвейера
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserEventProducerBenchmark {
+
+    @Param({"DROP_NEWEST", "BLOCK"})
+    public UserEventProducerImpl.OverflowPolicy overflowPolicy;
+
+    private UserEventProducerImpl producer;
+    private long nextId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        UserEventSerializers serializers = new UserEventSerializers(
+                List.of(new BinaryUserEventSerializer(), new JsonUserEventSerializer()), "binary");
+        producer = new UserEventProducerImpl(new AcknowledgingKafkaTemplate(), serializers,
+                CircuitBreakerRegistry.ofDefaults(), "user-events", 10_000, overflowPolicy,
+                Duration.ofSeconds(1), 500);
+        producer.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        producer.stop();
+    }
+
+    @Benchmark
+    public void send() {
+        producer.send(EventType.UPDATED, nextId++, "leonid.ivanov@rambler.com");
+    }
+
+    private static class AcknowledgingKafkaTemplate extends KafkaTemplate<String, byte[]> {
+
+        AcknowledgingKafkaTemplate() {
+            super(() -> {
+                throw new UnsupportedOperationException("producer не используется в бенчмарке");
+            });
+        }
+
+        @Override
+        public CompletableFuture<SendResult<String, byte[]>> send(ProducerRecord<String, byte[]> record) {
+            return CompletableFuture.completedFuture(new SendResult<>(record, null));
+        }
+
+        @Override
+        public void flush() {
+        }
+    }
+}
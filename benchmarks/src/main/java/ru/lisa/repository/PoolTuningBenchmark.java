@@ -0,0 +1,129 @@
+package ru.lisa.repository;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import ru.lisa.dto.UserView;
+import ru.lisa.entity.User;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Настройки пула и драйвера на настоящем PostgreSQL (Testcontainers, нужен Docker): default — пул и драйвер
+// без настроек, perf — значения spring.datasource.hikari.* из application-perf.yml сервиса, как они поставляются.
+// batchInsert показывает reWriteBatchedInserts, findViewById — серверные prepared statements (prepareThreshold)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class PoolTuningBenchmark {
+
+    private static final String HIKARI_PREFIX = "spring.datasource.hikari.";
+    private static final int USERS = 10_000;
+    private static final int BATCH = 100;
+
+    @Param({"default", "perf"})
+    private String profile;
+
+    private PostgreSQLContainer<?> postgres;
+    private HikariDataSource dataSource;
+    private SessionFactory sessionFactory;
+    private UserRepositoryCustomImpl repository;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+        postgres.start();
+
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(postgres.getJdbcUrl());
+        config.setUsername(postgres.getUsername());
+        config.setPassword(postgres.getPassword());
+        if ("perf".equals(profile)) {
+            applyPerfProfile(config);
+        }
+        dataSource = new HikariDataSource(config);
+
+        Configuration configuration = new Configuration().addAnnotatedClass(User.class);
+        configuration.getProperties().put(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, dataSource);
+        configuration.setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop");
+        // batch_size и order_inserts заданы в application.yml для всех профилей
+        configuration.setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, "50");
+        configuration.setProperty(AvailableSettings.ORDER_INSERTS, "true");
+        sessionFactory = configuration.buildSessionFactory();
+        for (int i = 0; i < USERS / BATCH; i++) {
+            batchInsert();
+        }
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        repository = new UserRepositoryCustomImpl(jdbcTemplate, new UserIdAllocator(jdbcTemplate), 1000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+        dataSource.close();
+        postgres.stop();
+    }
+
+    @Benchmark
+    public long batchInsert() {
+        long first = sequence.getAndAdd(BATCH);
+        sessionFactory.inTransaction(session -> {
+            for (long i = first; i < first + BATCH; i++) {
+                session.persist(new User("Пользователь " + i, "user" + i + "@example.com", (int) (20 + i % 50)));
+            }
+        });
+        return first;
+    }
+
+    @Benchmark
+    public UserView findViewById(Cursor cursor) {
+        return repository.findViewById(cursor.nextId++ % USERS + 1).orElse(null);
+    }
+
+    // значения берутся из самого application-perf.yml, чтобы бенчмарк проверял ровно то, что поставляется
+    private static void applyPerfProfile(HikariConfig config) {
+        YamlPropertiesFactoryBean yaml = new YamlPropertiesFactoryBean();
+        yaml.setResources(new ClassPathResource("application-perf.yml"));
+        Properties properties = yaml.getObject();
+        String dataSourcePrefix = HIKARI_PREFIX + "data-source-properties.";
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(dataSourcePrefix)) {
+                config.addDataSourceProperty(name.substring(dataSourcePrefix.length()), properties.getProperty(name));
+            }
+        }
+        config.setMaximumPoolSize(Integer.parseInt(properties.getProperty(HIKARI_PREFIX + "maximum-pool-size")));
+        config.setMinimumIdle(Integer.parseInt(properties.getProperty(HIKARI_PREFIX + "minimum-idle")));
+    }
+
+    // у каждого потока свой проход по id, без общего счётчика
+    @State(Scope.Thread)
+    public static class Cursor {
+        long nextId;
+    }
+}
@@ -0,0 +1,81 @@
+package ru.lisa.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.lisa.benchmarks.InMemoryUserRepository;
+import ru.lisa.cache.UserCache;
+import ru.lisa.dto.UserView;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// UserServiceImpl поверх репозитория в памяти: валидация, чтение через кэш, страница и запись
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    private static final int USERS = 10_000;
+
+    @Param({"true", "false"})
+    public boolean cacheEnabled;
+
+    private UserServiceImpl userService;
+    private long nextId;
+    private long sequence;
+
+    @Setup
+    public void setUp() {
+        InMemoryUserRepository repository = new InMemoryUserRepository();
+        UserCache userCache = new UserCache(cacheEnabled, USERS, Duration.ofMinutes(5));
+        userService = new UserServiceImpl(repository.asRepository(), (eventType, userId, email) -> {
+        }, userCache, null, null);
+        for (int i = 0; i < USERS; i++) {
+            userService.createUser("Пользователь " + i, "user" + i + "@example.com", 20 + i % 50);
+        }
+    }
+
+    @Benchmark
+    public void validateUserData() {
+        UserValidator.validateUserData("Леонид", "leonid@example.com", 30);
+    }
+
+    @Benchmark
+    public Optional<UserView> getUserById() {
+        long id = nextId++ % USERS + 1;
+        return userService.getUserById(id);
+    }
+
+    @Benchmark
+    public List<UserView> getUsersPage() {
+        long after = nextId++ % (USERS - 50);
+        return userService.getUsers(after, 50);
+    }
+
+    @Benchmark
+    public void updateUser() {
+        long id = nextId++ % USERS + 1;
+        userService.updateUser(id, null, "Обновлённый " + id, "user" + (id - 1) + "@example.com", 42);
+    }
+
+    @Benchmark
+    public void createAndDeleteUser(Blackhole blackhole) {
+        Long id = userService.createUser("Новый", "new" + sequence++ + "@example.com", 25).getId();
+        blackhole.consume(userService.deleteUser(id));
+    }
+}
@@ -0,0 +1,79 @@
+package ru.lisa.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lisa.entity.User;
+import ru.lisa.event.EventType;
+import ru.lisa.event.UserEvent;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static ru.lisa.util.GsonUtil.GSON;
+
+// Кодирование и разбор через общий GSON: UserEvent и User с LocalDateTime (адаптеры ISO_LOCAL_DATE_TIME)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GsonUtilBenchmark {
+
+    private UserEvent event;
+    private String eventJson;
+    private User user;
+    private String userJson;
+    private LocalDateTime dateTime;
+    private String dateTimeJson;
+
+    @Setup
+    public void setUp() {
+        event = new UserEvent(EventType.UPDATED, 1_048_576L, "leonid.ivanov@rambler.com");
+        eventJson = GSON.toJson(event);
+        user = new User("Леонид", "leonid.ivanov@rambler.com", 30);
+        user.setId(1_048_576L);
+        user.setCreatedAt(LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_000_000));
+        userJson = GSON.toJson(user);
+        dateTime = user.getCreatedAt();
+        dateTimeJson = GSON.toJson(dateTime);
+    }
+
+    @Benchmark
+    public String encodeUserEvent() {
+        return GSON.toJson(event);
+    }
+
+    @Benchmark
+    public UserEvent decodeUserEvent() {
+        return GSON.fromJson(eventJson, UserEvent.class);
+    }
+
+    @Benchmark
+    public String encodeUser() {
+        return GSON.toJson(user);
+    }
+
+    @Benchmark
+    public User decodeUser() {
+        return GSON.fromJson(userJson, User.class);
+    }
+
+    @Benchmark
+    public String encodeLocalDateTime() {
+        return GSON.toJson(dateTime);
+    }
+
+    @Benchmark
+    public LocalDateTime decodeLocalDateTime() {
+        return GSON.fromJson(dateTimeJson, LocalDateTime.class);
+    }
+}
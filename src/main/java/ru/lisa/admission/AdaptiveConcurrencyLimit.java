@@ -0,0 +1,109 @@
+package ru.lisa.admission;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// AIMD-лимит одновременных запросов, как окно TCP: пока ответы быстрые и лимит занят хотя бы наполовину,
+// он растёт на 1 за каждые limit успешных ответов; ответ дольше latencyThreshold или 503 от перегруженной БД
+// умножают его на backoffRatio, но не чаще раза за latencyThreshold — одна волна медленных ответов
+// снижает лимит один раз. Запросы сверх лимита сразу получают 503 вместо очереди к пулу Hikari.
+// Bulkhead из resilience4j не подходит: при уменьшении changeConfig ждёт освобождения разрешений
+public class AdaptiveConcurrencyLimit implements MeterBinder {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final LongSupplier clock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile int limit;
+    private int successes;
+    private long lastDecrease;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit,
+                                    Duration latencyThreshold, double backoffRatio) {
+        this(initialLimit, minLimit, maxLimit, latencyThreshold, backoffRatio, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit,
+                             Duration latencyThreshold, double backoffRatio, LongSupplier clock) {
+        if (minLimit <= 0 || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Нужно 0 < min-limit <= initial-limit <= max-limit");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("user.admission.concurrency.backoff-ratio должен быть в интервале (0, 1)");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.clock = clock;
+        this.lastDecrease = clock.getAsLong() - latencyThresholdNanos;
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // latencyNanos < 0 — запрос ушёл в асинхронную обработку, и его длительность о нагрузке не говорит
+    public void release(long latencyNanos, boolean overloaded) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        if (latencyNanos >= 0) {
+            onSample(latencyNanos, overloaded, inFlightBefore);
+        }
+    }
+
+    synchronized void onSample(long latencyNanos, boolean overloaded, int inFlightBefore) {
+        if (overloaded || latencyNanos > latencyThresholdNanos) {
+            long now = clock.getAsLong();
+            if (now - lastDecrease >= latencyThresholdNanos) {
+                lastDecrease = now;
+                successes = 0;
+                limit = Math.max(minLimit, (int) (limit * backoffRatio));
+            }
+        } else if (inFlightBefore * 2 >= limit && ++successes >= limit) {
+            // при малой нагрузке лимит не растёт: быстрые ответы ничего не говорят о том, сколько выдержит БД
+            successes = 0;
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("user.admission.concurrency.limit", this, AdaptiveConcurrencyLimit::getLimit)
+                .description("Текущий лимит одновременных запросов к API")
+                .register(registry);
+        Gauge.builder("user.admission.concurrency.in-flight", this, AdaptiveConcurrencyLimit::inFlight)
+                .description("Запросы к API, выполняющиеся сейчас")
+                .register(registry);
+        FunctionCounter.builder("user.admission.rejected", rejected, AtomicLong::get)
+                .tag("reason", "concurrency")
+                .register(registry);
+    }
+}
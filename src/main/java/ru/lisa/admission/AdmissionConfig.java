@@ -0,0 +1,95 @@
+package ru.lisa.admission;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Ограничение входящих запросов к UserController (user.admission.*); выключается user.admission.enabled=false
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "user.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionConfig {
+
+    // за балансировщиком адрес клиента берётся из X-Forwarded-For (server.forward-headers-strategy)
+    @Bean
+    public ClientRateLimiters addressRateLimiters(
+            @Value("${user.admission.rate-limit.limit-for-period:100}") int limitForPeriod,
+            @Value("${user.admission.rate-limit.refresh-period:1s}") Duration refreshPeriod,
+            @Value("${user.admission.rate-limit.idle-timeout:10m}") Duration idleTimeout,
+            @Value("${user.admission.rate-limit.max-clients:100000}") long maxClients) {
+        return new ClientRateLimiters("address", limitForPeriod, refreshPeriod, idleTimeout, maxClients);
+    }
+
+    @Bean
+    public ClientRateLimiters clientRateLimiters(
+            @Value("${user.admission.client-rate-limit.limit-for-period:${user.admission.rate-limit.limit-for-period:100}}") int limitForPeriod,
+            @Value("${user.admission.rate-limit.refresh-period:1s}") Duration refreshPeriod,
+            @Value("${user.admission.rate-limit.idle-timeout:10m}") Duration idleTimeout,
+            @Value("${user.admission.rate-limit.max-clients:100000}") long maxClients) {
+        return new ClientRateLimiters("client", limitForPeriod, refreshPeriod, idleTimeout, maxClients);
+    }
+
+    // начальный лимит по умолчанию — размер пула Hikari: больше одновременных запросов к БД он не обслужит
+    @Bean
+    public AdaptiveConcurrencyLimit adaptiveConcurrencyLimit(
+            @Value("${user.admission.concurrency.initial-limit:${spring.datasource.hikari.maximum-pool-size:10}}") int initialLimit,
+            @Value("${user.admission.concurrency.min-limit:4}") int minLimit,
+            @Value("${user.admission.concurrency.max-limit:200}") int maxLimit,
+            @Value("${user.admission.concurrency.latency-threshold:250ms}") Duration latencyThreshold,
+            @Value("${user.admission.concurrency.backoff-ratio:0.9}") double backoffRatio) {
+        return new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, latencyThreshold, backoffRatio);
+    }
+
+    // размер фиксированный, поэтому подходит обычный Bulkhead; без ожидания — сверх предела сразу 503
+    @Bean
+    public Bulkhead longRunningBulkhead(@Value("${user.admission.long-running.max-concurrent:2}") int maxConcurrent) {
+        return Bulkhead.of("user-long-running", BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrent)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+    }
+
+    @Bean
+    public MeterBinder longRunningBulkheadMetrics(Bulkhead longRunningBulkhead) {
+        AtomicLong rejected = new AtomicLong();
+        longRunningBulkhead.getEventPublisher().onCallRejected(event -> rejected.incrementAndGet());
+        int maxConcurrent = longRunningBulkhead.getBulkheadConfig().getMaxConcurrentCalls();
+        return registry -> {
+            Gauge.builder("user.admission.long-running.in-flight", longRunningBulkhead,
+                            bulkhead -> maxConcurrent - bulkhead.getMetrics().getAvailableConcurrentCalls())
+                    .description("Выполняющиеся выгрузки и загрузки (@LongRunning)")
+                    .register(registry);
+            FunctionCounter.builder("user.admission.rejected", rejected, AtomicLong::get)
+                    .tag("reason", "long-running")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public WebMvcConfigurer admissionControlConfigurer(ClientRateLimiters addressRateLimiters,
+                                                       ClientRateLimiters clientRateLimiters,
+                                                       AdaptiveConcurrencyLimit concurrencyLimit,
+                                                       Bulkhead longRunningBulkhead,
+                                                       @Value("${user.admission.client-header:}") String clientHeader) {
+        AdmissionControlInterceptor interceptor = new AdmissionControlInterceptor(
+                addressRateLimiters, clientRateLimiters, concurrencyLimit, longRunningBulkhead, clientHeader);
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(interceptor).addPathPatterns("/api/users/**");
+            }
+        };
+    }
+}
@@ -0,0 +1,109 @@
+package ru.lisa.admission;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import ru.lisa.exception.RateLimitExceededException;
+import ru.lisa.exception.ServiceOverloadedException;
+
+// Допуск запросов к /api/users: сначала лимит адреса и, если задан заголовок клиента, лимит клиента (429),
+// затем общий лимит одновременных запросов (503); @LongRunning вместо него проходят через свой маленький
+// Bulkhead. Отказ — исключение без стека, ответ с Retry-After собирает GlobalExceptionHandler
+public class AdmissionControlInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String STARTED_AT = AdmissionControlInterceptor.class.getName() + ".startedAt";
+    private static final int MAX_CLIENT_ID_LENGTH = 100;
+    private static final String LONG_RUNNING = AdmissionControlInterceptor.class.getName() + ".longRunning";
+    private static final long OVERLOADED_RETRY_AFTER_SECONDS = 1;
+    // выгрузка занимает место минутами, повтор через секунду почти наверняка тоже получит отказ
+    private static final long LONG_RUNNING_RETRY_AFTER_SECONDS = 30;
+
+    private final ClientRateLimiters addressRateLimiters;
+    private final ClientRateLimiters clientRateLimiters;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final Bulkhead longRunning;
+    private final String clientHeader;
+
+    // clientHeader пустой — клиенты различаются только по адресу
+    public AdmissionControlInterceptor(ClientRateLimiters addressRateLimiters, ClientRateLimiters clientRateLimiters,
+                                       AdaptiveConcurrencyLimit concurrencyLimit, Bulkhead longRunning,
+                                       String clientHeader) {
+        this.addressRateLimiters = addressRateLimiters;
+        this.clientRateLimiters = clientRateLimiters;
+        this.concurrencyLimit = concurrencyLimit;
+        this.longRunning = longRunning;
+        this.clientHeader = clientHeader == null || clientHeader.isBlank() ? null : clientHeader;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // повторный проход того же запроса после асинхронной обработки уже был допущен
+        if (request.getDispatcherType() != DispatcherType.REQUEST) {
+            return true;
+        }
+        // адрес ограничивается всегда: заголовок клиента не проверяется, и смена его значения
+        // не должна давать новое ведро в обход лимита
+        String address = request.getRemoteAddr();
+        if (!addressRateLimiters.tryAcquire(address)) {
+            throw new RateLimitExceededException(address, addressRateLimiters.retryAfterSeconds());
+        }
+        String clientId = clientId(request);
+        if (clientId != null && !clientRateLimiters.tryAcquire(clientId)) {
+            throw new RateLimitExceededException(clientId, clientRateLimiters.retryAfterSeconds());
+        }
+        // выгрузки держат соединение с БД до request-timeout и исказили бы задержки AIMD, но без своего
+        // предела несколько одновременных выгрузок заняли бы весь пул
+        if (handler instanceof HandlerMethod method && method.hasMethodAnnotation(LongRunning.class)) {
+            if (!longRunning.tryAcquirePermission()) {
+                throw new ServiceOverloadedException(longRunning.getBulkheadConfig().getMaxConcurrentCalls(),
+                        LONG_RUNNING_RETRY_AFTER_SECONDS);
+            }
+            request.setAttribute(LONG_RUNNING, Boolean.TRUE);
+            return true;
+        }
+        if (!concurrencyLimit.tryAcquire()) {
+            throw new ServiceOverloadedException(concurrencyLimit.getLimit(), OVERLOADED_RETRY_AFTER_SECONDS);
+        }
+        request.setAttribute(STARTED_AT, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        // у асинхронного ответа сюда приходит только повторный проход после записи тела, таймаута или ошибки
+        if (request.getAttribute(LONG_RUNNING) != null) {
+            request.removeAttribute(LONG_RUNNING);
+            longRunning.onComplete();
+        }
+        if (request.getAttribute(STARTED_AT) instanceof Long startedAt) {
+            request.removeAttribute(STARTED_AT);
+            // 503 здесь — от GlobalExceptionHandler, когда пул БД не выдал соединение: сигнал перегрузки
+            boolean overloaded = response.getStatus() == HttpStatus.SERVICE_UNAVAILABLE.value();
+            concurrencyLimit.release(System.nanoTime() - startedAt, overloaded);
+        }
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(STARTED_AT) != null) {
+            request.removeAttribute(STARTED_AT);
+            concurrencyLimit.release(-1, false);
+        }
+    }
+
+    // заголовок ставит шлюз после аутентификации клиента; null — лимита клиента нет
+    private String clientId(HttpServletRequest request) {
+        if (clientHeader == null) {
+            return null;
+        }
+        String header = request.getHeader(clientHeader);
+        if (header == null || header.isBlank()) {
+            return null;
+        }
+        return header.length() > MAX_CLIENT_ID_LENGTH ? header.substring(0, MAX_CLIENT_ID_LENGTH) : header;
+    }
+}
@@ -0,0 +1,70 @@
+package ru.lisa.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Лимит запросов на клиента: у каждого свой RateLimiter resilience4j — ведро на limitForPeriod токенов,
+// которое наполняется раз в refreshPeriod; объём ведра — допустимый всплеск. Ведра живут в Caffeine
+// и удаляются после простоя, а не в RateLimiterRegistry, который хранил бы каждого клиента вечно.
+// По той же причине метрики общие, без тега клиента; key — чем различаются клиенты (address или client)
+public class ClientRateLimiters implements MeterBinder {
+
+    private final String key;
+    private final RateLimiterConfig config;
+    private final Cache<String, RateLimiter> limiters;
+    private final long retryAfterSeconds;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public ClientRateLimiters(String key, int limitForPeriod, Duration refreshPeriod, Duration idleTimeout,
+                              long maxClients) {
+        if (limitForPeriod <= 0) {
+            throw new IllegalArgumentException("user.admission.rate-limit.limit-for-period должен быть положительным");
+        }
+        // без ожидания: запрос сверх лимита сразу получает 429, а не держит поток до следующего периода
+        this.key = key;
+        this.config = RateLimiterConfig.custom()
+                .limitForPeriod(limitForPeriod)
+                .limitRefreshPeriod(refreshPeriod)
+                .timeoutDuration(Duration.ZERO)
+                .build();
+        // простой дольше периода: удалённое ведро было бы уже полным, поэтому лимит так не обойти
+        this.limiters = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(idleTimeout.compareTo(refreshPeriod) > 0 ? idleTimeout : refreshPeriod)
+                .build();
+        this.retryAfterSeconds = Math.max(1, (refreshPeriod.toMillis() + 999) / 1000);
+    }
+
+    public boolean tryAcquire(String clientId) {
+        if (limiters.get(clientId, id -> RateLimiter.of(id, config)).acquirePermission()) {
+            return true;
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    // не позже этого момента ведро клиента наполнится заново
+    public long retryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("user.admission.rate-limit.clients", limiters, Cache::estimatedSize)
+                .tag("key", key)
+                .description("Клиенты с активным лимитом запросов")
+                .register(registry);
+        FunctionCounter.builder("user.admission.rejected", rejected, AtomicLong::get)
+                .tag("reason", "rate-limit-" + key)
+                .register(registry);
+    }
+}
@@ -0,0 +1,14 @@
+package ru.lisa.admission;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Выгрузки и загрузки: их длительность задаёт объём данных, а не нагрузка, поэтому такие запросы
+// не занимают место в AdaptiveConcurrencyLimit и не влияют на его лимит, а ограничиваются своим Bulkhead
+// (user.admission.long-running.max-concurrent). Лимит клиента на них действует
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LongRunning {
+}
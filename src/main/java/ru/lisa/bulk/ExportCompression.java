@@ -0,0 +1,74 @@
+package ru.lisa.bulk;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import org.springframework.http.MediaType;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public enum ExportCompression {
+    NONE(null, null) {
+        @Override
+        public OutputStream wrap(OutputStream out) {
+            return new BufferedOutputStream(out, BUFFER_SIZE);
+        }
+
+        @Override
+        public InputStream unwrap(InputStream in) {
+            return new BufferedInputStream(in, BUFFER_SIZE);
+        }
+    },
+    GZIP("gz", MediaType.valueOf("application/gzip")) {
+        @Override
+        public OutputStream wrap(OutputStream out) throws IOException {
+            return new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+
+        @Override
+        public InputStream unwrap(InputStream in) throws IOException {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        }
+    },
+    // zstd-jni уже приходит с kafka-clients (сжатие сообщений); уровень 3 — баланс скорости и размера по умолчанию
+    ZSTD("zst", MediaType.valueOf("application/zstd")) {
+        @Override
+        public OutputStream wrap(OutputStream out) throws IOException {
+            return new BufferedOutputStream(new ZstdOutputStream(out, 3), BUFFER_SIZE);
+        }
+
+        @Override
+        public InputStream unwrap(InputStream in) throws IOException {
+            return new BufferedInputStream(new ZstdInputStream(in), BUFFER_SIZE);
+        }
+    };
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String extension;
+    private final MediaType mediaType;
+
+    ExportCompression(String extension, MediaType mediaType) {
+        this.extension = extension;
+        this.mediaType = mediaType;
+    }
+
+    // поток нужно закрыть: только close() дописывает хвост сжатого потока
+    public abstract OutputStream wrap(OutputStream out) throws IOException;
+
+    // обратное преобразование для импорта: файл в том же сжатии, что отдаёт выгрузка
+    public abstract InputStream unwrap(InputStream in) throws IOException;
+
+    public String fileName(ExportFormat format) {
+        return "users." + format.extension() + (extension != null ? "." + extension : "");
+    }
+
+    public MediaType mediaType(ExportFormat format) {
+        return mediaType != null ? mediaType : format.mediaType();
+    }
+}
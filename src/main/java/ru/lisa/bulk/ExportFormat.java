@@ -0,0 +1,24 @@
+package ru.lisa.bulk;
+
+import org.springframework.http.MediaType;
+
+public enum ExportFormat {
+    CSV("csv", MediaType.valueOf("text/csv")),
+    NDJSON("ndjson", MediaType.APPLICATION_NDJSON);
+
+    private final String extension;
+    private final MediaType mediaType;
+
+    ExportFormat(String extension, MediaType mediaType) {
+        this.extension = extension;
+        this.mediaType = mediaType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+}
@@ -0,0 +1,13 @@
+package ru.lisa.bulk;
+
+import java.time.LocalDateTime;
+
+// Граница выгрузки: строки с id больше afterId, созданные позже createdAfter и не позже createdUntil.
+// Для инкрементальной выгрузки следующая граница — createdAfter = createdUntil этой выгрузки, а не id или
+// created_at последней строки: id выдаются блоками по 50 на реплику, а транзакции коммитятся не в порядке
+// created_at, поэтому строка с меньшим id или датой может появиться уже после выгрузки. afterId годится
+// только для продолжения прерванной выгрузки с тем же createdUntil
+public record ExportWatermark(Long afterId, LocalDateTime createdAfter, LocalDateTime createdUntil) {
+
+    public static final ExportWatermark NONE = new ExportWatermark(null, null, null);
+}
@@ -0,0 +1,129 @@
+package ru.lisa.bulk;
+
+import ru.lisa.dto.BatchItemResult;
+import ru.lisa.dto.ImportJobStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Прогресс одной загрузки: пишет поток импорта, читает GET /api/users/import/{id}
+public class ImportJob {
+
+    public enum State {
+        QUEUED,
+        LOADING,
+        MERGING,
+        COMPLETED,
+        FAILED
+    }
+
+    private final String id;
+    private final ExportFormat format;
+    private final ExportCompression compression;
+    private final int maxReportedErrors;
+    // вызывается при каждой смене этапа: UserImportJobs сохраняет состояние для других реплик
+    private final Consumer<ImportJob> onStateChange;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong invalid = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+    // в отчёт попадают только первые ошибки: файл из миллионов плохих строк не должен занять память
+    private final List<BatchItemResult> errors = new CopyOnWriteArrayList<>();
+    private volatile State state = State.QUEUED;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile long created;
+    private volatile String error;
+
+    public ImportJob(String id, ExportFormat format, ExportCompression compression, int maxReportedErrors) {
+        this(id, format, compression, maxReportedErrors, job -> {
+        });
+    }
+
+    ImportJob(String id, ExportFormat format, ExportCompression compression, int maxReportedErrors,
+              Consumer<ImportJob> onStateChange) {
+        this.id = id;
+        this.format = format;
+        this.compression = compression;
+        this.maxReportedErrors = maxReportedErrors;
+        this.onStateChange = onStateChange;
+    }
+
+    void start() {
+        startedAt = LocalDateTime.now();
+        state = State.LOADING;
+        onStateChange.accept(this);
+    }
+
+    void merging() {
+        state = State.MERGING;
+        onStateChange.accept(this);
+    }
+
+    void rowRead() {
+        rowsRead.incrementAndGet();
+    }
+
+    void reject(BatchItemResult result) {
+        (result.getStatus() == BatchItemResult.Status.CONFLICT ? conflicts : invalid).incrementAndGet();
+        if (errors.size() < maxReportedErrors) {
+            errors.add(result);
+        }
+    }
+
+    void complete(long created) {
+        if (finish(State.COMPLETED, created, null)) {
+            onStateChange.accept(this);
+        }
+    }
+
+    // при остановке реплики fail вызывает и UserImportJobs.shutdown, и поток импорта — остаётся первое завершение
+    void fail(String error) {
+        if (finish(State.FAILED, 0, error)) {
+            onStateChange.accept(this);
+        }
+    }
+
+    private synchronized boolean finish(State finalState, long created, String error) {
+        if (isFinished()) {
+            return false;
+        }
+        this.created = created;
+        this.error = error;
+        finishedAt = LocalDateTime.now();
+        state = finalState;
+        return true;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public ExportFormat getFormat() {
+        return format;
+    }
+
+    public ExportCompression getCompression() {
+        return compression;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isFinished() {
+        return state == State.COMPLETED || state == State.FAILED;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public ImportJobStatus status() {
+        return new ImportJobStatus(id, state.name(), format.name(), compression.name(), submittedAt, startedAt,
+                finishedAt, rowsRead.get(), invalid.get(), conflicts.get(), created, List.copyOf(errors), error);
+    }
+}
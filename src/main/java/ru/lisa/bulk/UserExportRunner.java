@@ -0,0 +1,63 @@
+package ru.lisa.bulk;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+// Режим командной строки (профиль export): выгружает users в файл и завершает процесс, например
+// java -jar user-service.jar --spring.profiles.active=export --user.export.output=users.csv.zst
+//      --user.export.format=CSV --user.export.compression=ZSTD --user.export.created-after=2024-05-01T10:15:30
+@Slf4j
+@Component
+@Profile("export")
+public class UserExportRunner implements ApplicationRunner {
+
+    private final UserExporter exporter;
+    private final ConfigurableApplicationContext context;
+    private final String output;
+    private final ExportFormat format;
+    private final ExportCompression compression;
+    private final ExportWatermark watermark;
+
+    public UserExportRunner(UserExporter exporter,
+                            ConfigurableApplicationContext context,
+                            @Value("${user.export.output}") String output,
+                            @Value("${user.export.format:CSV}") ExportFormat format,
+                            @Value("${user.export.compression:GZIP}") ExportCompression compression,
+                            @Value("${user.export.after-id:#{null}}") Long afterId,
+                            @Value("${user.export.created-after:}") String createdAfter,
+                            @Value("${user.export.created-until:}") String createdUntil) {
+        this.exporter = exporter;
+        this.context = context;
+        this.output = output;
+        this.format = format;
+        this.compression = compression;
+        this.watermark = exporter.watermark(afterId, createdAfter.isEmpty() ? null : LocalDateTime.parse(createdAfter),
+                createdUntil.isEmpty() ? null : LocalDateTime.parse(createdUntil));
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        int exitCode = 0;
+        try (OutputStream out = new FileOutputStream(output)) {
+            long rows = exporter.export(format, compression, watermark, out);
+            log.info("Выгрузка в {} завершена: {} строк; следующая — с --user.export.created-after={}",
+                    output, rows, watermark.createdUntil());
+        } catch (Exception e) {
+            log.error("Выгрузка в {} не удалась: {}", output, e.getMessage(), e);
+            exitCode = 1;
+        }
+        // планировщик и клиенты держат не-daemon потоки, поэтому процесс завершаем явно
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+}
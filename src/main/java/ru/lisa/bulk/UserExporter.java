@@ -0,0 +1,127 @@
+package ru.lisa.bulk;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.lisa.repository.ImportJobRepository;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+// Выгрузка users через COPY ... TO STDOUT: PostgreSQL сам форматирует строки (CSV или JSON), драйвер
+// передаёт их в поток кусками, и память не зависит от размера таблицы — ни сущностей, ни ResultSet целиком
+@Slf4j
+@Component
+public class UserExporter {
+
+    private static final String COLUMNS = "id, name, email, age, created_at, version";
+
+    // для NDJSON строку собирает row_to_json; имена полей — как в UserModel
+    private static final String JSON_COLUMNS = "id, name, email, age, created_at AS \"createdAt\", version";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ImportJobRepository importJobs;
+    private final Duration lag;
+
+    public UserExporter(JdbcTemplate jdbcTemplate,
+                        ImportJobRepository importJobs,
+                        @Value("${user.export.lag:1m}") Duration lag) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.importJobs = importJobs;
+        this.lag = lag;
+    }
+
+    // created_at ставит приложение до коммита, поэтому строки моложе lag могут быть ещё не видны: они
+    // не выгружаются сейчас и попадут в следующую выгрузку. lag должен перекрывать самую долгую транзакцию
+    // записи и расхождение часов реплик. createdUntil — граница прерванной выгрузки, которую продолжают по afterId
+    public ExportWatermark watermark(Long afterId, LocalDateTime createdAfter, LocalDateTime createdUntil) {
+        LocalDateTime visible = LocalDateTime.now().minus(lag);
+        // загрузка из файла ставит created_at всем строкам перед слиянием, а коммитит их минуты спустя — дольше
+        // любого lag. Пока она не завершена, граница не заходит дальше её приёма (created_at всегда позже)
+        LocalDateTime importing = importJobs.findOldestUnfinishedSubmittedAt().orElse(null);
+        if (importing != null && importing.isBefore(visible)) {
+            visible = importing;
+        }
+        return new ExportWatermark(afterId, createdAfter,
+                createdUntil != null && createdUntil.isBefore(visible) ? createdUntil : visible);
+    }
+
+    // Возвращает число выгруженных строк; out не закрывается
+    public long export(ExportFormat format, ExportCompression compression, ExportWatermark watermark, OutputStream out)
+            throws IOException {
+        String sql = copySql(format, watermark);
+        long start = System.nanoTime();
+        OutputStream compressed = compression.wrap(new NonClosingOutputStream(out));
+        long rows;
+        try (compressed) {
+            rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+                try {
+                    return connection.unwrap(PGConnection.class).getCopyAPI().copyOut(sql, compressed);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        log.info("Выгрузка пользователей ({}, {}): {} строк за {} мс, граница {}", format, compression, rows,
+                (System.nanoTime() - start) / 1_000_000, watermark);
+        return rows;
+    }
+
+    // COPY не принимает параметры запроса, поэтому граница подставляется литералами. Это безопасно:
+    // значения приходят уже разобранными в Long и LocalDateTime, а не строками от клиента
+    static String copySql(ExportFormat format, ExportWatermark watermark) {
+        StringBuilder query = new StringBuilder(256).append("SELECT ")
+                .append(format == ExportFormat.CSV ? COLUMNS : JSON_COLUMNS)
+                .append(" FROM users WHERE TRUE");
+        if (watermark.afterId() != null) {
+            query.append(" AND id > ").append(watermark.afterId().longValue());
+        }
+        if (watermark.createdAfter() != null) {
+            query.append(" AND created_at > ").append(timestamp(watermark.createdAfter()));
+        }
+        if (watermark.createdUntil() != null) {
+            query.append(" AND created_at <= ").append(timestamp(watermark.createdUntil()));
+        }
+        query.append(" ORDER BY id");
+
+        if (format == ExportFormat.CSV) {
+            return "COPY (" + query + ") TO STDOUT WITH (FORMAT csv, HEADER true)";
+        }
+        // текстовый формат COPY экранировал бы обратные слэши внутри JSON; CSV с кавычкой и разделителем,
+        // которых в JSON не бывает (управляющие символы row_to_json экранирует), отдаёт строку как есть
+        return "COPY (SELECT row_to_json(u)::text FROM (" + query + ") u) " +
+                "TO STDOUT WITH (FORMAT csv, QUOTE E'\\x01', DELIMITER E'\\x02')";
+    }
+
+    private static String timestamp(LocalDateTime value) {
+        return "TIMESTAMP '" + DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value) + '\'';
+    }
+
+    // сжатый поток закрывается, чтобы дописать хвост, а ответ или файл закрывает тот, кто их открыл
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package ru.lisa.bulk;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import ru.lisa.dto.ImportJobStatus;
+import ru.lisa.exception.ImportTooLargeException;
+import ru.lisa.repository.ImportJobRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Фоновые загрузки POST /api/users/import. Тело запроса сначала копируется на диск как есть (без распаковки),
+// чтобы клиент получил 202 сразу после передачи файла, а не после слияния миллионов строк. Загрузку выполняет
+// реплика, принявшая файл; её состояние при каждой смене этапа пишется в import_jobs, поэтому GET по id
+// отвечает на любой реплике. Пока загрузка идёт, реплика подтверждает её раз в heartbeat-interval; загрузку
+// упавшей реплики любая другая помечает FAILED. Завершённые удаляются через user.import.retention
+@Slf4j
+@Component
+public class UserImportJobs implements MeterBinder {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final String ABANDONED_ERROR = "Загрузка прервана: реплика, которая её вела, остановилась";
+    private static final String SHUTDOWN_ERROR = "Загрузка прервана остановкой реплики";
+
+    private final UserImporter importer;
+    private final ImportJobRepository repository;
+    private final TransactionTemplate persistTransaction;
+    private final Path spoolDirectory;
+    private final DataSize maxSize;
+    private final Duration retention;
+    private final Duration heartbeatTimeout;
+    private final int maxReportedErrors;
+    private final ExecutorService executor;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    // загрузки, последнюю смену этапа которых не удалось записать: их повторяет heartbeat
+    private final Set<String> unsaved = ConcurrentHashMap.newKeySet();
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName();
+
+    public UserImportJobs(UserImporter importer,
+                          ImportJobRepository repository,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${user.import.spool-dir:${java.io.tmpdir}}") Path spoolDirectory,
+                          @Value("${user.import.max-size:1GB}") DataSize maxSize,
+                          @Value("${user.import.retention:24h}") Duration retention,
+                          @Value("${user.import.heartbeat-timeout:5m}") Duration heartbeatTimeout,
+                          @Value("${user.import.max-reported-errors:1000}") int maxReportedErrors,
+                          @Value("${user.import.workers:1}") int workers) {
+        this.importer = importer;
+        this.repository = repository;
+        // этап MERGING меняется внутри транзакции импорта: без отдельной транзакции запись стала бы видна
+        // только после коммита, а при откате пропала бы вместе с ним
+        this.persistTransaction = new TransactionTemplate(transactionManager);
+        this.persistTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.spoolDirectory = spoolDirectory;
+        this.maxSize = maxSize;
+        this.retention = retention;
+        this.heartbeatTimeout = heartbeatTimeout;
+        this.maxReportedErrors = maxReportedErrors;
+        AtomicInteger threads = new AtomicInteger();
+        // загрузка держит соединение и транзакцию всё время слияния, поэтому параллельно идут не больше workers
+        this.executor = Executors.newFixedThreadPool(workers, task -> {
+            Thread thread = new Thread(task, "user-import-" + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // ImportTooLargeException — тело больше user.import.max-size; принятое к этому моменту удаляется
+    public ImportJob submit(ExportFormat format, ExportCompression compression, InputStream body) throws IOException {
+        Path file = Files.createTempFile(spoolDirectory, "users-import-", ".tmp");
+        long size;
+        try (OutputStream out = Files.newOutputStream(file)) {
+            size = copy(body, out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), format, compression, maxReportedErrors, this::persist);
+        try {
+            // в отличие от смены этапов, без этой строки загрузку не принимаем: по незавершённым строкам import_jobs
+            // UserExporter сдерживает границу выгрузки, пока created_at загружаемых строк не закоммичены
+            save(job);
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        jobs.put(job.getId(), job);
+        executor.execute(() -> run(job, file));
+        log.info("Принят файл импорта {} ({}, {}): {} байт", job.getId(), format, compression, size);
+        return job;
+    }
+
+    // загрузка этой реплики — из памяти, со счётчиками на текущий момент; чужая — из import_jobs
+    public Optional<ImportJobStatus> find(String id) {
+        ImportJob job = jobs.get(id);
+        return job != null ? Optional.of(job.status()) : repository.find(id);
+    }
+
+    private long copy(InputStream body, OutputStream out) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        long total = 0;
+        for (int read = body.read(buffer); read >= 0; read = body.read(buffer)) {
+            total += read;
+            if (total > maxSize.toBytes()) {
+                throw new ImportTooLargeException(maxSize.toMegabytes());
+            }
+            out.write(buffer, 0, read);
+        }
+        return total;
+    }
+
+    // ошибка записи состояния не должна прерывать саму загрузку: в памяти реплики оно остаётся верным
+    private void persist(ImportJob job) {
+        try {
+            save(job);
+            unsaved.remove(job.getId());
+        } catch (RuntimeException e) {
+            unsaved.add(job.getId());
+            log.warn("Не удалось сохранить состояние импорта {} ({}): {}", job.getId(), job.getState(), e.getMessage());
+        }
+    }
+
+    private void save(ImportJob job) {
+        persistTransaction.executeWithoutResult(status -> repository.save(job.status(), owner, LocalDateTime.now()));
+    }
+
+    // подтверждает свои незавершённые загрузки (заодно обновляя счётчики в import_jobs) и дописывает несохранённые;
+    // затем помечает FAILED чужие, которые не подтверждались дольше heartbeat-timeout
+    @Scheduled(fixedDelayString = "${user.import.heartbeat-interval:30s}")
+    public void heartbeat() {
+        jobs.values().stream()
+                .filter(job -> !job.isFinished() || unsaved.contains(job.getId()))
+                .forEach(this::persist);
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            int abandoned = repository.failAbandoned(now.minus(heartbeatTimeout), now, ABANDONED_ERROR);
+            if (abandoned > 0) {
+                log.warn("Помечено FAILED загрузок без подтверждения дольше {}: {}", heartbeatTimeout, abandoned);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Не удалось проверить брошенные загрузки, повторим на следующем цикле: {}", e.getMessage());
+        }
+    }
+
+    private void run(ImportJob job, Path file) {
+        try (InputStream in = Files.newInputStream(file)) {
+            importer.importUsers(job, in);
+        } catch (Exception e) {
+            log.error("Импорт {} не удался: {}", job.getId(), e.getMessage(), e);
+            if (!job.isFinished()) {
+                job.fail(e.getMessage());
+            }
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Не удалось удалить файл импорта {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${user.import.cleanup-interval:10m}")
+    public void evictFinished() {
+        LocalDateTime expired = LocalDateTime.now().minus(retention);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(expired));
+        try {
+            repository.deleteFinishedBefore(expired);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось удалить завершённые загрузки, повторим на следующем цикле: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // прерванная загрузка откатывает свою транзакцию целиком; её состояние записываем сразу, не дожидаясь
+        // heartbeat-timeout на других репликах
+        executor.shutdownNow();
+        jobs.values().stream()
+                .filter(job -> !job.isFinished())
+                .forEach(job -> job.fail(SHUTDOWN_ERROR));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("user.import.jobs.active", jobs,
+                        all -> all.values().stream().filter(job -> !job.isFinished()).count())
+                .description("Загрузки в очереди и в работе")
+                .register(registry);
+    }
+}
@@ -0,0 +1,66 @@
+package ru.lisa.bulk;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.lisa.dto.BatchItemResult;
+import ru.lisa.dto.ImportJobStatus;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+// Режим командной строки (профиль import): загружает users из файла и завершает процесс, например
+// java -jar user-service.jar --spring.profiles.active=import --user.import.input=partner.csv.gz
+//      --user.import.format=CSV --user.import.compression=GZIP
+@Slf4j
+@Component
+@Profile("import")
+public class UserImportRunner implements ApplicationRunner {
+
+    private final UserImporter importer;
+    private final ConfigurableApplicationContext context;
+    private final String input;
+    private final ExportFormat format;
+    private final ExportCompression compression;
+    private final int maxReportedErrors;
+
+    public UserImportRunner(UserImporter importer,
+                            ConfigurableApplicationContext context,
+                            @Value("${user.import.input}") String input,
+                            @Value("${user.import.format:CSV}") ExportFormat format,
+                            @Value("${user.import.compression:NONE}") ExportCompression compression,
+                            @Value("${user.import.max-reported-errors:1000}") int maxReportedErrors) {
+        this.importer = importer;
+        this.context = context;
+        this.input = input;
+        this.format = format;
+        this.compression = compression;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        int exitCode = 0;
+        ImportJob job = new ImportJob(input, format, compression, maxReportedErrors);
+        try (InputStream in = new FileInputStream(input)) {
+            importer.importUsers(job, in);
+            ImportJobStatus status = job.status();
+            for (BatchItemResult error : status.errors()) {
+                log.warn("Запись {} отклонена ({}): {}", error.getIndex(), error.getStatus(), error.getError());
+            }
+            log.info("Загрузка из {} завершена: прочитано {}, создано {}, невалидных {}, конфликтов {}",
+                    input, status.rowsRead(), status.created(), status.invalid(), status.conflicts());
+        } catch (Exception e) {
+            log.error("Загрузка из {} не удалась: {}", input, e.getMessage(), e);
+            exitCode = 1;
+        }
+        // планировщик и клиенты держат не-daemon потоки, поэтому процесс завершаем явно
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+}
@@ -0,0 +1,268 @@
+package ru.lisa.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.lisa.dto.BatchItemResult;
+import ru.lisa.event.EventType;
+import ru.lisa.exception.EmailAlreadyExistsException;
+import ru.lisa.exception.InvalidUserDataException;
+import ru.lisa.kafka.UserEventProducer;
+import ru.lisa.service.UserValidator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Загрузка users из файла: записи проверяются правилами UserValidator на лету и через COPY FROM STDIN
+// попадают во временную таблицу, затем одна транзакция переносит их в users (ON CONFLICT по email)
+// и пишет события CREATED одним INSERT ... SELECT в outbox. Память не зависит от размера файла
+@Slf4j
+@Component
+public class UserImporter {
+
+    private static final int MAX_COLUMN_LENGTH = 100;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    // шаг users_id_seq (db/001) и allocationSize у User: nextval, вернувший v, отдаёт вызвавшему id v-49..v
+    private static final int ID_BLOCK_SIZE = 50;
+
+    // временная таблица видна только соединению импорта и удаляется при коммите; её не пишет WAL,
+    // а индекс строится один раз после загрузки, а не на каждую строку COPY
+    private static final String CREATE_STAGING_SQL =
+            "CREATE TEMP TABLE users_import (line BIGINT NOT NULL, name VARCHAR(100) NOT NULL, " +
+            "email VARCHAR(100) NOT NULL, age INT NOT NULL, seq BIGINT, user_id BIGINT) ON COMMIT DROP";
+
+    private static final String COPY_SQL = "COPY users_import (line, name, email, age) FROM STDIN WITH (FORMAT csv)";
+
+    private static final String INDEX_STAGING_SQL = "CREATE INDEX ON users_import (email, line)";
+
+    // autovacuum временные таблицы не анализирует, а без статистики план слияния строится вслепую
+    private static final String ANALYZE_STAGING_SQL = "ANALYZE users_import";
+
+    // из повторов email внутри файла остаётся первая запись, остальные — конфликт
+    private static final String DELETE_DUPLICATES_SQL =
+            "DELETE FROM users_import d USING users_import f WHERE d.email = f.email AND d.line > f.line " +
+            "RETURNING d.line, d.email";
+
+    // порядковый номер среди строк, которым нужен id: под занятые уже email блоки id не выделяются
+    private static final String NUMBER_SQL =
+            "UPDATE users_import s SET seq = n.seq FROM (" +
+            "SELECT line, row_number() OVER (ORDER BY line) - 1 AS seq FROM users_import i " +
+            "WHERE NOT EXISTS (SELECT 1 FROM users u WHERE u.email = i.email)) n WHERE s.line = n.line";
+
+    private static final String NEXT_BLOCKS_SQL = "SELECT nextval('users_id_seq') FROM generate_series(1, ?)";
+
+    // DEFAULT nextval тратил бы по блоку из 50 id на строку; здесь строка seq получает id из блока seq / 50
+    // со смещением seq % 50. Занятые с момента нумерации email по-прежнему пропускает уникальный индекс,
+    // как в insertIfEmailAbsent; id созданных возвращаются в users_import, чтобы по ним собрать отчёт и события
+    private static final String MERGE_SQL =
+            "WITH blocks AS (SELECT ord - 1 AS block, hi FROM unnest(?::bigint[]) WITH ORDINALITY AS b(hi, ord)), " +
+            "inserted AS (" +
+            "INSERT INTO users (id, name, email, age, created_at, version) " +
+            "SELECT b.hi - " + (ID_BLOCK_SIZE - 1) + " + s.seq % " + ID_BLOCK_SIZE + ", s.name, s.email, s.age, ?, 0 " +
+            "FROM users_import s JOIN blocks b ON b.block = s.seq / " + ID_BLOCK_SIZE + " ORDER BY s.line " +
+            "ON CONFLICT (email) DO NOTHING RETURNING id, email) " +
+            "UPDATE users_import s SET user_id = i.id FROM inserted i WHERE s.email = i.email";
+
+    private static final String CONFLICTS_SQL =
+            "SELECT line, email FROM users_import WHERE user_id IS NULL ORDER BY line";
+
+    // outbox_id_seq идёт с шагом 1 (db/008), так что nextval здесь тратит ровно один id на событие. Блоки, как у users,
+    // тут нельзя: id outbox задаёт порядок отправки событий пользователя, и блок, взятый заранее, обогнал бы события,
+    // записанные после коммита импорта
+    private static final String OUTBOX_SQL =
+            "INSERT INTO outbox (id, event_type, user_id, email, created_at) " +
+            "SELECT nextval('outbox_id_seq'), ?, user_id, email, ? FROM users_import WHERE user_id IS NOT NULL ORDER BY line";
+
+    private static final String CREATED_SQL =
+            "SELECT user_id, email FROM users_import WHERE user_id IS NOT NULL ORDER BY line";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserEventProducer userEventProducer;
+    private final ObjectMapper objectMapper;
+    private final boolean outbox;
+    private final int fetchSize;
+
+    public UserImporter(JdbcTemplate jdbcTemplate,
+                        TransactionTemplate transactionTemplate,
+                        UserEventProducer userEventProducer,
+                        ObjectMapper objectMapper,
+                        @Value("${user.events.delivery:outbox}") String delivery,
+                        @Value("${user.stream.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.userEventProducer = userEventProducer;
+        this.objectMapper = objectMapper;
+        this.outbox = "outbox".equals(delivery);
+        this.fetchSize = fetchSize;
+    }
+
+    // in — файл в сжатии job.getCompression(); поток не закрывается. Итог и ошибки — в job
+    public void importUsers(ImportJob job, InputStream in) {
+        job.start();
+        long start = System.nanoTime();
+        try {
+            long created = transactionTemplate.execute(status -> {
+                jdbcTemplate.execute(CREATE_STAGING_SQL);
+                long loaded = load(job, in);
+                job.merging();
+                jdbcTemplate.execute(INDEX_STAGING_SQL);
+                jdbcTemplate.execute(ANALYZE_STAGING_SQL);
+                jdbcTemplate.query(DELETE_DUPLICATES_SQL, (RowCallbackHandler) rs ->
+                        job.reject(conflict(rs, "Email '" + rs.getString(2) + "' уже встречается в файле выше")));
+
+                Long[] blocks = allocateIdBlocks(jdbcTemplate.update(NUMBER_SQL));
+                // коммит будет намного позже этого created_at; выгрузка не пропустит строки, потому что её граница
+                // не заходит за приём незавершённой загрузки (UserExporter.watermark)
+                LocalDateTime now = LocalDateTime.now();
+                long inserted = jdbcTemplate.update(MERGE_SQL, ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("bigint", blocks));
+                    ps.setObject(2, now);
+                });
+                stream(CONFLICTS_SQL, rs ->
+                        job.reject(conflict(rs, new EmailAlreadyExistsException(rs.getString(2)).getMessage())));
+                publishCreated(now);
+                log.debug("Импорт {}: загружено через COPY {} строк, создано {}", job.getId(), loaded, inserted);
+                return inserted;
+            });
+            job.complete(created);
+        } catch (RuntimeException e) {
+            job.fail(e.getMessage());
+            throw e;
+        }
+        log.info("Импорт пользователей {} ({}, {}): {} за {} мс", job.getId(), job.getFormat(), job.getCompression(),
+                job.status(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private long load(ImportJob job, InputStream in) {
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            PGCopyOutputStream copy =
+                    new PGCopyOutputStream(connection.unwrap(PGConnection.class), COPY_SQL, COPY_BUFFER_SIZE);
+            try {
+                UserRecordReader reader = UserRecordReader.open(job.getFormat(),
+                        new InputStreamReader(job.getCompression().unwrap(in), StandardCharsets.UTF_8), objectMapper);
+                Writer out = new BufferedWriter(new OutputStreamWriter(copy, StandardCharsets.UTF_8), COPY_BUFFER_SIZE);
+                for (UserRecordReader.Row row = reader.next(); row != null; row = reader.next()) {
+                    job.rowRead();
+                    String error = validate(row);
+                    if (error != null) {
+                        job.reject(BatchItemResult.failure((int) row.line(), null, BatchItemResult.Status.INVALID, error));
+                    } else {
+                        writeRow(out, row);
+                    }
+                }
+                out.flush();
+                return copy.endCopy();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                // при ошибке чтения файла COPY отменяется, иначе соединение осталось бы в режиме копирования
+                if (copy.isActive()) {
+                    copy.cancelCopy();
+                }
+            }
+        });
+    }
+
+    // один nextval на 50 строк. Значение меньше 50 (первое у новой последовательности) дало бы id < 1 —
+    // такой блок пропускается
+    private Long[] allocateIdBlocks(int rows) {
+        List<Long> blocks = new ArrayList<>((rows + ID_BLOCK_SIZE - 1) / ID_BLOCK_SIZE);
+        while (blocks.size() * ID_BLOCK_SIZE < rows) {
+            int missing = (rows - blocks.size() * ID_BLOCK_SIZE + ID_BLOCK_SIZE - 1) / ID_BLOCK_SIZE;
+            for (Long hi : jdbcTemplate.queryForList(NEXT_BLOCKS_SQL, Long.class, missing)) {
+                if (hi >= ID_BLOCK_SIZE) {
+                    blocks.add(hi);
+                }
+            }
+        }
+        return blocks.toArray(Long[]::new);
+    }
+
+    // null — запись можно загружать
+    static String validate(UserRecordReader.Row row) {
+        if (row.error() != null) {
+            return row.error();
+        }
+        try {
+            UserValidator.validateUserData(row.name(), row.email(), row.age());
+        } catch (InvalidUserDataException e) {
+            return e.getMessage();
+        }
+        // ограничения колонок users: строка с ними не прошла бы COPY и остановила бы весь импорт
+        if (row.name().length() > MAX_COLUMN_LENGTH) {
+            return "Имя не может превышать " + MAX_COLUMN_LENGTH + " символов";
+        }
+        if (row.email().length() > MAX_COLUMN_LENGTH) {
+            return "Email не может превышать " + MAX_COLUMN_LENGTH + " символов";
+        }
+        if (row.name().indexOf('\0') >= 0 || row.email().indexOf('\0') >= 0) {
+            return "Данные содержат недопустимый символ NUL";
+        }
+        return null;
+    }
+
+    static void writeRow(Writer out, UserRecordReader.Row row) throws IOException {
+        out.write(Long.toString(row.line()));
+        out.write(',');
+        writeQuoted(out, row.name());
+        out.write(',');
+        writeQuoted(out, row.email());
+        out.write(',');
+        out.write(Integer.toString(row.age()));
+        out.write('\n');
+    }
+
+    private static void writeQuoted(Writer out, String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+
+    private void publishCreated(LocalDateTime now) {
+        if (outbox) {
+            // события всего файла — один оператор в той же транзакции; OutboxRelay отправит их пачками
+            jdbcTemplate.update(OUTBOX_SQL, EventType.CREATED.name(), now);
+        } else {
+            stream(CREATED_SQL, rs -> userEventProducer.send(EventType.CREATED, rs.getLong(1), rs.getString(2)));
+        }
+    }
+
+    // без fetchSize драйвер PostgreSQL прочитал бы весь результат в память
+    private void stream(String sql, RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, handler);
+    }
+
+    private static BatchItemResult conflict(ResultSet rs, String error) throws SQLException {
+        return BatchItemResult.failure((int) rs.getLong(1), null, BatchItemResult.Status.CONFLICT, error);
+    }
+}
@@ -0,0 +1,177 @@
+package ru.lisa.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ru.lisa.exception.InvalidUserDataException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Потоковое чтение файла импорта: в памяти только текущая запись. Ошибка в одной записи не прерывает
+// чтение — она возвращается в Row.error; прерывает только испорченная структура файла
+abstract class UserRecordReader {
+
+    record Row(long line, String name, String email, Integer age, String error) {
+    }
+
+    protected long line;
+
+    static UserRecordReader open(ExportFormat format, Reader reader, ObjectMapper objectMapper) throws IOException {
+        BufferedReader in = new BufferedReader(reader, 64 * 1024);
+        return format == ExportFormat.CSV ? new Csv(in) : new Ndjson(in, objectMapper);
+    }
+
+    // null — записи закончились
+    abstract Row next() throws IOException;
+
+    protected Row row(String name, String email, String age) {
+        Integer parsedAge = null;
+        if (age != null && !age.isBlank()) {
+            try {
+                parsedAge = Integer.valueOf(age.trim());
+            } catch (NumberFormatException e) {
+                return new Row(line, name, email, null, "Возраст должен быть целым числом: " + age);
+            }
+        }
+        return new Row(line, name, email, parsedAge, null);
+    }
+
+    // CSV по RFC 4180, как его пишет COPY: кавычки внутри значения удваиваются, перевод строки в кавычках —
+    // часть значения, пустое поле без кавычек — null. Лишние колонки (id, created_at выгрузки) пропускаются
+    private static final class Csv extends UserRecordReader {
+
+        private final BufferedReader in;
+        private final List<String> fields = new ArrayList<>();
+        private final StringBuilder field = new StringBuilder();
+        private final int nameIndex;
+        private final int emailIndex;
+        private final int ageIndex;
+
+        Csv(BufferedReader in) throws IOException {
+            this.in = in;
+            List<String> header = readRecord();
+            if (header == null) {
+                throw new InvalidUserDataException("Файл импорта пуст");
+            }
+            List<String> columns = new ArrayList<>(header.size());
+            for (String column : header) {
+                columns.add(column == null ? "" : column.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT));
+            }
+            nameIndex = columnIndex(columns, "name");
+            emailIndex = columnIndex(columns, "email");
+            ageIndex = columnIndex(columns, "age");
+        }
+
+        @Override
+        Row next() throws IOException {
+            List<String> values;
+            do {
+                values = readRecord();
+            } while (values != null && values.size() == 1 && values.get(0) == null);
+            if (values == null) {
+                return null;
+            }
+            line++;
+            return row(value(values, nameIndex), value(values, emailIndex), value(values, ageIndex));
+        }
+
+        private List<String> readRecord() throws IOException {
+            int c = in.read();
+            if (c == -1) {
+                return null;
+            }
+            fields.clear();
+            field.setLength(0);
+            boolean inQuotes = false;
+            boolean quoted = false;
+            while (true) {
+                if (inQuotes) {
+                    if (c == -1) {
+                        throw new InvalidUserDataException("Незакрытая кавычка в записи " + (line + 1));
+                    }
+                    if (c == '"') {
+                        c = in.read();
+                        if (c != '"') {
+                            inQuotes = false;
+                            continue;
+                        }
+                    }
+                    field.append((char) c);
+                } else if (c == '"') {
+                    inQuotes = true;
+                    quoted = true;
+                } else if (c == ',') {
+                    endField(quoted);
+                    quoted = false;
+                } else if (c == '\n' || c == -1) {
+                    endField(quoted);
+                    return fields;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = in.read();
+            }
+        }
+
+        private void endField(boolean quoted) {
+            fields.add(field.isEmpty() && !quoted ? null : field.toString());
+            field.setLength(0);
+        }
+
+        private static int columnIndex(List<String> columns, String name) {
+            int index = columns.indexOf(name);
+            if (index < 0) {
+                throw new InvalidUserDataException("В заголовке CSV нет колонки " + name);
+            }
+            return index;
+        }
+
+        private static String value(List<String> values, int index) {
+            return index < values.size() ? values.get(index) : null;
+        }
+    }
+
+    // NDJSON: один объект на строку, лишние поля пропускаются
+    private static final class Ndjson extends UserRecordReader {
+
+        private final BufferedReader in;
+        private final ObjectMapper objectMapper;
+
+        Ndjson(BufferedReader in, ObjectMapper objectMapper) {
+            this.in = in;
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        Row next() throws IOException {
+            String text;
+            do {
+                text = in.readLine();
+            } while (text != null && text.isBlank());
+            if (text == null) {
+                return null;
+            }
+            line++;
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(text);
+            } catch (JsonProcessingException e) {
+                node = null;
+            }
+            if (node == null || !node.isObject()) {
+                return new Row(line, null, null, null, "Строка не является JSON-объектом");
+            }
+            return row(text(node, "name"), text(node, "email"), text(node, "age"));
+        }
+
+        private static String text(JsonNode node, String field) {
+            JsonNode value = node.get(field);
+            return value == null || value.isNull() ? null : value.asText();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package ru.lisa.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.lisa.dto.UserView;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+@Slf4j
+@Component
+public class UserCache implements MeterBinder {
+
+    private final boolean enabled;
+    private final Cache<Long, UserView> byId;
+    private final Cache<String, UserView> byEmail;
+    // email, под которыми пользователь лежит в byEmail. Событие UPDATED несёт только новый email,
+    // и без этого индекса другие реплики отдавали бы пользователя по старому адресу до истечения ttl
+    private final Cache<Long, Set<String>> emailsById;
+
+    public UserCache(@Value("${user.cache.enabled:true}") boolean enabled,
+                     @Value("${user.cache.max-size:100000}") long maxSize,
+                     @Value("${user.cache.ttl:5m}") Duration ttl) {
+        this.enabled = enabled;
+        this.byId = newCache(maxSize, ttl);
+        this.byEmail = newCache(maxSize, ttl);
+        this.emailsById = newCache(maxSize, ttl);
+        log.info("Кэш пользователей {}: maxSize={}, ttl={}", enabled ? "включён" : "выключен", maxSize, ttl);
+    }
+
+    private static <K, V> Cache<K, V> newCache(long maxSize, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public Optional<UserView> getById(Long id, Function<Long, Optional<UserView>> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        // отсутствующих пользователей не кэшируем: null из функции загрузки не сохраняется
+        return Optional.ofNullable(byId.get(id, key -> loader.apply(key).orElse(null)));
+    }
+
+    public Optional<UserView> getByEmail(String email, Function<String, Optional<UserView>> loader) {
+        if (!enabled) {
+            return loader.apply(email);
+        }
+        return Optional.ofNullable(byEmail.get(email, key -> {
+            UserView user = loader.apply(key).orElse(null);
+            if (user != null) {
+                // compute — запись: срок индекса продлевается до срока самой новой записи byEmail
+                emailsById.asMap().compute(user.id(), (id, emails) -> {
+                    Set<String> updated = emails != null ? emails : ConcurrentHashMap.newKeySet();
+                    updated.add(key);
+                    return updated;
+                });
+            }
+            return user;
+        }));
+    }
+
+    // вместе с id вытесняются все email, под которыми этот пользователь был закэширован
+    public void evict(Long id, String... emails) {
+        if (id != null) {
+            byId.invalidate(id);
+            Set<String> cachedEmails = emailsById.asMap().remove(id);
+            if (cachedEmails != null) {
+                byEmail.invalidateAll(cachedEmails);
+            }
+        }
+        for (String email : emails) {
+            if (email != null) {
+                byEmail.invalidate(email);
+            }
+        }
+    }
+
+    // Повторная инвалидация после коммита: иначе конкурентное чтение до коммита вернёт в кэш старое значение
+    public void evictAfterCommit(Long id, String... emails) {
+        evict(id, emails);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(id, emails);
+                }
+            });
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, byId, "users.by-id");
+        CaffeineCacheMetrics.monitor(registry, byEmail, "users.by-email");
+        CaffeineCacheMetrics.monitor(registry, emailsById, "users.emails-by-id");
+    }
+}
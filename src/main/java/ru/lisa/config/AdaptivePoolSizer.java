@@ -0,0 +1,126 @@
+package ru.lisa.config;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+// Включается профилем perf (или user.db.pool.adaptive.enabled=true): размер пула Hikari выводится из наблюдаемой
+// конкурентности. Раз в sample-interval снимается active + pending с запасом headroom в пределах
+// [min-size, spring.datasource.hikari.maximum-pool-size]. Рост — на первом же замере с ожидающими потоками,
+// уменьшение — только по итогам окна (пик окна) и не больше половины разницы, чтобы пул не «пилило» на всплесках
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "user.db.pool.adaptive.enabled", havingValue = "true")
+public class AdaptivePoolSizer implements MeterBinder {
+
+    private final HikariConfigMXBean config;
+    private final Supplier<HikariPoolMXBean> pool;
+    private final int minSize;
+    private final int maxSize;
+    private final double headroom;
+    private final int windowSamples;
+
+    private int samples;
+    private int windowPeak;
+    private volatile int targetSize;
+
+    @Autowired
+    public AdaptivePoolSizer(DataSource dataSource,
+                             @Value("${user.db.pool.adaptive.min-size:4}") int minSize,
+                             @Value("${spring.datasource.hikari.maximum-pool-size:10}") int maxSize,
+                             @Value("${user.db.pool.adaptive.headroom:1.25}") double headroom,
+                             @Value("${user.db.pool.adaptive.sample-interval:1s}") Duration sampleInterval,
+                             @Value("${user.db.pool.adaptive.window:30s}") Duration window) throws SQLException {
+        // DataSource может быть обёрнут в GatedDataSource; unwrap доходит до HikariDataSource
+        this(dataSource.unwrap(HikariDataSource.class), minSize, maxSize, headroom,
+                (int) Math.max(1, window.toMillis() / sampleInterval.toMillis()));
+    }
+
+    private AdaptivePoolSizer(HikariDataSource hikari, int minSize, int maxSize, double headroom, int windowSamples) {
+        // MXBean пула появляется только после старта пула, поэтому берётся при каждом замере
+        this(hikari, hikari::getHikariPoolMXBean, minSize, maxSize, headroom, windowSamples);
+    }
+
+    AdaptivePoolSizer(HikariConfigMXBean config, Supplier<HikariPoolMXBean> pool,
+                      int minSize, int maxSize, double headroom, int windowSamples) {
+        if (minSize <= 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("user.db.pool.adaptive.min-size должен быть в диапазоне 1.." + maxSize);
+        }
+        if (headroom < 1.0) {
+            throw new IllegalArgumentException("user.db.pool.adaptive.headroom не может быть меньше 1");
+        }
+        this.config = config;
+        this.pool = pool;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.headroom = headroom;
+        this.windowSamples = windowSamples;
+        this.targetSize = config.getMaximumPoolSize();
+        log.info("Адаптивный размер пула включён: {}..{} соединений, запас {}, окно {} замеров",
+                minSize, maxSize, headroom, windowSamples);
+    }
+
+    @Scheduled(fixedRateString = "${user.db.pool.adaptive.sample-interval:1s}")
+    public void sample() {
+        HikariPoolMXBean poolBean = pool.get();
+        if (poolBean == null) {
+            return;
+        }
+        int pending = poolBean.getThreadsAwaitingConnection();
+        int concurrency = poolBean.getActiveConnections() + pending;
+        windowPeak = Math.max(windowPeak, concurrency);
+        // потоки уже ждут соединение — пул мал сейчас, ждать конца окна значит копить таймауты
+        if (pending > 0 && wanted(concurrency) > config.getMaximumPoolSize()) {
+            resize(concurrency);
+        }
+        if (++samples >= windowSamples) {
+            resize(windowPeak);
+            samples = 0;
+            windowPeak = 0;
+        }
+    }
+
+    void resize(int peakConcurrency) {
+        int current = config.getMaximumPoolSize();
+        int wanted = wanted(peakConcurrency);
+        int next = wanted >= current ? wanted : Math.max(wanted, current - Math.max(1, (current - wanted) / 2));
+        targetSize = next;
+        if (next != current) {
+            // minimumIdle выше максимума Hikari не поддерживает: держим его не больше нового размера
+            if (config.getMinimumIdle() > next) {
+                config.setMinimumIdle(next);
+            }
+            config.setMaximumPoolSize(next);
+            log.info("Размер пула изменён: {} -> {} (пик конкурентности за окно {})", current, next, peakConcurrency);
+        }
+    }
+
+    private int wanted(int concurrency) {
+        return Math.min(maxSize, Math.max(minSize, (int) Math.ceil(concurrency * headroom)));
+    }
+
+    public int targetSize() {
+        return targetSize;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("user.db.pool.target-size", this, AdaptivePoolSizer::targetSize)
+                .description("Размер пула соединений, выбранный по наблюдаемой конкурентности")
+                .register(registry);
+    }
+}
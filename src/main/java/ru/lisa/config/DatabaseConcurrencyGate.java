@@ -0,0 +1,69 @@
+package ru.lisa.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Ограничивает число одновременно занятых соединений с БД. Без него при виртуальных потоках
+// тысячи запросов одновременно встают в очередь пула Hikari и ждут там весь connectionTimeout;
+// здесь ожидание короче и честное (FIFO), а лишние запросы быстро получают отказ
+@Slf4j
+public class DatabaseConcurrencyGate implements MeterBinder {
+
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final Duration maxWait;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public DatabaseConcurrencyGate(int maxConcurrent, Duration maxWait) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("user.db.gate.max-concurrent должен быть положительным");
+        }
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.maxWait = maxWait;
+        log.info("Ограничитель обращений к БД включён: maxConcurrent={}, maxWait={}", maxConcurrent, maxWait);
+    }
+
+    public void acquire() throws SQLTransientConnectionException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Ожидание соединения с БД прервано", e);
+        }
+        if (!acquired) {
+            rejected.incrementAndGet();
+            throw new SQLTransientConnectionException(
+                    "Все " + maxConcurrent + " соединений с БД заняты дольше " + maxWait.toMillis() + " мс");
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int inUse() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("user.db.gate.in-use", this, DatabaseConcurrencyGate::inUse)
+                .description("Занятые разрешения на соединение с БД")
+                .register(registry);
+        Gauge.builder("user.db.gate.waiting", permits, Semaphore::getQueueLength)
+                .description("Потоки, ожидающие разрешения на соединение с БД")
+                .register(registry);
+        FunctionCounter.builder("user.db.gate.rejected", rejected, AtomicLong::get).register(registry);
+    }
+}
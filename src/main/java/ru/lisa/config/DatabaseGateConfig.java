@@ -0,0 +1,39 @@
+package ru.lisa.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+// Включается профилем virtual-threads (или user.db.gate.enabled=true): оборачивает DataSource в GatedDataSource
+@Configuration
+@ConditionalOnProperty(name = "user.db.gate.enabled", havingValue = "true")
+public class DatabaseGateConfig {
+
+    // по умолчанию разрешений столько же, сколько соединений в пуле Hikari
+    @Bean
+    public DatabaseConcurrencyGate databaseConcurrencyGate(
+            @Value("${user.db.gate.max-concurrent:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrent,
+            @Value("${user.db.gate.max-wait:2s}") Duration maxWait) {
+        return new DatabaseConcurrencyGate(maxConcurrent, maxWait);
+    }
+
+    // static: пост-процессор создаётся раньше остальных бинов; ограничитель берётся лениво при первом соединении
+    @Bean
+    public static BeanPostProcessor gatedDataSourcePostProcessor(ObjectProvider<DatabaseConcurrencyGate> gate) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof GatedDataSource)) {
+                    return new GatedDataSource(dataSource, gate::getObject);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package ru.lisa.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+// DataSource, который берёт разрешение у DatabaseConcurrencyGate до получения соединения из пула
+// и возвращает его при close() соединения (то есть по завершении транзакции)
+public class GatedDataSource extends DelegatingDataSource {
+
+    private final Supplier<DatabaseConcurrencyGate> gate;
+
+    public GatedDataSource(DataSource targetDataSource, Supplier<DatabaseConcurrencyGate> gate) {
+        super(targetDataSource);
+        this.gate = gate;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return gated(() -> super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return gated(() -> super.getConnection(username, password));
+    }
+
+    private Connection gated(ConnectionSource source) throws SQLException {
+        DatabaseConcurrencyGate currentGate = gate.get();
+        currentGate.acquire();
+        Connection connection;
+        try {
+            connection = source.get();
+        } catch (SQLException | RuntimeException e) {
+            currentGate.release();
+            throw e;
+        }
+        return releasingOnClose(connection, currentGate);
+    }
+
+    private static Connection releasingOnClose(Connection connection, DatabaseConcurrencyGate gate) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                        try {
+                            connection.close();
+                        } finally {
+                            // повторный close() не должен освобождать разрешение второй раз
+                            if (released.compareAndSet(false, true)) {
+                                gate.release();
+                            }
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection get() throws SQLException;
+    }
+}
@@ -0,0 +1,83 @@
+package ru.lisa.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.listener.ContainerProperties.AckMode;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.time.Duration;
+import java.util.Map;
+
+// Включается user.events.consumer.enabled=true: пакетный слушатель user-events (UserEventBatchListener)
+// с ручным коммитом офсетов и DLT <topic>.DLT
+@Configuration
+@ConditionalOnProperty(name = "user.events.consumer.enabled", havingValue = "true")
+public class KafkaConsumerConfig {
+
+    // Десериализаторы и коммит задаём явно, как и для producer'а: формат значения определяет UserEventSerializer
+    @Bean
+    public ConsumerFactory<String, byte[]> userEventConsumerFactory(KafkaProperties kafkaProperties,
+                                                                    ObjectProvider<SslBundles> sslBundles,
+                                                                    ObjectProvider<MeterRegistry> meterRegistry,
+                                                                    @Value("${user.events.consumer.max-poll-records:500}") int maxPollRecords) {
+        Map<String, Object> properties = kafkaProperties.buildConsumerProperties(sslBundles.getIfAvailable());
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        DefaultKafkaConsumerFactory<String, byte[]> factory = new DefaultKafkaConsumerFactory<>(
+                properties, new StringDeserializer(), new ByteArrayDeserializer());
+        meterRegistry.ifAvailable(registry -> factory.addListener(new MicrometerConsumerListener<>(registry)));
+        return factory;
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> userEventBatchListenerFactory(
+            ConsumerFactory<String, byte[]> userEventConsumerFactory,
+            @Value("${user.events.consumer.concurrency:1}") int concurrency,
+            @Value("${user.events.consumer.redelivery-backoff:5s}") Duration redeliveryBackoff) {
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(userEventConsumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(concurrency);
+        factory.getContainerProperties().setAckMode(AckMode.MANUAL);
+        // пачка, которую не удалось довести до конца (DLT недоступен), повторяется целиком без потери записей;
+        // consumer на это время на паузе, но остаётся в группе
+        factory.setCommonErrorHandler(new DefaultErrorHandler(
+                new FixedBackOff(redeliveryBackoff.toMillis(), FixedBackOff.UNLIMITED_ATTEMPTS)));
+        return factory;
+    }
+
+    // запись уходит в ту же партицию <topic>.DLT с исходными заголовками и описанием ошибки в kafka_dlt-*
+    @Bean
+    public DeadLetterPublishingRecoverer userEventDeadLetterRecoverer(KafkaTemplate<String, byte[]> kafkaTemplate) {
+        return new DeadLetterPublishingRecoverer(kafkaTemplate);
+    }
+
+    // партиций столько же, сколько у user-events: DeadLetterPublishingRecoverer пишет в партицию исходной записи
+    @Bean
+    public NewTopic userEventsDeadLetterTopic(@Value("${topic.name:user-events}") String name,
+                                             @Value("${topic.partitions:12}") int partitions,
+                                             @Value("${topic.replicas:1}") short replicas) {
+        return TopicBuilder.name(name + ".DLT")
+                .partitions(partitions)
+                .replicas(replicas)
+                .build();
+    }
+}
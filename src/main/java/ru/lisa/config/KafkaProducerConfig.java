@@ -0,0 +1,37 @@
+package ru.lisa.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
+import org.springframework.kafka.core.ProducerFactory;
+
+@Configuration
+public class KafkaProducerConfig {
+
+    // Сериализаторы задаём явно: формат значения определяет UserEventSerializer, а не настройки config-server
+    @Bean
+    public ProducerFactory<String, byte[]> userEventProducerFactory(KafkaProperties kafkaProperties,
+                                                                    ObjectProvider<SslBundles> sslBundles,
+                                                                    ObjectProvider<MeterRegistry> meterRegistry) {
+        DefaultKafkaProducerFactory<String, byte[]> factory = new DefaultKafkaProducerFactory<>(
+                kafkaProperties.buildProducerProperties(sslBundles.getIfAvailable()),
+                new StringSerializer(),
+                new ByteArraySerializer());
+        // фабрика своя, поэтому метрики клиента (kafka.producer.*) actuator сам не подключит
+        meterRegistry.ifAvailable(registry -> factory.addListener(new MicrometerProducerListener<>(registry)));
+        return factory;
+    }
+
+    @Bean
+    public KafkaTemplate<String, byte[]> kafkaTemplate(ProducerFactory<String, byte[]> userEventProducerFactory) {
+        return new KafkaTemplate<>(userEventProducerFactory);
+    }
+}
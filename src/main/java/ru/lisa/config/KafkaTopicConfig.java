@@ -1,6 +1,7 @@
 package ru.lisa.config;
 
 import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.TopicBuilder;
@@ -8,11 +9,15 @@ import org.springframework.kafka.config.TopicBuilder;
 @Configuration
 public class KafkaTopicConfig {
 
+    // Увеличение числа партиций у существующего топика KafkaAdmin применит сам,
+    // но ключи перераспределятся: порядок по пользователю гарантирован только в пределах одной конфигурации
     @Bean
-    public NewTopic userEventsTopic() {
-        return TopicBuilder.name("user-events")
-                .partitions(1)
-                .replicas(1)
+    public NewTopic userEventsTopic(@Value("${topic.name:user-events}") String name,
+                                    @Value("${topic.partitions:12}") int partitions,
+                                    @Value("${topic.replicas:1}") short replicas) {
+        return TopicBuilder.name(name)
+                .partitions(partitions)
+                .replicas(replicas)
                 .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,17 @@
+package ru.lisa.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// @Timed на сервисах работает только через TimedAspect; http.server.requests, пул Hikari,
+// статистику Hibernate и клиент Kafka actuator снимает сам
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
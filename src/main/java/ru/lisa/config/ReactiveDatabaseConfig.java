@@ -0,0 +1,22 @@
+package ru.lisa.config;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+// R2dbcTransactionManager намеренно не регистрируется бином: JPA и OutboxRelay получают
+// PlatformTransactionManager по типу, а реактивному сервису достаточно TransactionalOperator
+@Configuration
+@Profile("reactive")
+public class ReactiveDatabaseConfig {
+
+    @Bean
+    public TransactionalOperator reactiveTransactionalOperator(ConnectionFactory connectionFactory) {
+        R2dbcTransactionManager transactionManager = new R2dbcTransactionManager(connectionFactory);
+        transactionManager.afterPropertiesSet();
+        return TransactionalOperator.create(transactionManager);
+    }
+}
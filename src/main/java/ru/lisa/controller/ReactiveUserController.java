@@ -0,0 +1,187 @@
+package ru.lisa.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.context.annotation.Profile;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.lisa.dto.UserModel;
+import ru.lisa.entity.User;
+import ru.lisa.exception.UserNotFoundException;
+import ru.lisa.service.ReactiveUserService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Тот же контракт /api/users, что у UserController, но на WebFlux + R2DBC (профиль reactive).
+// Пакетные операции /batch здесь не реализованы: они остаются в блокирующем варианте
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/users")
+@Tag(name = "Users", description = "Операции управления пользователями")
+public class ReactiveUserController {
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
+    private final ReactiveUserService userService;
+    private final UserLinks userLinks;
+
+    public ReactiveUserController(ReactiveUserService userService, UserLinks userLinks) {
+        this.userService = userService;
+        this.userLinks = userLinks;
+    }
+
+    @PostMapping
+    @Operation(summary = "Создать нового пользователя")
+    @ApiResponse(responseCode = "200", description = "Пользователь успешно создан",
+            content = @Content(schema = @Schema(implementation = UserModel.class)))
+    public Mono<ResponseEntity<EntityModel<UserModel>>> createUser(@RequestBody UserModel request,
+                                                                   ServerHttpRequest httpRequest) {
+        return userService.createUser(request.getName(), request.getEmail(), request.getAge())
+                .map(user -> ResponseEntity.ok().eTag(UserController.eTag(user))
+                        .body(UserController.toEntityModel(user, links(httpRequest))));
+    }
+
+    @PutMapping
+    @Operation(summary = "Обновить существующего пользователя")
+    @ApiResponse(responseCode = "200", description = "Пользователь успешно обновлён")
+    @ApiResponse(responseCode = "412", description = "Пользователь изменён после получения ETag из If-Match")
+    public Mono<ResponseEntity<EntityModel<UserModel>>> updateUser(
+            @RequestBody UserModel dto,
+            @Parameter(description = "ETag, полученный при чтении; без него обновление безусловное")
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            ServerHttpRequest httpRequest) {
+
+        return Mono.defer(() -> userService.updateUser(dto.getId(), UserController.parseIfMatch(ifMatch),
+                        dto.getName(), dto.getEmail(), dto.getAge()))
+                .map(user -> ResponseEntity.ok().eTag(UserController.eTag(user))
+                        .body(UserController.toEntityModel(user, links(httpRequest))));
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Получить пользователя по ID")
+    @ApiResponse(responseCode = "200", description = "Пользователь найден",
+            content = @Content(schema = @Schema(implementation = UserModel.class)))
+    @ApiResponse(responseCode = "304", description = "Пользователь не изменился с версии из If-None-Match")
+    public Mono<ResponseEntity<EntityModel<UserModel>>> getUserById(
+            @Parameter(description = "ID пользователя", required = true) @PathVariable Long id,
+            @Parameter(description = "Добавлять ли HATEOAS-ссылки в ответ")
+            @RequestParam(name = "links", defaultValue = "true") boolean withLinks,
+            ServerWebExchange exchange) {
+
+        return userService.getUserById(id)
+                .switchIfEmpty(Mono.error(() -> UserNotFoundException.byId(id)))
+                .map(user -> {
+                    String eTag = UserController.eTag(user, withLinks);
+                    // при совпадении If-None-Match модель и ссылки не строим
+                    if (exchange.checkNotModified(eTag)) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+                    }
+                    return ResponseEntity.ok().eTag(eTag)
+                            .body(UserController.toEntityModel(user, withLinks ? links(exchange.getRequest()) : null));
+                });
+    }
+
+    @GetMapping("/by-email")
+    @Operation(summary = "Получить пользователя по email")
+    @ApiResponse(responseCode = "200", description = "Пользователь найден",
+            content = @Content(schema = @Schema(implementation = UserModel.class)))
+    public Mono<EntityModel<UserModel>> getUserByEmail(
+            @Parameter(description = "Email пользователя", required = true) @RequestParam String email,
+            @Parameter(description = "Добавлять ли HATEOAS-ссылки в ответ")
+            @RequestParam(name = "links", defaultValue = "true") boolean withLinks,
+            ServerHttpRequest httpRequest) {
+
+        return userService.getUserByEmail(email)
+                .switchIfEmpty(Mono.error(() -> UserNotFoundException.byEmail(email)))
+                .map(user -> UserController.toEntityModel(user, withLinks ? links(httpRequest) : null));
+    }
+
+    @GetMapping
+    @Operation(summary = "Получить страницу пользователей (keyset-пагинация по ID)")
+    public Mono<CollectionModel<EntityModel<UserModel>>> getAllUsers(
+            @Parameter(description = "ID последнего пользователя предыдущей страницы")
+            @RequestParam(required = false) Long after,
+            @Parameter(description = "Размер страницы (по умолчанию " + DEFAULT_PAGE_SIZE + ")")
+            @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Добавлять ли HATEOAS-ссылки")
+            @RequestParam(name = "links", defaultValue = "true") boolean withLinks,
+            ServerHttpRequest httpRequest) {
+
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        UserLinks.RequestLinks links = withLinks ? links(httpRequest) : null;
+        return userService.getUsers(after, pageSize)
+                .collectList()
+                .map(users -> {
+                    List<EntityModel<UserModel>> models = new ArrayList<>(users.size());
+                    for (User user : users) {
+                        UserModel model = UserController.toUserModel(user);
+                        models.add(links != null ? EntityModel.of(model, links.self(user.getId())) : EntityModel.of(model));
+                    }
+                    if (links == null) {
+                        return CollectionModel.of(models);
+                    }
+                    List<Link> pageLinks = new ArrayList<>(2);
+                    pageLinks.add(links.page(after, limit, IanaLinkRelations.SELF));
+                    if (users.size() == pageSize) {
+                        pageLinks.add(links.page(users.get(users.size() - 1).getId(), limit, IanaLinkRelations.NEXT));
+                    }
+                    return CollectionModel.of(models, pageLinks);
+                });
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Потоковая выгрузка всех пользователей в формате NDJSON")
+    public Flux<UserModel> streamUsers(
+            @Parameter(description = "Начать с пользователей, у которых ID больше указанного")
+            @RequestParam(required = false) Long after) {
+
+        return userService.streamUsers(after).map(UserController::toUserModel);
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Удалить пользователя по ID")
+    @ApiResponse(responseCode = "204", description = "Пользователь успешно удалён")
+    public Mono<ResponseEntity<Void>> deleteUser(
+            @Parameter(description = "ID пользователя", required = true) @PathVariable Long id) {
+
+        return userService.deleteUser(id)
+                .flatMap(deleted -> deleted
+                        ? Mono.just(ResponseEntity.noContent().<Void>build())
+                        : Mono.error(UserNotFoundException.byId(id)));
+    }
+
+    private UserLinks.RequestLinks links(ServerHttpRequest request) {
+        String baseUri = UriComponentsBuilder.fromUri(request.getURI())
+                .replacePath(request.getPath().contextPath().value())
+                .replaceQuery(null)
+                .fragment(null)
+                .toUriString();
+        return userLinks.forBaseUri(baseUri);
+    }
+}
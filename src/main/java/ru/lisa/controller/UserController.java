@@ -1,13 +1,22 @@
 package ru.lisa.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -15,109 +24,302 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import ru.lisa.admission.LongRunning;
+import ru.lisa.bulk.ExportCompression;
+import ru.lisa.bulk.ExportFormat;
+import ru.lisa.bulk.ExportWatermark;
+import ru.lisa.bulk.ImportJob;
+import ru.lisa.bulk.UserExporter;
+import ru.lisa.bulk.UserImportJobs;
+import ru.lisa.dto.BatchItemResult;
+import ru.lisa.dto.ImportJobStatus;
 import ru.lisa.dto.UserModel;
+import ru.lisa.dto.UserView;
 import ru.lisa.entity.User;
+import ru.lisa.exception.ImportJobNotFoundException;
+import ru.lisa.exception.InvalidRequestException;
+import ru.lisa.exception.UserNotFoundException;
+import ru.lisa.repository.UserSearchCriteria;
+import ru.lisa.repository.UserSearchCriteria.SortField;
+import ru.lisa.service.UserSearchCursor;
 import ru.lisa.service.UserService;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
-
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/users")
 @Tag(name = "Users", description = "Операции управления пользователями")
 public class UserController {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    // createdAfter для следующей инкрементальной выгрузки: верхняя граница created_at этой
+    private static final String EXPORT_NEXT_CREATED_AFTER = "X-Export-Next-Created-After";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 100;
+    private static final String WITHOUT_LINKS_SUFFIX = "-n";
+
     private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final UserLinks userLinks;
+    private final UserExporter userExporter;
+    private final UserImportJobs userImportJobs;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ObjectMapper objectMapper, UserLinks userLinks,
+                          UserExporter userExporter, UserImportJobs userImportJobs) {
         this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.userLinks = userLinks;
+        this.userExporter = userExporter;
+        this.userImportJobs = userImportJobs;
     }
 
     @PostMapping
     @Operation(summary = "Создать нового пользователя")
     @ApiResponse(responseCode = "200", description = "Пользователь успешно создан",
             content = @Content(schema = @Schema(implementation = UserModel.class)))
+    @ApiResponse(responseCode = "422", description = "Idempotency-Key уже использован с другими данными")
     public ResponseEntity<EntityModel<UserModel>> createUser(
             @io.swagger.v3.oas.annotations.parameters.RequestBody(
                     description = "Данные нового пользователя", required = true
             )
-            @RequestBody UserModel request) {
-
-        Long userId = userService.createUser(request.getName(), request.getEmail(), request.getAge());
-        User user = userService.getUserById(userId)
-                .orElseThrow(() -> new RuntimeException("Созданный пользователь не найден"));
-        UserModel userModel = toUserModel(user);
+            @RequestBody UserModel request,
+            @Parameter(description = "Ключ идемпотентности: повтор с тем же ключом вернёт ответ на первый запрос")
+            @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
 
-        EntityModel<UserModel> model = EntityModel.of(userModel,
-                linkTo(methodOn(UserController.class).getUserById(userId)).withSelfRel(),
-                linkTo(methodOn(UserController.class).getAllUsers()).withRel("all-users")
-        );
-        return ResponseEntity.ok(model);
+        if (idempotencyKey != null) {
+            UserView user = userService.createUser(parseIdempotencyKey(idempotencyKey),
+                    request.getName(), request.getEmail(), request.getAge());
+            return ResponseEntity.ok().eTag(eTag(user)).body(toEntityModel(user, userLinks.forCurrentRequest()));
+        }
+        User user = userService.createUser(request.getName(), request.getEmail(), request.getAge());
+        return ResponseEntity.ok().eTag(eTag(user)).body(toEntityModel(user, userLinks.forCurrentRequest()));
     }
 
     @PutMapping
     @Operation(summary = "Обновить существующего пользователя")
     @ApiResponse(responseCode = "200", description = "Пользователь успешно обновлён")
+    @ApiResponse(responseCode = "412", description = "Пользователь изменён после получения ETag из If-Match")
     public ResponseEntity<EntityModel<UserModel>> updateUser(
             @io.swagger.v3.oas.annotations.parameters.RequestBody(
                     description = "Обновлённые данные пользователя", required = true
             )
-            @RequestBody UserModel dto) {
+            @RequestBody UserModel dto,
+            @Parameter(description = "ETag, полученный при чтении; без него обновление безусловное")
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
-        userService.updateUser(dto.getId(), dto.getName(), dto.getEmail(), dto.getAge());
-        User updatedUser = userService.getUserById(dto.getId())
-                .orElseThrow(() -> new RuntimeException("Обновлённый пользователь не найден"));
-        UserModel userModel = toUserModel(updatedUser);
-
-        EntityModel<UserModel> model = EntityModel.of(userModel,
-                linkTo(methodOn(UserController.class).getUserById(dto.getId())).withSelfRel(),
-                linkTo(methodOn(UserController.class).getAllUsers()).withRel("all-users")
-        );
-        return ResponseEntity.ok(model);
+        User updatedUser = userService.updateUser(dto.getId(), parseIfMatch(ifMatch),
+                dto.getName(), dto.getEmail(), dto.getAge());
+        return ResponseEntity.ok().eTag(eTag(updatedUser)).body(toEntityModel(updatedUser, userLinks.forCurrentRequest()));
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Получить пользователя по ID")
     @ApiResponse(responseCode = "200", description = "Пользователь найден",
             content = @Content(schema = @Schema(implementation = UserModel.class)))
+    @ApiResponse(responseCode = "304", description = "Пользователь не изменился с версии из If-None-Match")
     @ApiResponse(responseCode = "404", description = "Пользователь не найден")
     public ResponseEntity<EntityModel<UserModel>> getUserById(
-            @Parameter(description = "ID пользователя", required = true) @PathVariable Long id) {
+            @Parameter(description = "ID пользователя", required = true) @PathVariable Long id,
+            @Parameter(description = "Добавлять ли HATEOAS-ссылки в ответ")
+            @RequestParam(name = "links", defaultValue = "true") boolean withLinks,
+            WebRequest webRequest) {
 
-        User user = userService.getUserById(id)
-                .orElseThrow(() -> new RuntimeException("Пользователь с ID " + id + " не найден"));
-        UserModel userModel = toUserModel(user);
+        UserView user = userService.getUserById(id)
+                .orElseThrow(() -> UserNotFoundException.byId(id));
+        String eTag = eTag(user, withLinks);
+        // при совпадении If-None-Match ответ 304 уже выставлен: модель и ссылки не строим
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(toEntityModel(user, withLinks ? userLinks.forCurrentRequest() : null));
+    }
 
-        EntityModel<UserModel> model = EntityModel.of(userModel,
-                linkTo(methodOn(UserController.class).getUserById(id)).withSelfRel(),
-                linkTo(methodOn(UserController.class).getAllUsers()).withRel("all-users")
-        );
-        return ResponseEntity.ok(model);
+    @GetMapping("/by-email")
+    @Operation(summary = "Получить пользователя по email")
+    @ApiResponse(responseCode = "200", description = "Пользователь найден",
+            content = @Content(schema = @Schema(implementation = UserModel.class)))
+    @ApiResponse(responseCode = "404", description = "Пользователь не найден")
+    public ResponseEntity<EntityModel<UserModel>> getUserByEmail(
+            @Parameter(description = "Email пользователя", required = true) @RequestParam String email,
+            @Parameter(description = "Добавлять ли HATEOAS-ссылки в ответ")
+            @RequestParam(name = "links", defaultValue = "true") boolean withLinks) {
+
+        UserView user = userService.getUserByEmail(email)
+                .orElseThrow(() -> UserNotFoundException.byEmail(email));
+        return ResponseEntity.ok(toEntityModel(user, withLinks ? userLinks.forCurrentRequest() : null));
     }
 
     @GetMapping
-    @Operation(summary = "Получить всех пользователей")
-    @ApiResponse(responseCode = "200", description = "Список пользователей",
+    @Operation(summary = "Получить страницу пользователей (keyset-пагинация по ID)")
+    @ApiResponse(responseCode = "200", description = "Страница пользователей",
             content = @Content(array = @io.swagger.v3.oas.annotations.media.ArraySchema(
                     schema = @Schema(implementation = UserModel.class))))
-    public ResponseEntity<CollectionModel<EntityModel<UserModel>>> getAllUsers() {
+    public ResponseEntity<CollectionModel<EntityModel<UserModel>>> getAllUsers(
+            @Parameter(description = "ID последнего пользователя предыдущей страницы")
+            @RequestParam(required = false) Long after,
+            @Parameter(description = "Размер страницы (по умолчанию " + DEFAULT_PAGE_SIZE + ")")
+            @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Добавлять ли HATEOAS-ссылки; без них курсор следующей страницы — ID последнего элемента")
+            @RequestParam(name = "links", defaultValue = "true") boolean withLinks) {
 
-        List<User> users = userService.getAllUsers();
-        List<EntityModel<UserModel>> models = users.stream()
-                .map(this::toUserModel)
-                .map(userModel -> EntityModel.of(userModel,
-                        linkTo(methodOn(UserController.class).getUserById(userModel.getId())).withSelfRel()))
-                .collect(Collectors.toList());
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        List<UserView> users = userService.getUsers(after, pageSize);
+        if (!withLinks) {
+            List<EntityModel<UserModel>> models = new ArrayList<>(users.size());
+            for (UserView user : users) {
+                models.add(EntityModel.of(toUserModel(user)));
+            }
+            return ResponseEntity.ok(CollectionModel.of(models));
+        }
 
-        CollectionModel<EntityModel<UserModel>> collectionModel = CollectionModel.of(models,
-                linkTo(methodOn(UserController.class).getAllUsers()).withSelfRel()
-        );
-        return ResponseEntity.ok(collectionModel);
+        UserLinks.RequestLinks links = userLinks.forCurrentRequest();
+        List<EntityModel<UserModel>> models = new ArrayList<>(users.size());
+        for (UserView user : users) {
+            models.add(EntityModel.of(toUserModel(user), links.self(user.id())));
+        }
+
+        List<Link> pageLinks = new ArrayList<>(2);
+        pageLinks.add(links.page(after, limit, IanaLinkRelations.SELF));
+        if (users.size() == pageSize) {
+            Long lastId = users.get(users.size() - 1).id();
+            pageLinks.add(links.page(lastId, limit, IanaLinkRelations.NEXT));
+        }
+        return ResponseEntity.ok(CollectionModel.of(models, pageLinks));
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Поиск пользователей по фильтрам (keyset-пагинация по курсору)")
+    @ApiResponse(responseCode = "200", description = "Страница найденных пользователей; ссылка next содержит курсор следующей страницы")
+    public ResponseEntity<CollectionModel<EntityModel<UserModel>>> searchUsers(
+            @Parameter(description = "Начало имени без учёта регистра")
+            @RequestParam(required = false) String namePrefix,
+            @Parameter(description = "Минимальный возраст (включительно)")
+            @RequestParam(required = false) Integer minAge,
+            @Parameter(description = "Максимальный возраст (включительно)")
+            @RequestParam(required = false) Integer maxAge,
+            @Parameter(description = "Создан не раньше (ISO-8601, включительно)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @Parameter(description = "Создан раньше (ISO-8601, не включительно)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+            @Parameter(description = "Поле сортировки: ID, NAME или CREATED_AT")
+            @RequestParam(defaultValue = "ID") SortField sort,
+            @Parameter(description = "Сортировка по убыванию")
+            @RequestParam(defaultValue = "false") boolean desc,
+            @Parameter(description = "Курсор из ссылки next предыдущей страницы")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Размер страницы (по умолчанию " + DEFAULT_PAGE_SIZE + ")")
+            @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Добавлять ли ссылки self на каждого пользователя")
+            @RequestParam(name = "links", defaultValue = "true") boolean withLinks) {
+
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        UserSearchCursor after = cursor != null ? UserSearchCursor.decode(cursor, sort) : null;
+        List<UserView> users = userService.searchUsers(new UserSearchCriteria(namePrefix, minAge, maxAge,
+                createdFrom, createdTo, sort, desc,
+                after != null ? after.key() : null, after != null ? after.id() : null, pageSize));
+
+        UserLinks.RequestLinks links = withLinks ? userLinks.forCurrentRequest() : null;
+        List<EntityModel<UserModel>> models = new ArrayList<>(users.size());
+        for (UserView user : users) {
+            models.add(links != null ? EntityModel.of(toUserModel(user), links.self(user.id())) : EntityModel.of(toUserModel(user)));
+        }
+        // ссылка next нужна и без links: курсор непрозрачен, собрать его на клиенте нельзя
+        List<Link> pageLinks = new ArrayList<>(1);
+        if (users.size() == pageSize) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", UserSearchCursor.encode(sort, users.get(users.size() - 1)))
+                    .toUriString();
+            pageLinks.add(Link.of(next, IanaLinkRelations.NEXT));
+        }
+        return ResponseEntity.ok(CollectionModel.of(models, pageLinks));
+    }
+
+    @LongRunning
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Потоковая выгрузка всех пользователей в формате NDJSON")
+    @ApiResponse(responseCode = "200", description = "Пользователи, по одному JSON-объекту на строку")
+    public ResponseEntity<StreamingResponseBody> streamUsers(
+            @Parameter(description = "Начать с пользователей, у которых ID больше указанного")
+            @RequestParam(required = false) Long after) {
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                userService.streamUsers(after, user -> writeUserLine(generator, user));
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @LongRunning
+    @GetMapping("/export")
+    @Operation(summary = "Выгрузка таблицы пользователей через COPY в сжатый CSV или NDJSON")
+    @ApiResponse(responseCode = "200", description = "Файл выгрузки, строки упорядочены по ID; граница следующей " +
+            "выгрузки — в заголовке " + EXPORT_NEXT_CREATED_AFTER)
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @Parameter(description = "Формат строк") @RequestParam(defaultValue = "CSV") ExportFormat format,
+            @Parameter(description = "Сжатие") @RequestParam(defaultValue = "GZIP") ExportCompression compression,
+            @Parameter(description = "Только пользователи с ID больше указанного (продолжение прерванной выгрузки)")
+            @RequestParam(required = false) Long afterId,
+            @Parameter(description = "Только пользователи, созданные позже указанного момента (инкрементальная " +
+                    "выгрузка: значение " + EXPORT_NEXT_CREATED_AFTER + " предыдущей)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdAfter,
+            @Parameter(description = "Граница прерванной выгрузки при продолжении по afterId; по умолчанию — " +
+                    "текущий момент минус user.export.lag")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdUntil) {
+
+        ExportWatermark watermark = userExporter.watermark(afterId, createdAfter, createdUntil);
+        StreamingResponseBody body = out -> userExporter.export(format, compression, watermark, out);
+        return ResponseEntity.ok()
+                .contentType(compression.mediaType(format))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(compression.fileName(format)).build().toString())
+                .header(EXPORT_NEXT_CREATED_AFTER, watermark.createdUntil().toString())
+                .body(body);
+    }
+
+    @LongRunning
+    @PostMapping("/import")
+    @Operation(summary = "Загрузка пользователей из CSV или NDJSON через COPY; файл обрабатывается в фоне")
+    @ApiResponse(responseCode = "202", description = "Файл принят, состояние загрузки — по ссылке из Location")
+    @ApiResponse(responseCode = "413", description = "Файл больше user.import.max-size")
+    public ResponseEntity<ImportJobStatus> importUsers(
+            @Parameter(description = "Формат строк; в CSV нужен заголовок с колонками name, email, age")
+            @RequestParam(defaultValue = "CSV") ExportFormat format,
+            @Parameter(description = "Сжатие файла") @RequestParam(defaultValue = "NONE") ExportCompression compression,
+            InputStream body) throws IOException {
+
+        ImportJob job = userImportJobs.submit(format, compression, body);
+        String location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQuery(null)
+                .path("/{jobId}")
+                .buildAndExpand(job.getId())
+                .toUriString();
+        return ResponseEntity.accepted().header(HttpHeaders.LOCATION, location).body(job.status());
+    }
+
+    @GetMapping("/import/{jobId}")
+    @Operation(summary = "Состояние загрузки пользователей из файла")
+    @ApiResponse(responseCode = "200", description = "Этап, счётчики строк и первые отклонённые записи")
+    @ApiResponse(responseCode = "404", description = "Загрузка не найдена или удалена по истечении срока хранения")
+    public ResponseEntity<ImportJobStatus> getImportStatus(
+            @Parameter(description = "ID загрузки", required = true) @PathVariable String jobId) {
+
+        return ResponseEntity.ok(userImportJobs.find(jobId).orElseThrow(() -> new ImportJobNotFoundException(jobId)));
     }
 
     @DeleteMapping("/{id}")
@@ -131,11 +333,159 @@ public class UserController {
         if (deleted) {
             return ResponseEntity.noContent().build();
         } else {
-            throw new RuntimeException("Пользователь с ID " + id + " не найден");
+            throw UserNotFoundException.byId(id);
+        }
+    }
+
+    @PostMapping("/emails/exists")
+    @Operation(summary = "Проверить занятость email пакетом")
+    @ApiResponse(responseCode = "200", description = "Для каждого email из запроса — занят ли он (в порядке запроса)")
+    public ResponseEntity<Map<String, Boolean>> emailsExist(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Проверяемые email", required = true
+            )
+            @RequestBody List<String> emails) {
+
+        return ResponseEntity.ok(userService.emailsExist(emails));
+    }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Создать пользователей пакетом")
+    @ApiResponse(responseCode = "200", description = "Результат по каждому элементу пакета")
+    public ResponseEntity<List<BatchItemResult>> createUsers(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Данные новых пользователей", required = true
+            )
+            @RequestBody List<UserModel> request) {
+
+        List<User> users = request.stream()
+                .map(dto -> new User(dto.getName(), dto.getEmail(), dto.getAge()))
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(userService.createUsers(users));
+    }
+
+    @PutMapping("/batch")
+    @Operation(summary = "Обновить пользователей пакетом")
+    @ApiResponse(responseCode = "200", description = "Результат по каждому элементу пакета")
+    public ResponseEntity<List<BatchItemResult>> updateUsers(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Обновлённые данные пользователей", required = true
+            )
+            @RequestBody List<UserModel> request) {
+
+        List<User> users = request.stream()
+                .map(dto -> {
+                    User user = new User(dto.getName(), dto.getEmail(), dto.getAge());
+                    user.setId(dto.getId());
+                    return user;
+                })
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(userService.updateUsers(users));
+    }
+
+    @DeleteMapping("/batch")
+    @Operation(summary = "Удалить пользователей пакетом")
+    @ApiResponse(responseCode = "200", description = "Результат по каждому элементу пакета")
+    public ResponseEntity<List<BatchItemResult>> deleteUsers(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "ID удаляемых пользователей", required = true
+            )
+            @RequestBody List<Long> ids) {
+
+        return ResponseEntity.ok(userService.deleteUsers(ids));
+    }
+
+    private static void writeUserLine(JsonGenerator generator, User user) {
+        try {
+            generator.writeStartObject();
+            generator.writeNumberField("id", user.getId());
+            generator.writeStringField("name", user.getName());
+            generator.writeStringField("email", user.getEmail());
+            if (user.getAge() != null) {
+                generator.writeNumberField("age", user.getAge());
+            }
+            if (user.getCreatedAt() != null) {
+                generator.writeStringField("createdAt", user.getCreatedAt().toString());
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
-    private UserModel toUserModel(User user) {
+    static String eTag(User user) {
+        return eTag(user.getVersion(), true);
+    }
+
+    static String eTag(User user, boolean withLinks) {
+        return eTag(user.getVersion(), withLinks);
+    }
+
+    static String eTag(UserView user) {
+        return eTag(user.version(), true);
+    }
+
+    static String eTag(UserView user, boolean withLinks) {
+        return eTag(user.version(), withLinks);
+    }
+
+    // тело без ссылок — другое представление: сильный ETag не должен совпадать с ETag тела со ссылками
+    private static String eTag(Long version, boolean withLinks) {
+        return "\"" + version + (withLinks ? "" : WITHOUT_LINKS_SUFFIX) + "\"";
+    }
+
+    // If-Match с одним сильным ETag вида "3" (или "3-n" из ответа без ссылок) -> ожидаемая версия;
+    // "*" или отсутствие заголовка -> без проверки
+    static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String value = ifMatch.trim();
+        if (value.length() < 3 || value.charAt(0) != '"' || value.charAt(value.length() - 1) != '"') {
+            throw new InvalidRequestException("If-Match должен содержать один ETag вида \"<версия>\"");
+        }
+        try {
+            String version = value.substring(1, value.length() - 1);
+            if (version.endsWith(WITHOUT_LINKS_SUFFIX)) {
+                version = version.substring(0, version.length() - WITHOUT_LINKS_SUFFIX.length());
+            }
+            return Long.parseLong(version);
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("If-Match должен содержать один ETag вида \"<версия>\"");
+        }
+    }
+
+    static String parseIdempotencyKey(String idempotencyKey) {
+        String key = idempotencyKey.trim();
+        if (key.isEmpty() || key.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new InvalidRequestException(
+                    IDEMPOTENCY_KEY + " должен быть непустым и не длиннее " + MAX_IDEMPOTENCY_KEY_LENGTH + " символов");
+        }
+        return key;
+    }
+
+    static EntityModel<UserModel> toEntityModel(User user, UserLinks.RequestLinks links) {
+        UserModel userModel = toUserModel(user);
+        if (links == null) {
+            return EntityModel.of(userModel);
+        }
+        return EntityModel.of(userModel, links.self(user.getId()), links.allUsers());
+    }
+
+    static EntityModel<UserModel> toEntityModel(UserView user, UserLinks.RequestLinks links) {
+        UserModel userModel = toUserModel(user);
+        if (links == null) {
+            return EntityModel.of(userModel);
+        }
+        return EntityModel.of(userModel, links.self(user.id()), links.allUsers());
+    }
+
+    static UserModel toUserModel(UserView user) {
+        return new UserModel(user.id(), user.name(), user.email(), user.age(), user.createdAt());
+    }
+
+    static UserModel toUserModel(User user) {
         return new UserModel(
                 user.getId(),
                 user.getName(),
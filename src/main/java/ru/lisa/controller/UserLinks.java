@@ -0,0 +1,66 @@
+package ru.lisa.controller;
+
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.LinkRelation;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+// Ссылки на ресурсы пользователей без linkTo(methodOn(...)): тот создаёт CGLIB-прокси и разбирает
+// шаблон URI на каждый вызов. Путь контроллера берётся из @RequestMapping один раз при старте,
+// базовый URI — один раз на запрос, дальше ссылки собираются конкатенацией строк
+@Component
+public class UserLinks {
+
+    public static final LinkRelation ALL_USERS = LinkRelation.of("all-users");
+
+    private final String usersPath;
+
+    public UserLinks() {
+        RequestMapping mapping = AnnotatedElementUtils.findMergedAnnotation(UserController.class, RequestMapping.class);
+        this.usersPath = mapping != null && mapping.path().length > 0 ? mapping.path()[0] : "";
+    }
+
+    public RequestLinks forCurrentRequest() {
+        return forBaseUri(ServletUriComponentsBuilder.fromCurrentServletMapping().toUriString());
+    }
+
+    // для WebFlux, где нет текущего servlet-запроса: базовый URI приходит из ServerHttpRequest
+    public RequestLinks forBaseUri(String baseUri) {
+        return new RequestLinks(baseUri + usersPath);
+    }
+
+    public static final class RequestLinks {
+
+        private final String usersUri;
+        private final String userUriPrefix;
+
+        RequestLinks(String usersUri) {
+            this.usersUri = usersUri;
+            this.userUriPrefix = usersUri + "/";
+        }
+
+        public Link self(Long userId) {
+            return Link.of(userUriPrefix + userId, IanaLinkRelations.SELF);
+        }
+
+        public Link allUsers() {
+            return Link.of(usersUri, ALL_USERS);
+        }
+
+        public Link page(Long after, Integer limit, LinkRelation rel) {
+            StringBuilder href = new StringBuilder(usersUri.length() + 32).append(usersUri);
+            char separator = '?';
+            if (after != null) {
+                href.append(separator).append("after=").append(after);
+                separator = '&';
+            }
+            if (limit != null) {
+                href.append(separator).append("limit=").append(limit);
+            }
+            return Link.of(href.toString(), rel);
+        }
+    }
+}
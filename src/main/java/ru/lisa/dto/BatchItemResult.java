@@ -0,0 +1,63 @@
+package ru.lisa.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Результат обработки одного элемента пакетной операции")
+public class BatchItemResult {
+
+    public enum Status {
+        CREATED,
+        UPDATED,
+        DELETED,
+        NOT_FOUND,
+        CONFLICT,
+        INVALID
+    }
+
+    @Schema(description = "Позиция элемента в запросе", example = "0")
+    private final int index;
+
+    @Schema(description = "ID пользователя", example = "1")
+    private final Long id;
+
+    @Schema(description = "Итог операции", example = "CREATED")
+    private final Status status;
+
+    @Schema(description = "Описание ошибки, если элемент не обработан")
+    private final String error;
+
+    public BatchItemResult(int index, Long id, Status status, String error) {
+        this.index = index;
+        this.id = id;
+        this.status = status;
+        this.error = error;
+    }
+
+    public static BatchItemResult success(int index, Long id, Status status) {
+        return new BatchItemResult(index, id, status, null);
+    }
+
+    public static BatchItemResult failure(int index, Long id, Status status, String error) {
+        return new BatchItemResult(index, id, status, error);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -0,0 +1,33 @@
+package ru.lisa.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Schema(description = "Состояние загрузки пользователей из файла")
+public record ImportJobStatus(
+        @Schema(description = "ID загрузки", example = "3f0c6a5e-6a1b-4c55-9a0e-2f1b7d9a4c11")
+        String id,
+        @Schema(description = "Этап: QUEUED, LOADING, MERGING, COMPLETED или FAILED", example = "LOADING")
+        String state,
+        @Schema(description = "Формат файла", example = "CSV")
+        String format,
+        @Schema(description = "Сжатие файла", example = "GZIP")
+        String compression,
+        LocalDateTime submittedAt,
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt,
+        @Schema(description = "Прочитано записей файла", example = "1500000")
+        long rowsRead,
+        @Schema(description = "Отклонено проверкой данных", example = "12")
+        long invalid,
+        @Schema(description = "Отклонено из-за занятого email (в таблице или выше в файле)", example = "40")
+        long conflicts,
+        @Schema(description = "Создано пользователей", example = "1499948")
+        long created,
+        @Schema(description = "Первые отклонённые записи; index — номер записи в файле, начиная с 1")
+        List<BatchItemResult> errors,
+        @Schema(description = "Причина, если загрузка не удалась целиком")
+        String error) {
+}
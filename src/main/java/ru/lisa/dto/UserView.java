@@ -0,0 +1,8 @@
+package ru.lisa.dto;
+
+import java.time.LocalDateTime;
+
+// Неизменяемая проекция строки users для чтения: собирается прямо из ResultSet,
+// минуя persistence context, и без копирования может лежать в кэше
+public record UserView(Long id, String name, String email, Integer age, LocalDateTime createdAt, Long version) {
+}
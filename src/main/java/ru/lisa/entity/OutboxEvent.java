@@ -0,0 +1,80 @@
+package ru.lisa.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import ru.lisa.event.EventType;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "outbox")
+public class OutboxEvent {
+
+    // шаг 1, без блоков на реплику: id задаёт порядок отправки событий одного пользователя (db/008)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_id_seq")
+    @SequenceGenerator(name = "outbox_id_seq", sequenceName = "outbox_id_seq", allocationSize = 1)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 20)
+    private EventType eventType;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "email", length = 100)
+    private String email;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public OutboxEvent() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public OutboxEvent(EventType eventType, Long userId, String email) {
+        this.eventType = eventType;
+        this.userId = userId;
+        this.email = email;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public EventType getEventType() {
+        return eventType;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxEvent{" +
+                "id=" + id +
+                ", eventType=" + eventType +
+                ", userId=" + userId +
+                ", email='" + email + '\'' +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
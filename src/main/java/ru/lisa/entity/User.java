@@ -6,18 +6,25 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "users", indexes = {
-        @Index(name = "idx_user_email_unique", columnList = "email", unique = true)
+        @Index(name = "idx_user_email_unique", columnList = "email", unique = true),
+        // индекс по (lower(name) COLLATE "C", id) — выражение, он есть только в db/004-users-search-indexes.sql
+        @Index(name = "idx_users_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_users_age_id", columnList = "age, id")
 })
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Последовательность с шагом 50 (pooled): Hibernate выделяет id блоками и может группировать INSERT в JDBC batch
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id_seq")
+    @SequenceGenerator(name = "users_id_seq", sequenceName = "users_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "name", nullable = false, length = 100)
@@ -32,6 +39,11 @@ public class User {
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    // Увеличивается при каждом изменении; используется как ETag и для условного обновления
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     public User() {
         this.createdAt = LocalDateTime.now();
     }
@@ -87,9 +99,19 @@ public class User {
                 ", email='" + email + '\'' +
                 ", age=" + age +
                 ", createdAt=" + createdAt +
+                ", version=" + version +
                 '}';
     }
 
-    public void setCreatedAt(LocalDateTime now) {
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
     }
-}
\ No newline at end of file
+}
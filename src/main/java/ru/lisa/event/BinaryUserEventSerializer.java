@@ -0,0 +1,89 @@
+package ru.lisa.event;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Компактный бинарный формат без схемы и рефлексии:
+// [версия:1][код типа:1][флаги:1][userId: zigzag varint]?[длина email: varint][email: UTF-8]?
+@Component
+public class BinaryUserEventSerializer implements UserEventSerializer {
+
+    public static final String FORMAT = "binary";
+    public static final byte VERSION = 1;
+
+    private static final int HAS_USER_ID = 1;
+    private static final int HAS_EMAIL = 1 << 1;
+
+    @Override
+    public String format() {
+        return FORMAT;
+    }
+
+    @Override
+    public byte[] serialize(UserEvent event) {
+        byte[] email = event.getEmail() != null ? event.getEmail().getBytes(StandardCharsets.UTF_8) : null;
+        // 3 байта заголовка + до 10 байт на varint id + до 5 байт на длину
+        byte[] buffer = new byte[18 + (email != null ? email.length : 0)];
+        int pos = 0;
+        buffer[pos++] = VERSION;
+        buffer[pos++] = (byte) event.getEventType().getCode();
+        int flags = (event.getUserId() != null ? HAS_USER_ID : 0) | (email != null ? HAS_EMAIL : 0);
+        buffer[pos++] = (byte) flags;
+        if (event.getUserId() != null) {
+            long id = event.getUserId();
+            pos = writeVarLong(buffer, pos, (id << 1) ^ (id >> 63));
+        }
+        if (email != null) {
+            pos = writeVarLong(buffer, pos, email.length);
+            System.arraycopy(email, 0, buffer, pos, email.length);
+            pos += email.length;
+        }
+        return Arrays.copyOf(buffer, pos);
+    }
+
+    @Override
+    public UserEvent deserialize(byte[] data) {
+        if (data.length < 3) {
+            throw new IllegalArgumentException("Слишком короткое бинарное событие: " + data.length + " байт");
+        }
+        if (data[0] != VERSION) {
+            throw new IllegalArgumentException("Неподдерживаемая версия бинарного события: " + data[0]);
+        }
+        UserEvent event = new UserEvent();
+        event.setEventType(EventType.fromCode(data[1]));
+        int flags = data[2];
+        int[] pos = {3};
+        if ((flags & HAS_USER_ID) != 0) {
+            long zigzag = readVarLong(data, pos);
+            event.setUserId((zigzag >>> 1) ^ -(zigzag & 1));
+        }
+        if ((flags & HAS_EMAIL) != 0) {
+            int length = (int) readVarLong(data, pos);
+            event.setEmail(new String(data, pos[0], length, StandardCharsets.UTF_8));
+        }
+        return event;
+    }
+
+    private static int writeVarLong(byte[] buffer, int pos, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[pos++] = (byte) value;
+        return pos;
+    }
+
+    private static long readVarLong(byte[] data, int[] pos) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = data[pos[0]++];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Некорректный varint в бинарном событии");
+    }
+}
@@ -1,6 +1,27 @@
 package ru.lisa.event;
 
 public enum EventType {
-    CREATED,
-    DELETED
-}
\ No newline at end of file
+    CREATED(1),
+    UPDATED(2),
+    DELETED(3);
+
+    // стабильный код для бинарного формата: не зависит от порядка констант
+    private final int code;
+
+    EventType(int code) {
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public static EventType fromCode(int code) {
+        for (EventType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный код типа события: " + code);
+    }
+}
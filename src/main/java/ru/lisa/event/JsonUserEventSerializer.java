@@ -0,0 +1,29 @@
+package ru.lisa.event;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+import static ru.lisa.util.GsonUtil.GSON;
+
+// Прежний JSON-формат через Gson: читаемый, оставлен для отладки и старых потребителей
+@Component
+public class JsonUserEventSerializer implements UserEventSerializer {
+
+    public static final String FORMAT = "json";
+
+    @Override
+    public String format() {
+        return FORMAT;
+    }
+
+    @Override
+    public byte[] serialize(UserEvent event) {
+        return GSON.toJson(event).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public UserEvent deserialize(byte[] data) {
+        return GSON.fromJson(new String(data, StandardCharsets.UTF_8), UserEvent.class);
+    }
+}
@@ -2,12 +2,14 @@ package ru.lisa.event;
 
 public class UserEvent {
     private EventType eventType;
+    private Long userId;
     private String email;
 
     public UserEvent() {}
 
-    public UserEvent(EventType eventType, String email) {
+    public UserEvent(EventType eventType, Long userId, String email) {
         this.eventType = eventType;
+        this.userId = userId;
         this.email = email;
     }
 
@@ -19,6 +21,14 @@ public class UserEvent {
         this.eventType = eventType;
     }
 
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
     public String getEmail() {
         return email;
     }
@@ -26,4 +36,4 @@ public class UserEvent {
     public void setEmail(String email) {
         this.email = email;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,11 @@
+package ru.lisa.event;
+
+// SPI формата сообщений user-events; имя формата передаётся в заголовке записи Kafka
+public interface UserEventSerializer {
+
+    String format();
+
+    byte[] serialize(UserEvent event);
+
+    UserEvent deserialize(byte[] data);
+}
@@ -0,0 +1,46 @@
+package ru.lisa.event;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class UserEventSerializers {
+
+    // заголовок записи Kafka с именем формата; без него сообщение считается старым JSON
+    public static final String FORMAT_HEADER = "user-event-format";
+
+    private final Map<String, UserEventSerializer> byFormat = new HashMap<>();
+    private final UserEventSerializer defaultSerializer;
+
+    public UserEventSerializers(List<UserEventSerializer> serializers,
+                                @Value("${user.events.format:" + BinaryUserEventSerializer.FORMAT + "}") String defaultFormat) {
+        for (UserEventSerializer serializer : serializers) {
+            byFormat.put(serializer.format(), serializer);
+        }
+        this.defaultSerializer = forFormat(defaultFormat);
+    }
+
+    public UserEventSerializer defaultSerializer() {
+        return defaultSerializer;
+    }
+
+    public UserEventSerializer forHeader(byte[] formatHeader) {
+        return forFormat(formatHeader != null ? new String(formatHeader, StandardCharsets.UTF_8) : null);
+    }
+
+    public UserEventSerializer forFormat(String format) {
+        if (format == null) {
+            format = JsonUserEventSerializer.FORMAT;
+        }
+        UserEventSerializer serializer = byFormat.get(format);
+        if (serializer == null) {
+            throw new IllegalArgumentException("Неизвестный формат событий: " + format);
+        }
+        return serializer;
+    }
+}
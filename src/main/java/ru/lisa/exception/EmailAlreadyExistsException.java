@@ -0,0 +1,8 @@
+package ru.lisa.exception;
+
+public class EmailAlreadyExistsException extends UserServiceException {
+
+    public EmailAlreadyExistsException(String email) {
+        super("Пользователь с email '" + email + "' уже существует");
+    }
+}
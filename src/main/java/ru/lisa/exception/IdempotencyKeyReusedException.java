@@ -0,0 +1,8 @@
+package ru.lisa.exception;
+
+public class IdempotencyKeyReusedException extends UserServiceException {
+
+    public IdempotencyKeyReusedException(String idempotencyKey) {
+        super("Idempotency-Key '" + idempotencyKey + "' уже использован с другими данными запроса");
+    }
+}
@@ -0,0 +1,8 @@
+package ru.lisa.exception;
+
+public class ImportJobNotFoundException extends UserServiceException {
+
+    public ImportJobNotFoundException(String jobId) {
+        super("Загрузка с ID " + jobId + " не найдена");
+    }
+}
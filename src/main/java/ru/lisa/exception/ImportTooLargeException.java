@@ -0,0 +1,8 @@
+package ru.lisa.exception;
+
+public class ImportTooLargeException extends UserServiceException {
+
+    public ImportTooLargeException(long maxSizeMegabytes) {
+        super("Файл импорта больше допустимых " + maxSizeMegabytes + " МБ");
+    }
+}
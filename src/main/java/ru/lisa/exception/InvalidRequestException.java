@@ -0,0 +1,10 @@
+package ru.lisa.exception;
+
+// Некорректный запрос на уровне HTTP (заголовок, курсор, параметр) — 400; данные пользователя проверяет
+// InvalidUserDataException (422)
+public class InvalidRequestException extends UserServiceException {
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package ru.lisa.exception;
+
+public class InvalidUserDataException extends UserServiceException {
+
+    public InvalidUserDataException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package ru.lisa.exception;
+
+public class RateLimitExceededException extends UserServiceException {
+
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(String clientId, long retryAfterSeconds) {
+        super("Превышен лимит запросов для клиента '" + clientId + "', повторите через " + retryAfterSeconds + " с");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,15 @@
+package ru.lisa.exception;
+
+public class ServiceOverloadedException extends UserServiceException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(int limit, long retryAfterSeconds) {
+        super("Сервис перегружен: выполняется " + limit + " запросов, повторите запрос позже");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,16 @@
+package ru.lisa.exception;
+
+public class UserNotFoundException extends UserServiceException {
+
+    public UserNotFoundException(String message) {
+        super(message);
+    }
+
+    public static UserNotFoundException byId(Long id) {
+        return new UserNotFoundException("Пользователь с ID " + id + " не найден");
+    }
+
+    public static UserNotFoundException byEmail(String email) {
+        return new UserNotFoundException("Пользователь с email '" + email + "' не найден");
+    }
+}
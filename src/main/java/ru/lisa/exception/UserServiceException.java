@@ -0,0 +1,11 @@
+package ru.lisa.exception;
+
+// Ожидаемые ошибки API (нет пользователя, занят email, невалидные данные). Возникают на каждом
+// «плохом» запросе, поэтому стек не собирается: его заполнение — основная стоимость исключения,
+// а место возникновения однозначно по сообщению
+public abstract class UserServiceException extends RuntimeException {
+
+    protected UserServiceException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -1,22 +1,148 @@
 package ru.lisa.handling;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.ErrorResponse;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import ru.lisa.exception.EmailAlreadyExistsException;
+import ru.lisa.exception.IdempotencyKeyReusedException;
+import ru.lisa.exception.ImportJobNotFoundException;
+import ru.lisa.exception.ImportTooLargeException;
+import ru.lisa.exception.InvalidRequestException;
+import ru.lisa.exception.InvalidUserDataException;
+import ru.lisa.exception.RateLimitExceededException;
+import ru.lisa.exception.ServiceOverloadedException;
+import ru.lisa.exception.UserNotFoundException;
 
-import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Map;
+import java.time.Duration;
 
+@Slf4j
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
+    // заголовки ответа об ошибке одинаковы для всех запросов — собираются один раз
+    private static final HttpHeaders PROBLEM_HEADERS = problemHeaders(null);
+    private static final HttpHeaders RETRY_HEADERS = problemHeaders("1");
+
+    private final StackTraceSampler stackTraceSampler;
+
+    public GlobalExceptionHandler(@Value("${user.logging.stack-trace-interval:1m}") Duration stackTraceInterval) {
+        this.stackTraceSampler = new StackTraceSampler(stackTraceInterval);
+    }
+
+    // ожидаемые ошибки: стек у них не собирается и не логируется
+    @ExceptionHandler(UserNotFoundException.class)
+    public ResponseEntity<ProblemDetail> handleUserNotFound(UserNotFoundException ex) {
+        return problem(HttpStatus.NOT_FOUND, ex.getMessage(), PROBLEM_HEADERS);
+    }
+
+    @ExceptionHandler(ImportJobNotFoundException.class)
+    public ResponseEntity<ProblemDetail> handleImportJobNotFound(ImportJobNotFoundException ex) {
+        return problem(HttpStatus.NOT_FOUND, ex.getMessage(), PROBLEM_HEADERS);
+    }
+
+    @ExceptionHandler(ImportTooLargeException.class)
+    public ResponseEntity<ProblemDetail> handleImportTooLarge(ImportTooLargeException ex) {
+        return problem(HttpStatus.PAYLOAD_TOO_LARGE, ex.getMessage(), PROBLEM_HEADERS);
+    }
+
+    @ExceptionHandler(EmailAlreadyExistsException.class)
+    public ResponseEntity<ProblemDetail> handleEmailAlreadyExists(EmailAlreadyExistsException ex) {
+        return problem(HttpStatus.CONFLICT, ex.getMessage(), PROBLEM_HEADERS);
+    }
+
+    @ExceptionHandler({InvalidUserDataException.class, IdempotencyKeyReusedException.class})
+    public ResponseEntity<ProblemDetail> handleUnprocessable(Exception ex) {
+        return problem(HttpStatus.UNPROCESSABLE_ENTITY, ex.getMessage(), PROBLEM_HEADERS);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ProblemDetail> handleOptimisticLockingFailure(OptimisticLockingFailureException ex) {
+        return problem(HttpStatus.PRECONDITION_FAILED, ex.getMessage(), PROBLEM_HEADERS);
+    }
+
+    // пул соединений или DatabaseConcurrencyGate не выдали соединение вовремя — перегрузка, а не ошибка клиента
+    @ExceptionHandler({CannotCreateTransactionException.class, CannotGetJdbcConnectionException.class})
+    public ResponseEntity<ProblemDetail> handleDatabaseBusy(Exception ex) {
+        return problem(HttpStatus.SERVICE_UNAVAILABLE, "База данных перегружена, повторите запрос позже", RETRY_HEADERS);
+    }
+
+    // отказы AdmissionControlInterceptor: запрос не дошёл до контроллера, повтор после Retry-After безопасен
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<ProblemDetail> handleRateLimitExceeded(RateLimitExceededException ex) {
+        return problem(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage(), retryHeaders(ex.getRetryAfterSeconds()));
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ProblemDetail> handleServiceOverloaded(ServiceOverloadedException ex) {
+        return problem(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), retryHeaders(ex.getRetryAfterSeconds()));
+    }
+
+    // некорректные заголовки, курсор и параметры запроса — ошибка клиента. IllegalArgumentException сюда
+    // не относится: его бросают и библиотеки, и наш код при ошибках в нём самом — это 500
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<ProblemDetail> handleInvalidRequest(InvalidRequestException ex) {
+        return problem(HttpStatus.BAD_REQUEST, ex.getMessage(), PROBLEM_HEADERS);
+    }
+
+    // текст ошибки парсера JSON раскрывает внутренние классы — клиенту уходит общий
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<ProblemDetail> handleNotReadable(HttpMessageNotReadableException ex) {
+        return problem(HttpStatus.BAD_REQUEST, "Некорректное тело запроса", PROBLEM_HEADERS);
+    }
+
+    @ExceptionHandler(TypeMismatchException.class)
+    public ResponseEntity<ProblemDetail> handleTypeMismatch(TypeMismatchException ex) {
+        String name = ex.getPropertyName() != null ? ex.getPropertyName() : "запроса";
+        return problem(HttpStatus.BAD_REQUEST, "Некорректное значение параметра " + name, PROBLEM_HEADERS);
+    }
+
     @ExceptionHandler(Exception.class)
-    public ResponseEntity<Map<String, Object>> handleAllExceptions(Exception ex) {
-        Map<String, Object> response = new HashMap<>();
-        response.put("timestamp", LocalDateTime.now());
-        response.put("error", ex.getMessage() != null ? ex.getMessage() : "Неизвестная ошибка");
-        ex.printStackTrace();
-        return ResponseEntity.badRequest().body(response);
-    }
-}
\ No newline at end of file
+    public ResponseEntity<ProblemDetail> handleAllExceptions(Exception ex) {
+        // исключения Spring MVC/WebFlux (404, 405, 406, 415, нет параметра, ошибки валидации) сами знают свой статус
+        if (ex instanceof ErrorResponse errorResponse) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.addAll(errorResponse.getHeaders());
+            headers.setContentType(MediaType.APPLICATION_PROBLEM_JSON);
+            return new ResponseEntity<>(errorResponse.getBody(), headers, errorResponse.getStatusCode());
+        }
+        // при всплеске одинаковых ошибок стек пишется раз в интервал, остальное — одной строкой
+        if (stackTraceSampler.shouldLogStackTrace(ex)) {
+            log.error("Ошибка обработки запроса: {}", ex.getMessage(), ex);
+        } else {
+            log.error("Ошибка обработки запроса ({}): {}", ex.getClass().getSimpleName(), ex.getMessage());
+        }
+        // текст непредвиденного исключения клиенту не отдаётся
+        return problem(HttpStatus.INTERNAL_SERVER_ERROR, "Внутренняя ошибка сервиса", PROBLEM_HEADERS);
+    }
+
+    static ResponseEntity<ProblemDetail> problem(HttpStatus status, String detail, HttpHeaders headers) {
+        ProblemDetail body = ProblemDetail.forStatusAndDetail(status, detail);
+        body.setTitle(status.getReasonPhrase());
+        return new ResponseEntity<>(body, headers, status);
+    }
+
+    private static HttpHeaders retryHeaders(long retryAfterSeconds) {
+        return retryAfterSeconds == 1 ? RETRY_HEADERS : problemHeaders(Long.toString(retryAfterSeconds));
+    }
+
+    private static HttpHeaders problemHeaders(String retryAfter) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_PROBLEM_JSON);
+        if (retryAfter != null) {
+            headers.set(HttpHeaders.RETRY_AFTER, retryAfter);
+        }
+        return HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+}
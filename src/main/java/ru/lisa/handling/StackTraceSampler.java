@@ -0,0 +1,33 @@
+package ru.lisa.handling;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Пропускает полный стек-трейс не чаще одного раза за interval на каждый класс исключения;
+// в остальных случаях ошибка логируется одной строкой без стека
+class StackTraceSampler {
+
+    private final long intervalNanos;
+    private final LongSupplier clock;
+    private final ConcurrentMap<Class<?>, AtomicLong> lastLogged = new ConcurrentHashMap<>();
+
+    StackTraceSampler(Duration interval) {
+        this(interval, System::nanoTime);
+    }
+
+    StackTraceSampler(Duration interval, LongSupplier clock) {
+        this.intervalNanos = interval.toNanos();
+        this.clock = clock;
+    }
+
+    boolean shouldLogStackTrace(Throwable ex) {
+        long now = clock.getAsLong();
+        AtomicLong last = lastLogged.computeIfAbsent(ex.getClass(), key -> new AtomicLong(now - intervalNanos));
+        long previous = last.get();
+        // из конкурентных потоков стек пишет только тот, кто успел сдвинуть отметку времени
+        return now - previous >= intervalNanos && last.compareAndSet(previous, now);
+    }
+}
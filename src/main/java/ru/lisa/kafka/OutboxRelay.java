@@ -0,0 +1,145 @@
+package ru.lisa.kafka;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.lisa.entity.OutboxEvent;
+import ru.lisa.event.UserEvent;
+import ru.lisa.event.UserEventSerializer;
+import ru.lisa.event.UserEventSerializers;
+import ru.lisa.repository.OutboxRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Разбирает outbox пачками: блокирует строки, отправляет их в Kafka, дожидается подтверждений и удаляет.
+// При ошибке транзакция откатывается и пачка будет отправлена повторно (at-least-once).
+// Outbox поделён на partitions частей по user_id; часть в каждый момент разбирает одна реплика (advisory lock),
+// строго по id, поэтому события одного пользователя уходят в Kafka в порядке коммитов, а реплики работают параллельно.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "user.events.delivery", havingValue = "outbox", matchIfMissing = true)
+public class OutboxRelay implements MeterBinder {
+
+    // первый ключ пары advisory lock (pg_try_advisory_xact_lock(int, int)), второй — номер части
+    static final int PARTITION_LOCK_KEY = 0x6f757462;
+
+    private final OutboxRepository outboxRepository;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final UserEventSerializer serializer;
+    private final TransactionTemplate transactionTemplate;
+    private final String topic;
+    private final int batchSize;
+    private final int maxBatchesPerTick;
+    private final int partitions;
+    private final Duration sendTimeout;
+
+    private final AtomicLong relayed = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicInteger nextPartition = new AtomicInteger();
+    private volatile Timer batchTimer;
+
+    public OutboxRelay(OutboxRepository outboxRepository,
+                       KafkaTemplate<String, byte[]> kafkaTemplate,
+                       UserEventSerializers serializers,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${topic.name:user-events}") String topic,
+                       @Value("${user.events.outbox.batch-size:500}") int batchSize,
+                       @Value("${user.events.outbox.max-batches-per-tick:20}") int maxBatchesPerTick,
+                       @Value("${user.events.outbox.partitions:4}") int partitions,
+                       @Value("${user.events.outbox.send-timeout:10s}") Duration sendTimeout) {
+        this.outboxRepository = outboxRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.serializer = serializers.defaultSerializer();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.topic = topic;
+        this.batchSize = batchSize;
+        this.maxBatchesPerTick = Math.max(1, maxBatchesPerTick);
+        this.partitions = Math.max(1, partitions);
+        this.sendTimeout = sendTimeout;
+    }
+
+    @Scheduled(fixedDelayString = "${user.events.outbox.poll-interval:500ms}")
+    public void relay() {
+        // каждый тик начинает со следующей части, чтобы реплики не сталкивались на одной и той же
+        int first = Math.floorMod(nextPartition.getAndIncrement(), partitions);
+        int batches = 0;
+        for (int i = 0; i < partitions && batches < maxBatchesPerTick; i++) {
+            int partition = (first + i) % partitions;
+            try {
+                // пока пачки приходят полными, часть не пуста — продолжаем без ожидания следующего тика, но всего
+                // не больше maxBatchesPerTick: при большом хвосте тик иначе длился бы без конца и держал поток планировщика
+                int relayedCount;
+                do {
+                    relayedCount = relayBatch(partition);
+                    batches++;
+                } while (relayedCount == batchSize && batches < maxBatchesPerTick);
+            } catch (RuntimeException e) {
+                failedBatches.incrementAndGet();
+                log.error("Outbox: не удалось отправить пачку событий части {}, повторим на следующем цикле: {}",
+                        partition, e.getMessage());
+            }
+        }
+    }
+
+    // 0 — часть пуста или её сейчас разбирает другая реплика
+    int relayBatch(int partition) {
+        long start = System.nanoTime();
+        byte[] format = serializer.format().getBytes(StandardCharsets.UTF_8);
+        Integer count = transactionTemplate.execute(status -> {
+            if (!outboxRepository.tryLockPartition(PARTITION_LOCK_KEY, partition)) {
+                return 0;
+            }
+            List<OutboxEvent> batch = outboxRepository.lockNextBatch(partitions, partition, batchSize);
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[batch.size()];
+            for (int i = 0; i < batch.size(); i++) {
+                OutboxEvent event = batch.get(i);
+                String key = event.getUserId() != null ? event.getUserId().toString() : null;
+                byte[] payload = serializer.serialize(new UserEvent(event.getEventType(), event.getUserId(), event.getEmail()));
+                ProducerRecord<String, byte[]> record = new ProducerRecord<>(topic, key, payload);
+                record.headers().add(UserEventSerializers.FORMAT_HEADER, format);
+                futures[i] = kafkaTemplate.send(record);
+            }
+            // удаляем строки только после подтверждения всей пачки брокером
+            CompletableFuture.allOf(futures).orTimeout(sendTimeout.toMillis(), TimeUnit.MILLISECONDS).join();
+            outboxRepository.deleteAllInBatch(batch);
+            return batch.size();
+        });
+        int relayedCount = count != null ? count : 0;
+        if (relayedCount > 0) {
+            relayed.addAndGet(relayedCount);
+            Timer timer = batchTimer;
+            if (timer != null) {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+        return relayedCount;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("user.events.outbox.relayed", relayed, AtomicLong::get).register(registry);
+        FunctionCounter.builder("user.events.outbox.failed-batches", failedBatches, AtomicLong::get).register(registry);
+        batchTimer = Timer.builder("user.events.outbox.batch")
+                .description("Время отправки одной пачки outbox в Kafka")
+                .register(registry);
+    }
+}
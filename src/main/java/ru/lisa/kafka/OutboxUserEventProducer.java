@@ -0,0 +1,25 @@
+package ru.lisa.kafka;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.lisa.entity.OutboxEvent;
+import ru.lisa.event.EventType;
+import ru.lisa.repository.OutboxRepository;
+
+// Событие сохраняется в outbox в той же транзакции, что и изменение users; в Kafka его отправляет OutboxRelay
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "user.events.delivery", havingValue = "outbox", matchIfMissing = true)
+public class OutboxUserEventProducer implements UserEventProducer {
+
+    private final OutboxRepository outboxRepository;
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void send(EventType eventType, Long userId, String email) {
+        outboxRepository.save(new OutboxEvent(eventType, userId, email));
+    }
+}
@@ -0,0 +1,41 @@
+package ru.lisa.kafka;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.TopicPartition;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Component;
+import ru.lisa.cache.UserCache;
+import ru.lisa.event.UserEvent;
+import ru.lisa.event.UserEventSerializers;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserCacheInvalidationListener {
+
+    private final UserCache userCache;
+    private final UserEventSerializers serializers;
+
+    // Каждая реплика сама читает все партиции (topic.partitions), без consumer group: событие получают все экземпляры,
+    // а перезапуск не оставляет на брокере осиротевшую группу, как было со случайным group id. Офсеты не коммитятся,
+    // после старта чтение идёт с конца. При увеличении числа партиций topic.partitions меняется вместе с топиком
+    @KafkaListener(
+            topicPartitions = @TopicPartition(topic = "${topic.name:user-events}",
+                    partitions = "#{'0-' + (${topic.partitions:12} - 1)}"),
+            autoStartup = "${user.cache.enabled:true}",
+            properties = {
+                    "auto.offset.reset=latest",
+                    "enable.auto.commit=false",
+                    "value.deserializer=org.apache.kafka.common.serialization.ByteArrayDeserializer"
+            }
+    )
+    public void onUserEvent(@Payload byte[] payload,
+                            @Header(name = UserEventSerializers.FORMAT_HEADER, required = false) byte[] format) {
+        UserEvent event = serializers.forHeader(format).deserialize(payload);
+        log.debug("Инвалидация кэша по событию {}: id={}, email={}", event.getEventType(), event.getUserId(), event.getEmail());
+        userCache.evict(event.getUserId(), event.getEmail());
+    }
+}
@@ -0,0 +1,77 @@
+package ru.lisa.kafka;
+
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.utils.Utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Партиционирование по ключу (user id) как у DefaultPartitioner, но с возможностью закрепить
+// «горячие» ключи за выделенными партициями: user.events.partitioner.pinned-keys=42:11,77:10.
+// Закреплённые партиции исключаются из хеширования остальных ключей.
+public class UserEventPartitioner implements Partitioner {
+
+    public static final String PINNED_KEYS_CONFIG = "user.events.partitioner.pinned-keys";
+
+    private volatile Map<String, Integer> pinnedKeys = Map.of();
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        Object value = configs.get(PINNED_KEYS_CONFIG);
+        pinnedKeys = parsePinnedKeys(value != null ? value.toString() : "");
+    }
+
+    static Map<String, Integer> parsePinnedKeys(String value) {
+        Map<String, Integer> result = new HashMap<>();
+        for (String entry : value.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Некорректное значение " + PINNED_KEYS_CONFIG + ": '" + entry + "'");
+            }
+            result.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return Map.copyOf(result);
+    }
+
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes, Cluster cluster) {
+        int partitionCount = cluster.partitionCountForTopic(topic);
+        if (keyBytes == null) {
+            return ThreadLocalRandom.current().nextInt(partitionCount);
+        }
+        Integer pinned = pinnedKeys.get(key.toString());
+        if (pinned != null && pinned < partitionCount) {
+            return pinned;
+        }
+        int hash = Utils.toPositive(Utils.murmur2(keyBytes));
+        int reserved = countReserved(partitionCount);
+        if (reserved == 0 || reserved == partitionCount) {
+            return hash % partitionCount;
+        }
+        // пропускаем закреплённые партиции: берём n-ю свободную
+        int target = hash % (partitionCount - reserved);
+        for (int partition = 0; partition < partitionCount; partition++) {
+            if (!isReserved(partition) && target-- == 0) {
+                return partition;
+            }
+        }
+        return hash % partitionCount;
+    }
+
+    private int countReserved(int partitionCount) {
+        return (int) pinnedKeys.values().stream().distinct().filter(p -> p < partitionCount).count();
+    }
+
+    private boolean isReserved(int partition) {
+        return pinnedKeys.containsValue(partition);
+    }
+
+    @Override
+    public void close() {
+    }
+}
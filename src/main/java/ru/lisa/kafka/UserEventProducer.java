@@ -3,6 +3,6 @@ package ru.lisa.kafka;
 import ru.lisa.event.EventType;
 
 public interface UserEventProducer {
-    void send(EventType eventType, String email);
+    void send(EventType eventType, Long userId, String email);
 
 }
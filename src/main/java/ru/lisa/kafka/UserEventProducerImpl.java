@@ -1,27 +1,246 @@
 package ru.lisa.kafka;
 
-import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
-import lombok.RequiredArgsConstructor;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.lisa.event.EventType;
 import ru.lisa.event.UserEvent;
+import ru.lisa.event.UserEventSerializer;
+import ru.lisa.event.UserEventSerializers;
 
-import static ru.lisa.util.GsonUtil.GSON;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+// send() только кладёт событие в ограниченную очередь; фоновый поток выбирает события пачками
+// и передаёт в KafkaTemplate, а батчинг на брокер делает сам producer по linger.ms/batch.size
+@Slf4j
 @Component
-@RequiredArgsConstructor
-public class UserEventProducerImpl implements UserEventProducer {
+@ConditionalOnProperty(name = "user.events.delivery", havingValue = "queue")
+public class UserEventProducerImpl implements UserEventProducer, MeterBinder {
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    public enum OverflowPolicy {
+        // отбросить новое событие
+        DROP_NEWEST,
+        // вытеснить самое старое событие из очереди
+        DROP_OLDEST,
+        // ждать освобождения места не дольше offer-timeout, затем отбросить
+        BLOCK
+    }
+
+    private record Pending(UserEvent event, long enqueuedAtNanos) {
+    }
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final UserEventSerializer serializer;
+    private final CircuitBreaker circuitBreaker;
+    private final String topic;
+    private final BlockingQueue<Pending> queue;
+    private final OverflowPolicy overflowPolicy;
+    private final Duration offerTimeout;
+    private final int drainBatchSize;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    // события, не отправленные из-за открытого circuit breaker (без попытки send)
+    private final AtomicLong fallback = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile Timer publishLatency;
+
+    private volatile boolean running;
+    private Thread dispatcher;
+
+    public UserEventProducerImpl(KafkaTemplate<String, byte[]> kafkaTemplate,
+                                 UserEventSerializers serializers,
+                                 CircuitBreakerRegistry circuitBreakerRegistry,
+                                 @Value("${topic.name:user-events}") String topic,
+                                 @Value("${user.events.queue-capacity:10000}") int queueCapacity,
+                                 @Value("${user.events.overflow-policy:DROP_NEWEST}") OverflowPolicy overflowPolicy,
+                                 @Value("${user.events.offer-timeout:50ms}") Duration offerTimeout,
+                                 @Value("${user.events.drain-batch-size:500}") int drainBatchSize) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.serializer = serializers.defaultSerializer();
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker("kafkaProducer");
+        this.topic = topic;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.overflowPolicy = overflowPolicy;
+        this.offerTimeout = offerTimeout;
+        this.drainBatchSize = drainBatchSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        dispatcher = new Thread(this::dispatchLoop, "user-events-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+            dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        // то, что осталось в очереди, отдаём producer'у до его закрытия
+        List<Pending> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.forEach(this::dispatch);
+        kafkaTemplate.flush();
+    }
+
+    @Override
+    public void send(EventType eventType, Long userId, String email) {
+        UserEvent event = new UserEvent(eventType, userId, email);
+        // событие уходит только после коммита: откаченные изменения не попадают в Kafka
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(event);
+                }
+            });
+        } else {
+            enqueue(event);
+        }
+    }
+
+    void enqueue(UserEvent event) {
+        Pending pending = new Pending(event, System.nanoTime());
+        boolean accepted = switch (overflowPolicy) {
+            case DROP_NEWEST -> queue.offer(pending);
+            case DROP_OLDEST -> offerEvictingOldest(pending);
+            case BLOCK -> offerWithTimeout(pending);
+        };
+        if (!accepted) {
+            dropped.incrementAndGet();
+            log.warn("Очередь событий переполнена ({}), событие {} для пользователя {} отброшено",
+                    queue.size(), event.getEventType(), event.getUserId());
+        }
+    }
+
+    private boolean offerEvictingOldest(Pending pending) {
+        while (!queue.offer(pending)) {
+            if (queue.poll() != null) {
+                dropped.incrementAndGet();
+            }
+        }
+        return true;
+    }
+
+    private boolean offerWithTimeout(Pending pending) {
+        try {
+            return queue.offer(pending, offerTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
 
-    @Value("topic.name")
-    private String topic;
+    private void dispatchLoop() {
+        List<Pending> batch = new ArrayList<>(drainBatchSize);
+        while (running) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, drainBatchSize - 1);
+                batch.forEach(this::dispatch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Ошибка в потоке отправки событий", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void dispatch(Pending pending) {
+        UserEvent event = pending.event();
+        // при открытом circuit breaker не ждём max.block.ms на недоступном брокере
+        if (!circuitBreaker.tryAcquirePermission()) {
+            fallback.incrementAndGet();
+            sendFallback(event, null);
+            return;
+        }
+        long start = System.nanoTime();
+        String key = event.getUserId() != null ? event.getUserId().toString() : null;
+        try {
+            ProducerRecord<String, byte[]> record = new ProducerRecord<>(topic, key, serializer.serialize(event));
+            record.headers().add(UserEventSerializers.FORMAT_HEADER, serializer.format().getBytes(StandardCharsets.UTF_8));
+            kafkaTemplate.send(record).whenComplete((result, ex) -> {
+                long now = System.nanoTime();
+                if (ex == null) {
+                    circuitBreaker.onSuccess(now - start, TimeUnit.NANOSECONDS);
+                    sent.incrementAndGet();
+                    Timer timer = publishLatency;
+                    if (timer != null) {
+                        timer.record(now - pending.enqueuedAtNanos(), TimeUnit.NANOSECONDS);
+                    }
+                } else {
+                    circuitBreaker.onError(now - start, TimeUnit.NANOSECONDS, ex);
+                    sendFallback(event, ex);
+                }
+            });
+        } catch (RuntimeException e) {
+            circuitBreaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, e);
+            sendFallback(event, e);
+        }
+    }
+
+    private void sendFallback(UserEvent event, Throwable cause) {
+        if (cause != null) {
+            failed.incrementAndGet();
+        }
+        log.error("Не удалось отправить событие {} для пользователя {} ({}) в Kafka: {}",
+                event.getEventType(), event.getUserId(), event.getEmail(),
+                cause != null ? cause.getMessage() : "circuit breaker открыт");
+    }
+
+    public int queueSize() {
+        return queue.size();
+    }
 
     @Override
-    @CircuitBreaker(name = "kafkaProducer", fallbackMethod = "sendFallback")
-    public void send(EventType eventType, String email) {
-        kafkaTemplate.send(topic, GSON.toJson((new UserEvent(EventType.DELETED, email))));
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("user.events.queue.size", queue, BlockingQueue::size)
+                .description("Событий в очереди на отправку")
+                .register(registry);
+        FunctionCounter.builder("user.events.sent", sent, AtomicLong::get).register(registry);
+        FunctionCounter.builder("user.events.failed", failed, AtomicLong::get)
+                .description("Событий, которые брокер или сериализация не приняли")
+                .register(registry);
+        FunctionCounter.builder("user.events.fallback", fallback, AtomicLong::get)
+                .description("Событий, отброшенных без отправки при открытом circuit breaker")
+                .register(registry);
+        FunctionCounter.builder("user.events.dropped", dropped, AtomicLong::get).register(registry);
+        publishLatency = Timer.builder("user.events.publish.latency")
+                .description("Время от постановки события в очередь до подтверждения брокером")
+                .publishPercentileHistogram()
+                .register(registry);
     }
 }
@@ -0,0 +1,48 @@
+package ru.lisa.kafka.consumer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Пул однопоточных исполнителей: задачи с одним ключом всегда попадают в один поток и выполняются
+// в порядке отправки, задачи с разными ключами — параллельно
+public class KeyOrderedExecutor implements AutoCloseable {
+
+    private final ExecutorService[] stripes;
+
+    public KeyOrderedExecutor(int threads, String threadNamePrefix) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Число потоков обработки должно быть положительным");
+        }
+        stripes = new ExecutorService[threads];
+        for (int i = 0; i < threads; i++) {
+            String name = threadNamePrefix + i;
+            stripes[i] = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public CompletableFuture<Void> submit(Object key, Runnable task) {
+        // записи без ключа не связаны порядком, их распределяет хэш самой задачи
+        int hash = key != null ? key.hashCode() : System.identityHashCode(task);
+        return CompletableFuture.runAsync(task, stripes[Math.floorMod(hash, stripes.length)]);
+    }
+
+    public int threads() {
+        return stripes.length;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        for (ExecutorService stripe : stripes) {
+            stripe.shutdown();
+        }
+        for (ExecutorService stripe : stripes) {
+            stripe.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package ru.lisa.kafka.consumer;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+import ru.lisa.event.UserEvent;
+import ru.lisa.event.UserEventSerializers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Читает user-events пачками и раздаёт записи пулу KeyOrderedExecutor по ключу (user id): события одного
+// пользователя обрабатываются по порядку, разных — параллельно. Офсеты пачки коммитятся вручную, когда каждая
+// запись обработана или отправлена в DLT; если пачку довести до конца не удалось, она читается повторно.
+// Доставка at-least-once: обработчики UserEventHandler должны быть идемпотентными
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "user.events.consumer.enabled", havingValue = "true")
+public class UserEventBatchListener implements MeterBinder {
+
+    private final List<UserEventHandler> handlers;
+    private final UserEventSerializers serializers;
+    private final ConsumerRecordRecoverer deadLetterRecoverer;
+    private final KeyOrderedExecutor workers;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private volatile Timer batchTimer;
+
+    public UserEventBatchListener(List<UserEventHandler> handlers,
+                                  UserEventSerializers serializers,
+                                  ConsumerRecordRecoverer userEventDeadLetterRecoverer,
+                                  @Value("${user.events.consumer.workers:8}") int workers,
+                                  @Value("${user.events.consumer.max-attempts:3}") int maxAttempts,
+                                  @Value("${user.events.consumer.retry-backoff:200ms}") Duration retryBackoff) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("user.events.consumer.max-attempts должен быть положительным");
+        }
+        this.handlers = handlers;
+        this.serializers = serializers;
+        this.deadLetterRecoverer = userEventDeadLetterRecoverer;
+        this.workers = new KeyOrderedExecutor(workers, "user-events-worker-");
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        log.info("Обработка user-events включена: обработчиков {}, потоков {}, попыток {}",
+                handlers.size(), workers, maxAttempts);
+    }
+
+    @KafkaListener(
+            id = "user-events-batch",
+            topics = "${topic.name:user-events}",
+            groupId = "${user.events.consumer.group-id:user-service}",
+            containerFactory = "userEventBatchListenerFactory",
+            batch = "true"
+    )
+    public void onBatch(List<ConsumerRecord<String, byte[]>> records, Acknowledgment acknowledgment) {
+        long start = System.nanoTime();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[records.size()];
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, byte[]> record = records.get(i);
+            futures[i] = workers.submit(record.key(), () -> process(record));
+        }
+        // исключение (например, DLT недоступен) не даёт закоммитить офсеты — пачку повторит обработчик ошибок контейнера
+        CompletableFuture.allOf(futures).join();
+        acknowledgment.acknowledge();
+
+        Timer timer = batchTimer;
+        if (timer != null) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        log.debug("Обработана пачка user-events из {} записей", records.size());
+    }
+
+    private void process(ConsumerRecord<String, byte[]> record) {
+        UserEvent event;
+        try {
+            Header format = record.headers().lastHeader(UserEventSerializers.FORMAT_HEADER);
+            event = serializers.forHeader(format != null ? format.value() : null).deserialize(record.value());
+        } catch (RuntimeException e) {
+            // повтор не поможет: нечитаемая запись сразу уходит в DLT
+            deadLetter(record, e);
+            return;
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                for (UserEventHandler handler : handlers) {
+                    handler.handle(event);
+                }
+                processed.incrementAndGet();
+                return;
+            } catch (Exception e) {
+                if (attempt >= maxAttempts) {
+                    deadLetter(record, e);
+                    return;
+                }
+                retried.incrementAndGet();
+                log.warn("Ошибка обработки события {} для ID={} (попытка {} из {}): {}",
+                        event.getEventType(), event.getUserId(), attempt, maxAttempts, e.getMessage());
+                pause();
+            }
+        }
+    }
+
+    private void deadLetter(ConsumerRecord<String, byte[]> record, Exception cause) {
+        log.error("Запись {}-{}@{} отправлена в DLT: {}",
+                record.topic(), record.partition(), record.offset(), cause.getMessage());
+        // ждёт подтверждения брокера; ошибка отправки пробрасывается и проваливает всю пачку
+        deadLetterRecoverer.accept(record, cause);
+        deadLettered.incrementAndGet();
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(retryBackoff.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Обработка user-events прервана", e);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // контейнер слушателя к этому моменту уже остановлен, новых пачек не будет
+        workers.close();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("user.events.consumer.processed", processed, AtomicLong::get).register(registry);
+        FunctionCounter.builder("user.events.consumer.retried", retried, AtomicLong::get).register(registry);
+        FunctionCounter.builder("user.events.consumer.dead-lettered", deadLettered, AtomicLong::get).register(registry);
+        batchTimer = Timer.builder("user.events.consumer.batch")
+                .description("Время обработки одной пачки user-events")
+                .register(registry);
+    }
+}
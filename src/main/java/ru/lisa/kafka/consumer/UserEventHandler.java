@@ -0,0 +1,11 @@
+package ru.lisa.kafka.consumer;
+
+import ru.lisa.event.UserEvent;
+
+// Обработчик событий user-events для UserEventBatchListener. События одного пользователя приходят
+// по порядку и в одном потоке; после исключения вызов повторяется до max-attempts, затем запись уходит в DLT
+@FunctionalInterface
+public interface UserEventHandler {
+
+    void handle(UserEvent event) throws Exception;
+}
@@ -0,0 +1,66 @@
+package ru.lisa.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.lisa.dto.UserView;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public class IdempotencyKeyRepository {
+
+    private static final String FIND_SQL =
+            "SELECT fingerprint, user_id, name, email, age, user_created_at, user_version, created_at " +
+            "FROM idempotency_keys WHERE idempotency_key = ? AND created_at >= ?";
+
+    // ключ, который истёк, но ещё не удалён очисткой, можно занять заново
+    private static final String INSERT_SQL =
+            "INSERT INTO idempotency_keys " +
+            "(idempotency_key, fingerprint, user_id, name, email, age, user_created_at, user_version, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (idempotency_key) DO UPDATE SET fingerprint = EXCLUDED.fingerprint, " +
+            "user_id = EXCLUDED.user_id, name = EXCLUDED.name, email = EXCLUDED.email, age = EXCLUDED.age, " +
+            "user_created_at = EXCLUDED.user_created_at, user_version = EXCLUDED.user_version, " +
+            "created_at = EXCLUDED.created_at " +
+            "WHERE idempotency_keys.created_at < ?";
+
+    private static final String DELETE_EXPIRED_SQL = "DELETE FROM idempotency_keys WHERE created_at < ?";
+
+    private static final RowMapper<StoredResponse> STORED_RESPONSE_MAPPER = (rs, rowNum) -> new StoredResponse(
+            rs.getString("fingerprint"),
+            new UserView(
+                    rs.getLong("user_id"),
+                    rs.getString("name"),
+                    rs.getString("email"),
+                    (Integer) rs.getObject("age"),
+                    rs.getObject("user_created_at", LocalDateTime.class),
+                    rs.getLong("user_version")),
+            rs.getObject("created_at", LocalDateTime.class));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdempotencyKeyRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Optional<StoredResponse> find(String key, LocalDateTime notBefore) {
+        return jdbcTemplate.query(FIND_SQL, STORED_RESPONSE_MAPPER, key, notBefore).stream().findFirst();
+    }
+
+    // false — ключ уже занят действующей записью (её транзакция закоммичена первой)
+    public boolean insertIfAbsent(String key, StoredResponse response, LocalDateTime expiredBefore) {
+        UserView user = response.user();
+        return jdbcTemplate.update(INSERT_SQL, key, response.fingerprint(), user.id(), user.name(), user.email(),
+                user.age(), user.createdAt(), user.version(), response.savedAt(), expiredBefore) == 1;
+    }
+
+    public int deleteExpired(LocalDateTime expiredBefore) {
+        return jdbcTemplate.update(DELETE_EXPIRED_SQL, expiredBefore);
+    }
+
+    // ответ на первый запрос с ключом и SHA-256 его тела (hex)
+    public record StoredResponse(String fingerprint, UserView user, LocalDateTime savedAt) {
+    }
+}
@@ -0,0 +1,115 @@
+package ru.lisa.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.lisa.dto.BatchItemResult;
+import ru.lisa.dto.ImportJobStatus;
+
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public class ImportJobRepository {
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO import_jobs (id, state, format, compression, submitted_at, started_at, finished_at, " +
+            "rows_read, invalid, conflicts, created, errors, error, owner, heartbeat_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?::jsonb, ?, ?, ?) " +
+            "ON CONFLICT (id) DO UPDATE SET state = EXCLUDED.state, started_at = EXCLUDED.started_at, " +
+            "finished_at = EXCLUDED.finished_at, rows_read = EXCLUDED.rows_read, invalid = EXCLUDED.invalid, " +
+            "conflicts = EXCLUDED.conflicts, created = EXCLUDED.created, errors = EXCLUDED.errors, " +
+            "error = EXCLUDED.error, owner = EXCLUDED.owner, heartbeat_at = EXCLUDED.heartbeat_at";
+
+    private static final String FIND_SQL =
+            "SELECT id, state, format, compression, submitted_at, started_at, finished_at, " +
+            "rows_read, invalid, conflicts, created, errors, error FROM import_jobs WHERE id = ?";
+
+    private static final String OLDEST_UNFINISHED_SQL = "SELECT min(submitted_at) FROM import_jobs WHERE finished_at IS NULL";
+
+    private static final String FAIL_ABANDONED_SQL =
+            "UPDATE import_jobs SET state = 'FAILED', finished_at = ?, error = ? " +
+            "WHERE finished_at IS NULL AND (heartbeat_at IS NULL OR heartbeat_at < ?)";
+
+    private static final String DELETE_FINISHED_SQL = "DELETE FROM import_jobs WHERE finished_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final RowMapper<ImportJobStatus> statusMapper;
+
+    public ImportJobRepository(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.statusMapper = (rs, rowNum) -> new ImportJobStatus(
+                rs.getString("id"),
+                rs.getString("state"),
+                rs.getString("format"),
+                rs.getString("compression"),
+                rs.getObject("submitted_at", LocalDateTime.class),
+                rs.getObject("started_at", LocalDateTime.class),
+                rs.getObject("finished_at", LocalDateTime.class),
+                rs.getLong("rows_read"),
+                rs.getLong("invalid"),
+                rs.getLong("conflicts"),
+                rs.getLong("created"),
+                readErrors(rs.getString("errors")),
+                rs.getString("error"));
+    }
+
+    // owner и heartbeatAt — реплика, которая ведёт загрузку, и момент этой записи
+    public void save(ImportJobStatus status, String owner, LocalDateTime heartbeatAt) {
+        jdbcTemplate.update(UPSERT_SQL, status.id(), status.state(), status.format(), status.compression(),
+                status.submittedAt(), status.startedAt(), status.finishedAt(), status.rowsRead(), status.invalid(),
+                status.conflicts(), status.created(), writeErrors(status.errors()), status.error(), owner, heartbeatAt);
+    }
+
+    public Optional<ImportJobStatus> find(String id) {
+        return jdbcTemplate.query(FIND_SQL, statusMapper, id).stream().findFirst();
+    }
+
+    // приём самой ранней незавершённой загрузки на любой реплике; пусто — загрузок в работе нет
+    public Optional<LocalDateTime> findOldestUnfinishedSubmittedAt() {
+        return Optional.ofNullable(jdbcTemplate.queryForObject(OLDEST_UNFINISHED_SQL, LocalDateTime.class));
+    }
+
+    // незавершённые загрузки, которые их реплика не подтверждала с heartbeatBefore, — FAILED
+    public int failAbandoned(LocalDateTime heartbeatBefore, LocalDateTime finishedAt, String error) {
+        return jdbcTemplate.update(FAIL_ABANDONED_SQL, finishedAt, error, heartbeatBefore);
+    }
+
+    public int deleteFinishedBefore(LocalDateTime finishedBefore) {
+        return jdbcTemplate.update(DELETE_FINISHED_SQL, finishedBefore);
+    }
+
+    private String writeErrors(List<BatchItemResult> errors) {
+        try {
+            return objectMapper.writeValueAsString(errors);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // у BatchItemResult нет конструктора для Jackson, поэтому поля разбираются вручную
+    private List<BatchItemResult> readErrors(String json) {
+        try {
+            JsonNode array = objectMapper.readTree(json);
+            List<BatchItemResult> errors = new ArrayList<>(array.size());
+            for (JsonNode node : array) {
+                JsonNode id = node.get("id");
+                errors.add(BatchItemResult.failure(node.path("index").asInt(),
+                        id == null || id.isNull() ? null : id.asLong(),
+                        BatchItemResult.Status.valueOf(node.path("status").asText()),
+                        node.path("error").asText(null)));
+            }
+            return errors;
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
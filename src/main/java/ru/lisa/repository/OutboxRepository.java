@@ -0,0 +1,23 @@
+package ru.lisa.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.lisa.entity.OutboxEvent;
+
+import java.util.List;
+
+@Repository
+public interface OutboxRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // события одного пользователя всегда в одной части (mod по user_id), а часть разбирает одна реплика —
+    // та, что получила advisory lock; блокировка снимается вместе с транзакцией пачки
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:lockKey, :partition)", nativeQuery = true)
+    boolean tryLockPartition(@Param("lockKey") int lockKey, @Param("partition") int partition);
+
+    @Query(value = "SELECT * FROM outbox WHERE mod(coalesce(user_id, 0), :partitions) = :partition " +
+            "ORDER BY id LIMIT :limit FOR UPDATE", nativeQuery = true)
+    List<OutboxEvent> lockNextBatch(@Param("partitions") int partitions, @Param("partition") int partition,
+                                    @Param("limit") int limit);
+}
@@ -0,0 +1,45 @@
+package ru.lisa.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+// id для вставок через JdbcTemplate: DEFAULT nextval('users_id_seq') тратил бы по блоку из 50 id на строку.
+// Как pooled-оптимизатор Hibernate, один nextval, вернувший v, отдаёт реплике id v-49..v, поэтому блоки
+// не пересекаются ни с Hibernate, ни с UserImporter
+@Component
+public class UserIdAllocator {
+
+    // шаг users_id_seq (db/001) и allocationSize у User
+    static final int BLOCK_SIZE = 50;
+
+    private static final String NEXT_BLOCK_SQL = "SELECT nextval('users_id_seq')";
+
+    private final JdbcTemplate jdbcTemplate;
+    // под блокировкой идёт запрос к БД: synchronized с виртуальными потоками занял бы поток-носитель
+    private final ReentrantLock lock = new ReentrantLock();
+    private long next;
+    private long last = -1;
+
+    public UserIdAllocator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public long nextId() {
+        lock.lock();
+        try {
+            while (next > last) {
+                long hi = jdbcTemplate.queryForObject(NEXT_BLOCK_SQL, Long.class);
+                // значение меньше 50 (первое у новой последовательности) дало бы id < 1 — такой блок пропускается
+                if (hi >= BLOCK_SIZE) {
+                    next = hi - BLOCK_SIZE + 1;
+                    last = hi;
+                }
+            }
+            return next++;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,15 +1,22 @@
 package ru.lisa.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.lisa.entity.User;
 
-import java.util.Optional;
+import java.util.Collection;
+import java.util.List;
 
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
-    Optional<User> findByEmail(String email);
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
+    List<User> findByEmailIn(Collection<String> emails);
+
+    // только занятые email, без загрузки сущностей: один index-only проход по idx_user_email_unique
+    @Query("select u.email from User u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
 }
 
 
@@ -0,0 +1,39 @@
+package ru.lisa.repository;
+
+import ru.lisa.dto.UserView;
+import ru.lisa.entity.User;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+public interface UserRepositoryCustom {
+
+    record UpdatedUser(User user, String previousEmail) {
+    }
+
+    // Построчно читает пользователей с id > afterId через forward-only курсор, не накапливая их в памяти
+    void streamAll(long afterId, Consumer<User> consumer);
+
+    // Создаёт пользователя одним INSERT ... ON CONFLICT (email) DO NOTHING RETURNING:
+    // пустой Optional, если email уже занят (проверку выполняет уникальный индекс idx_user_email_unique)
+    Optional<User> insertIfEmailAbsent(String name, String email, Integer age);
+
+    // Обновляет пользователя одним запросом UPDATE ... RETURNING: возвращает новую версию строки
+    // и прежний email (для инвалидации кэша) или пустой Optional, если пользователя нет
+    // или его версия не равна expectedVersion (null — без проверки версии).
+    // Нарушение уникальности email приходит как DuplicateKeyException
+    Optional<UpdatedUser> updateReturning(long id, Long expectedVersion, String name, String email, Integer age);
+
+    // Чтения для API возвращают проекции UserView прямо из JDBC: без управляемых сущностей,
+    // снимков для dirty checking и flush перед запросом
+    Optional<UserView> findViewById(long id);
+
+    Optional<UserView> findViewByEmail(String email);
+
+    List<UserView> findViewsAfter(long afterId, int limit);
+
+    // Keyset-поиск по фильтрам UserSearchCriteria: каждая страница — один индексный диапазон
+    // без OFFSET, следующая начинается строго после (afterKey, afterId)
+    List<UserView> search(UserSearchCriteria criteria);
+}
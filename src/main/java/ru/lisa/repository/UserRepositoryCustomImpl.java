@@ -0,0 +1,192 @@
+package ru.lisa.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import ru.lisa.dto.UserView;
+import ru.lisa.entity.User;
+
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    static final RowMapper<User> USER_ROW_MAPPER = (rs, rowNum) -> {
+        User user = new User(rs.getString("name"), rs.getString("email"), (Integer) rs.getObject("age"));
+        user.setId(rs.getLong("id"));
+        user.setCreatedAt(rs.getObject("created_at", LocalDateTime.class));
+        user.setVersion(rs.getLong("version"));
+        return user;
+    };
+
+    static final RowMapper<UserView> USER_VIEW_MAPPER = (rs, rowNum) -> new UserView(
+            rs.getLong("id"),
+            rs.getString("name"),
+            rs.getString("email"),
+            (Integer) rs.getObject("age"),
+            rs.getObject("created_at", LocalDateTime.class),
+            rs.getLong("version"));
+
+    private static final String VIEW_BY_ID_SQL =
+            "SELECT id, name, email, age, created_at, version FROM users WHERE id = ?";
+
+    private static final String VIEW_BY_EMAIL_SQL =
+            "SELECT id, name, email, age, created_at, version FROM users WHERE email = ?";
+
+    private static final String VIEWS_AFTER_SQL =
+            "SELECT id, name, email, age, created_at, version FROM users WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String STREAM_SQL =
+            "SELECT id, name, email, age, created_at, version FROM users WHERE id > ? ORDER BY id";
+
+    // id выдаёт UserIdAllocator из блока реплики; при конфликте по email он просто не используется
+    private static final String INSERT_IF_EMAIL_ABSENT_SQL =
+            "INSERT INTO users (id, name, email, age, created_at, version) VALUES (?, ?, ?, ?, ?, 0) " +
+            "ON CONFLICT (email) DO NOTHING " +
+            "RETURNING id, name, email, age, created_at, version";
+
+    // подзапрос блокирует строку и видит её до обновления, поэтому прежний email приходит в том же ответе
+    private static final String UPDATE_RETURNING_SQL =
+            "UPDATE users u SET name = ?, email = ?, age = ?, version = u.version + 1 " +
+            "FROM (SELECT id, email FROM users WHERE id = ? FOR UPDATE) old " +
+            "WHERE u.id = old.id " +
+            "RETURNING u.id, u.name, u.email, u.age, u.created_at, u.version, old.email AS previous_email";
+
+    // то же, но только если версия строки совпадает с ожидаемой (If-Match)
+    private static final String UPDATE_IF_VERSION_RETURNING_SQL =
+            "UPDATE users u SET name = ?, email = ?, age = ?, version = u.version + 1 " +
+            "FROM (SELECT id, email FROM users WHERE id = ? FOR UPDATE) old " +
+            "WHERE u.id = old.id AND u.version = ? " +
+            "RETURNING u.id, u.name, u.email, u.age, u.created_at, u.version, old.email AS previous_email";
+
+    private static final String SEARCH_COLUMNS = "SELECT id, name, email, age, created_at, version FROM users";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserIdAllocator idAllocator;
+    private final int fetchSize;
+
+    public UserRepositoryCustomImpl(JdbcTemplate jdbcTemplate,
+                                    UserIdAllocator idAllocator,
+                                    @Value("${user.stream.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.idAllocator = idAllocator;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public void streamAll(long afterId, Consumer<User> consumer) {
+        // PostgreSQL отдаёт строки порциями по fetchSize только внутри транзакции (autocommit=false)
+        jdbcTemplate.query(connection -> {
+            var ps = connection.prepareStatement(STREAM_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ps.setLong(1, afterId);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(USER_ROW_MAPPER.mapRow(rs, 0)));
+    }
+
+    @Override
+    public Optional<User> insertIfEmailAbsent(String name, String email, Integer age) {
+        return jdbcTemplate.query(INSERT_IF_EMAIL_ABSENT_SQL, USER_ROW_MAPPER,
+                        idAllocator.nextId(), name, email, age, LocalDateTime.now())
+                .stream().findFirst();
+    }
+
+    @Override
+    public Optional<UpdatedUser> updateReturning(long id, Long expectedVersion, String name, String email, Integer age) {
+        RowMapper<UpdatedUser> mapper =
+                (rs, rowNum) -> new UpdatedUser(USER_ROW_MAPPER.mapRow(rs, rowNum), rs.getString("previous_email"));
+        List<UpdatedUser> updated = expectedVersion == null
+                ? jdbcTemplate.query(UPDATE_RETURNING_SQL, mapper, name, email, age, id)
+                : jdbcTemplate.query(UPDATE_IF_VERSION_RETURNING_SQL, mapper, name, email, age, id, expectedVersion);
+        return updated.stream().findFirst();
+    }
+
+    @Override
+    public Optional<UserView> findViewById(long id) {
+        return jdbcTemplate.query(VIEW_BY_ID_SQL, USER_VIEW_MAPPER, id).stream().findFirst();
+    }
+
+    @Override
+    public Optional<UserView> findViewByEmail(String email) {
+        return jdbcTemplate.query(VIEW_BY_EMAIL_SQL, USER_VIEW_MAPPER, email).stream().findFirst();
+    }
+
+    @Override
+    public List<UserView> findViewsAfter(long afterId, int limit) {
+        return jdbcTemplate.query(VIEWS_AFTER_SQL, USER_VIEW_MAPPER, afterId, limit);
+    }
+
+    @Override
+    public List<UserView> search(UserSearchCriteria criteria) {
+        StringBuilder sql = new StringBuilder(256).append(SEARCH_COLUMNS).append(" WHERE TRUE");
+        List<Object> args = new ArrayList<>(8);
+        if (criteria.namePrefix() != null) {
+            // префиксный LIKE по выражению в collation "C" идёт диапазоном по idx_users_name_lower_c.
+            // Регистр приводит lower() самой базы, как в индексе: toLowerCase в Java расходится с ним на части символов
+            sql.append(" AND lower(name) COLLATE \"C\" LIKE lower(?)");
+            args.add(escapeLike(criteria.namePrefix()) + "%");
+        }
+        if (criteria.minAge() != null) {
+            sql.append(" AND age >= ?");
+            args.add(criteria.minAge());
+        }
+        if (criteria.maxAge() != null) {
+            sql.append(" AND age <= ?");
+            args.add(criteria.maxAge());
+        }
+        if (criteria.createdFrom() != null) {
+            sql.append(" AND created_at >= ?");
+            args.add(criteria.createdFrom());
+        }
+        if (criteria.createdTo() != null) {
+            sql.append(" AND created_at < ?");
+            args.add(criteria.createdTo());
+        }
+
+        String key = switch (criteria.sort()) {
+            case ID -> null;
+            case NAME -> "lower(name) COLLATE \"C\"";
+            case CREATED_AT -> "created_at";
+        };
+        String comparison = criteria.descending() ? " < " : " > ";
+        if (criteria.afterId() != null) {
+            if (key == null) {
+                sql.append(" AND id").append(comparison).append('?');
+            } else {
+                // сравнение строк (key, id) > (?, ?) PostgreSQL раскрывает в диапазон по составному индексу;
+                // курсор NAME хранит имя как есть, ключ из него получается тем же lower(), что у строки
+                String afterKey = criteria.sort() == UserSearchCriteria.SortField.NAME ? "lower(?)" : "?";
+                sql.append(" AND (").append(key).append(", id)").append(comparison)
+                        .append('(').append(afterKey).append(", ?)");
+                args.add(criteria.afterKey());
+            }
+            args.add(criteria.afterId());
+        }
+
+        String direction = criteria.descending() ? " DESC" : " ASC";
+        sql.append(" ORDER BY ");
+        if (key != null) {
+            sql.append(key).append(direction).append(", ");
+        }
+        sql.append("id").append(direction).append(" LIMIT ?");
+        args.add(criteria.limit());
+        return jdbcTemplate.query(sql.toString(), USER_VIEW_MAPPER, args.toArray());
+    }
+
+    static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 4);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '%' || c == '_') {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,24 @@
+package ru.lisa.repository;
+
+import java.time.LocalDateTime;
+
+// Фильтры и порядок для поиска пользователей. afterKey/afterId — позиция последней строки
+// предыдущей страницы (keyset): значение поля сортировки и id как тай-брейкер
+public record UserSearchCriteria(String namePrefix,
+                                 Integer minAge,
+                                 Integer maxAge,
+                                 LocalDateTime createdFrom,
+                                 LocalDateTime createdTo,
+                                 SortField sort,
+                                 boolean descending,
+                                 Object afterKey,
+                                 Long afterId,
+                                 int limit) {
+
+    public enum SortField {
+        ID,
+        // по lower(name) в collation "C": тот же порядок, что у индекса idx_users_name_lower_c
+        NAME,
+        CREATED_AT
+    }
+}
@@ -0,0 +1,153 @@
+package ru.lisa.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.lisa.dto.UserView;
+import ru.lisa.exception.IdempotencyKeyReusedException;
+import ru.lisa.repository.IdempotencyKeyRepository;
+import ru.lisa.repository.IdempotencyKeyRepository.StoredResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Ответы на POST /api/users по Idempotency-Key: таблица idempotency_keys — общая для всех реплик,
+// Caffeine перед ней отвечает на повторы клиента, пришедшие в ту же реплику, без запроса к БД
+@Slf4j
+@Component
+public class IdempotencyStore implements MeterBinder {
+
+    private final IdempotencyKeyRepository repository;
+    private final Duration ttl;
+    private final Cache<String, StoredResponse> recent;
+    private final AtomicLong replayedFromMemory = new AtomicLong();
+    private final AtomicLong replayedFromDatabase = new AtomicLong();
+
+    public IdempotencyStore(IdempotencyKeyRepository repository,
+                            @Value("${user.idempotency.ttl:24h}") Duration ttl,
+                            @Value("${user.idempotency.max-size:100000}") long maxSize) {
+        this.repository = repository;
+        this.ttl = ttl;
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilStoredExpiry(ttl))
+                .recordStats()
+                .build();
+    }
+
+    // Ответ на первый запрос с этим ключом; тот же ключ с другим телом — ошибка клиента
+    public Optional<UserView> find(String key, String fingerprint) {
+        StoredResponse stored = recent.getIfPresent(key);
+        if (stored != null) {
+            replayedFromMemory.incrementAndGet();
+        } else {
+            stored = repository.find(key, LocalDateTime.now().minus(ttl)).orElse(null);
+            if (stored == null) {
+                return Optional.empty();
+            }
+            replayedFromDatabase.incrementAndGet();
+            recent.put(key, stored);
+        }
+        if (!stored.fingerprint().equals(fingerprint)) {
+            throw new IdempotencyKeyReusedException(key);
+        }
+        log.debug("Повтор запроса с Idempotency-Key '{}': возвращаем ответ для ID={}", key, stored.user().id());
+        return Optional.of(stored.user());
+    }
+
+    // Вызывается в транзакции создания: ключ и пользователь коммитятся или откатываются вместе
+    public void save(String key, String fingerprint, UserView user) {
+        LocalDateTime now = LocalDateTime.now();
+        StoredResponse stored = new StoredResponse(fingerprint, user, now);
+        if (!repository.insertIfAbsent(key, stored, now.minus(ttl))) {
+            // параллельный запрос с тем же ключом, но другим телом успел закоммитить свой результат
+            throw new IdempotencyKeyReusedException(key);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recent.put(key, stored);
+                }
+            });
+        } else {
+            recent.put(key, stored);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${user.idempotency.cleanup-interval:1m}")
+    public void deleteExpired() {
+        try {
+            int deleted = repository.deleteExpired(LocalDateTime.now().minus(ttl));
+            if (deleted > 0) {
+                log.debug("Удалено {} устаревших Idempotency-Key", deleted);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Не удалось удалить устаревшие Idempotency-Key, повторим на следующем цикле: {}", e.getMessage());
+        }
+    }
+
+    // SHA-256 тела запроса: 32-битный хэш совпадал у разных тел, и повтор ключа с другими данными получал чужой ответ.
+    // Каждое поле — длина в символах и значение, так что границы полей не сдвигаются. Та же формула пересчитывает
+    // сохранённые записи в db/007, поэтому менять её можно только вместе с новой миграцией
+    public static String fingerprint(String name, String email, Integer age) {
+        String body = field(name) + field(email) + field(age == null ? null : age.toString());
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(body.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    private static String field(String value) {
+        return value == null ? "-" : value.codePointCount(0, value.length()) + ":" + value;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, recent, "idempotency-keys");
+        FunctionCounter.builder("user.idempotency.replayed", replayedFromMemory, AtomicLong::get)
+                .tag("source", "memory")
+                .register(registry);
+        FunctionCounter.builder("user.idempotency.replayed", replayedFromDatabase, AtomicLong::get)
+                .tag("source", "database")
+                .register(registry);
+    }
+
+    // запись из БД живёт в памяти не дольше, чем осталось до её истечения в таблице
+    private record UntilStoredExpiry(Duration ttl) implements Expiry<String, StoredResponse> {
+
+        @Override
+        public long expireAfterCreate(String key, StoredResponse value, long currentTime) {
+            Duration left = Duration.between(LocalDateTime.now(), value.savedAt().plus(ttl));
+            return Math.max(0, left.toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, StoredResponse value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, StoredResponse value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package ru.lisa.service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.lisa.entity.User;
+
+public interface ReactiveUserService {
+    Mono<User> createUser(String name, String email, Integer age);
+
+    Mono<User> getUserById(Long id);
+
+    Mono<User> getUserByEmail(String email);
+
+    Flux<User> getUsers(Long afterId, int limit);
+
+    Flux<User> streamUsers(Long afterId);
+
+    Mono<User> updateUser(Long userId, Long expectedVersion, String name, String email, Integer age);
+
+    Mono<Boolean> deleteUser(Long id);
+}
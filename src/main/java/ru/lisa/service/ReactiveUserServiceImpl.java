@@ -0,0 +1,207 @@
+package ru.lisa.service;
+
+import io.r2dbc.spi.Readable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.lisa.entity.User;
+import ru.lisa.event.EventType;
+import ru.lisa.exception.EmailAlreadyExistsException;
+import ru.lisa.exception.InvalidUserDataException;
+import ru.lisa.exception.UserNotFoundException;
+import ru.lisa.kafka.UserEventProducer;
+
+import java.time.LocalDateTime;
+
+// Неблокирующая реализация поверх R2DBC и той же схемы users, что и UserServiceImpl.
+// id берутся из users_id_seq через DEFAULT: одно значение nextval на строку не пересекается
+// с блоками, которые выдаёт pooled-оптимизатор Hibernate (значение последовательности — верхняя граница блока)
+@Slf4j
+@Service
+@Profile("reactive")
+public class ReactiveUserServiceImpl implements ReactiveUserService {
+
+    private static final String COLUMNS = "id, name, email, age, created_at, version";
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final UserEventProducer userEventProducer;
+    private final boolean outboxDelivery;
+    private final int fetchSize;
+
+    public ReactiveUserServiceImpl(DatabaseClient databaseClient,
+                                   TransactionalOperator reactiveTransactionalOperator,
+                                   UserEventProducer userEventProducer,
+                                   @Value("${user.events.delivery:outbox}") String delivery,
+                                   @Value("${user.stream.fetch-size:1000}") int fetchSize) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = reactiveTransactionalOperator;
+        this.userEventProducer = userEventProducer;
+        this.outboxDelivery = "outbox".equals(delivery);
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public Mono<User> createUser(String name, String email, Integer age) {
+        return Mono.fromRunnable(() -> UserValidator.validateUserData(name, email, age))
+                .then(databaseClient.sql("INSERT INTO users (name, email, age, created_at, version) " +
+                                "VALUES (:name, :email, :age, :createdAt, 0) RETURNING " + COLUMNS)
+                        .bind("name", name)
+                        .bind("email", email)
+                        .bind("age", age)
+                        .bind("createdAt", LocalDateTime.now())
+                        .map(ReactiveUserServiceImpl::toUser)
+                        .one())
+                .flatMap(user -> publish(EventType.CREATED, user.getId(), email).thenReturn(user))
+                .as(transactionalOperator::transactional)
+                // занятость email проверяет уникальный индекс, без предварительного SELECT
+                .onErrorMap(DataIntegrityViolationException.class, e -> emailTaken(email))
+                .doOnSuccess(user -> afterCommit(EventType.CREATED, user.getId(), email))
+                .doOnNext(user -> log.info("Создан новый пользователь: ID={}, email={}", user.getId(), email));
+    }
+
+    @Override
+    public Mono<User> getUserById(Long id) {
+        if (id == null || id <= 0) {
+            return Mono.error(new InvalidUserDataException("ID должен быть положительным числом"));
+        }
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM users WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveUserServiceImpl::toUser)
+                .one();
+    }
+
+    @Override
+    public Mono<User> getUserByEmail(String email) {
+        if (email == null || email.trim().isEmpty()) {
+            return Mono.error(new InvalidUserDataException("Email не может быть пустым"));
+        }
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM users WHERE email = :email")
+                .bind("email", email)
+                .map(ReactiveUserServiceImpl::toUser)
+                .one();
+    }
+
+    @Override
+    public Flux<User> getUsers(Long afterId, int limit) {
+        return Mono.fromRunnable(() -> {
+                    UserValidator.validateAfterId(afterId);
+                    UserValidator.validatePageSize(limit);
+                })
+                .thenMany(databaseClient.sql("SELECT " + COLUMNS + " FROM users WHERE id > :after ORDER BY id LIMIT :limit")
+                        .bind("after", afterId == null ? 0L : afterId)
+                        .bind("limit", limit)
+                        .map(ReactiveUserServiceImpl::toUser)
+                        .all());
+    }
+
+    @Override
+    public Flux<User> streamUsers(Long afterId) {
+        // строки приходят порциями по fetchSize по мере запроса подписчиком (backpressure до сокета)
+        return Mono.fromRunnable(() -> UserValidator.validateAfterId(afterId))
+                .thenMany(databaseClient.sql("SELECT " + COLUMNS + " FROM users WHERE id > :after ORDER BY id")
+                        .filter(statement -> statement.fetchSize(fetchSize))
+                        .bind("after", afterId == null ? 0L : afterId)
+                        .map(ReactiveUserServiceImpl::toUser)
+                        .all()
+                        .as(transactionalOperator::transactional));
+    }
+
+    @Override
+    public Mono<User> updateUser(Long userId, Long expectedVersion, String name, String email, Integer age) {
+        if (userId == null || userId <= 0) {
+            return Mono.error(new InvalidUserDataException("Некорректный ID пользователя"));
+        }
+        String sql = "UPDATE users u SET name = :name, email = :email, age = :age, version = u.version + 1 " +
+                "FROM (SELECT id FROM users WHERE id = :id FOR UPDATE) old WHERE u.id = old.id" +
+                (expectedVersion != null ? " AND u.version = :version" : "") +
+                " RETURNING u.id, u.name, u.email, u.age, u.created_at, u.version";
+        return Mono.fromRunnable(() -> UserValidator.validateUserData(name, email, age))
+                .then(Mono.defer(() -> {
+                    DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql)
+                            .bind("name", name)
+                            .bind("email", email)
+                            .bind("age", age)
+                            .bind("id", userId);
+                    if (expectedVersion != null) {
+                        spec = spec.bind("version", expectedVersion);
+                    }
+                    return spec.map(ReactiveUserServiceImpl::toUser).one();
+                }))
+                .switchIfEmpty(Mono.defer(() -> notUpdated(userId, expectedVersion)))
+                .flatMap(user -> publish(EventType.UPDATED, userId, email).thenReturn(user))
+                .as(transactionalOperator::transactional)
+                .onErrorMap(DataIntegrityViolationException.class, e -> emailTaken(email))
+                .doOnSuccess(user -> afterCommit(EventType.UPDATED, userId, email));
+    }
+
+    @Override
+    public Mono<Boolean> deleteUser(Long id) {
+        if (id == null || id <= 0) {
+            return Mono.error(new InvalidUserDataException("Некорректный ID пользователя"));
+        }
+        return databaseClient.sql("DELETE FROM users WHERE id = :id RETURNING email")
+                .bind("id", id)
+                .map(row -> row.get("email", String.class))
+                .one()
+                .flatMap(email -> publish(EventType.DELETED, id, email).thenReturn(email))
+                .as(transactionalOperator::transactional)
+                .doOnNext(email -> afterCommit(EventType.DELETED, id, email))
+                .map(email -> true)
+                .defaultIfEmpty(false);
+    }
+
+    private Mono<User> notUpdated(Long userId, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return Mono.error(UserNotFoundException.byId(userId));
+        }
+        return databaseClient.sql("SELECT 1 FROM users WHERE id = :id")
+                .bind("id", userId)
+                .map(row -> true)
+                .one()
+                .flatMap(exists -> Mono.<User>error(
+                        new OptimisticLockingFailureException("Пользователь с ID " + userId + " был изменён другим запросом")))
+                .switchIfEmpty(Mono.error(UserNotFoundException.byId(userId)));
+    }
+
+    // при доставке через outbox событие пишется в той же R2DBC-транзакции, что и изменение users
+    private Mono<Void> publish(EventType eventType, Long userId, String email) {
+        if (!outboxDelivery) {
+            return Mono.empty();
+        }
+        return databaseClient.sql("INSERT INTO outbox (event_type, user_id, email, created_at) " +
+                        "VALUES (:eventType, :userId, :email, :createdAt)")
+                .bind("eventType", eventType.name())
+                .bind("userId", userId)
+                .bind("email", email)
+                .bind("createdAt", LocalDateTime.now())
+                .then();
+    }
+
+    // очередь в памяти (delivery=queue) получает событие только после коммита
+    private void afterCommit(EventType eventType, Long userId, String email) {
+        if (!outboxDelivery && userId != null) {
+            userEventProducer.send(eventType, userId, email);
+        }
+    }
+
+    private static EmailAlreadyExistsException emailTaken(String email) {
+        log.warn("Конфликт email: '{}' уже используется", email);
+        return new EmailAlreadyExistsException(email);
+    }
+
+    private static User toUser(Readable row) {
+        User user = new User(row.get("name", String.class), row.get("email", String.class), row.get("age", Integer.class));
+        user.setId(row.get("id", Long.class));
+        user.setCreatedAt(row.get("created_at", LocalDateTime.class));
+        user.setVersion(row.get("version", Long.class));
+        return user;
+    }
+}
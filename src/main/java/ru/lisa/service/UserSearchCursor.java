@@ -0,0 +1,49 @@
+package ru.lisa.service;
+
+import ru.lisa.dto.UserView;
+import ru.lisa.exception.InvalidRequestException;
+import ru.lisa.repository.UserSearchCriteria.SortField;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Непрозрачный курсор поиска: поле сортировки, id и значение ключа последней строки страницы в base64url.
+// Для NAME хранится имя как есть — в ключ сортировки его переводит lower() в запросе.
+// Курсор действителен только для той же сортировки, с которой получен
+public record UserSearchCursor(Object key, long id) {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    public static String encode(SortField sort, UserView last) {
+        String key = switch (sort) {
+            case ID -> "";
+            case NAME -> last.name();
+            case CREATED_AT -> last.createdAt().toString();
+        };
+        String raw = sort.name() + ':' + last.id() + ':' + key;
+        return ENCODER.encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static UserSearchCursor decode(String cursor, SortField sort) {
+        try {
+            String raw = new String(DECODER.decode(cursor), StandardCharsets.UTF_8);
+            int first = raw.indexOf(':');
+            int second = raw.indexOf(':', first + 1);
+            if (first < 0 || second < 0 || !raw.substring(0, first).equals(sort.name())) {
+                throw new IllegalArgumentException("Курсор получен для другой сортировки");
+            }
+            long id = Long.parseLong(raw.substring(first + 1, second));
+            String key = raw.substring(second + 1);
+            return switch (sort) {
+                case ID -> new UserSearchCursor(null, id);
+                case NAME -> new UserSearchCursor(key, id);
+                case CREATED_AT -> new UserSearchCursor(LocalDateTime.parse(key), id);
+            };
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidRequestException("Некорректный курсор поиска");
+        }
+    }
+}
@@ -1,18 +1,39 @@
 package ru.lisa.service;
 
+import ru.lisa.dto.BatchItemResult;
+import ru.lisa.dto.UserView;
 import ru.lisa.entity.User;
+import ru.lisa.repository.UserSearchCriteria;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface UserService {
-    Long createUser(String name, String email, Integer age);
+    User createUser(String name, String email, Integer age);
 
-    Optional<User> getUserById(Long id);
+    UserView createUser(String idempotencyKey, String name, String email, Integer age);
 
-    List<User> getAllUsers();
+    Optional<UserView> getUserById(Long id);
 
-    void updateUser(Long userId, String name, String email, Integer age);
+    Optional<UserView> getUserByEmail(String email);
+
+    List<UserView> getUsers(Long afterId, int limit);
+
+    void streamUsers(Long afterId, Consumer<User> consumer);
+
+    List<UserView> searchUsers(UserSearchCriteria criteria);
+
+    User updateUser(Long userId, Long expectedVersion, String name, String email, Integer age);
 
     boolean deleteUser(Long id);
+
+    Map<String, Boolean> emailsExist(List<String> emails);
+
+    List<BatchItemResult> createUsers(List<User> users);
+
+    List<BatchItemResult> updateUsers(List<User> users);
+
+    List<BatchItemResult> deleteUsers(List<Long> ids);
 }
@@ -1,94 +1,186 @@
 package ru.lisa.service;
 
-import jakarta.transaction.Transactional;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.lisa.cache.UserCache;
+import ru.lisa.dto.BatchItemResult;
+import ru.lisa.dto.BatchItemResult.Status;
+import ru.lisa.dto.UserView;
 import ru.lisa.entity.User;
 import ru.lisa.event.EventType;
+import ru.lisa.exception.EmailAlreadyExistsException;
+import ru.lisa.exception.InvalidUserDataException;
+import ru.lisa.exception.UserNotFoundException;
 import ru.lisa.kafka.UserEventProducer;
 import ru.lisa.repository.UserRepository;
+import ru.lisa.repository.UserRepositoryCustom.UpdatedUser;
+import ru.lisa.repository.UserSearchCriteria;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
 @Transactional
 @RequiredArgsConstructor
+// таймер user.service с тегами class/method/exception на каждый публичный метод
+@Timed("user.service")
 public class UserServiceImpl implements UserService {
 
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_BATCH_SIZE = 1000;
+
     private final UserRepository userRepository;
     private final UserEventProducer userEventProducer;
+    private final UserCache userCache;
+    private final IdempotencyStore idempotencyStore;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
-    public Long createUser(String name, String email, Integer age) {
+    public User createUser(String name, String email, Integer age) {
         log.debug("Попытка создания пользователя: name={}, email={}, age={}", name, email, age);
-        validateUserData(name, email, age);
+        UserValidator.validateUserData(name, email, age);
 
-        if (userRepository.findByEmail(email).isPresent()) {
+        // один INSERT ... ON CONFLICT вместо findByEmail + save: занятость email проверяет уникальный индекс,
+        // и конкурентное создание с тем же email не проходит между проверкой и вставкой
+        User savedUser = userRepository.insertIfEmailAbsent(name, email, age).orElseThrow(() -> {
             log.warn("Попытка создания пользователя с существующим email: {}", email);
-            throw new IllegalArgumentException("Пользователь с email '" + email + "' уже существует");
-        }
-
-        User newUser = new User(name, email, age);
-        User savedUser = userRepository.save(newUser);
+            return new EmailAlreadyExistsException(email);
+        });
 
-        userEventProducer.send(EventType.CREATED, email);
+        userEventProducer.send(EventType.CREATED, savedUser.getId(), email);
         log.info("Создан новый пользователь: ID={}, email={}. Событие отправлено в Kafka.", savedUser.getId(), email);
 
-        return savedUser.getId();
+        return savedUser;
     }
 
+    // Повтор запроса с тем же Idempotency-Key отвечает из IdempotencyStore, не трогая users и Kafka.
+    // Проверка идёт вне транзакции, чтобы попадание в память не занимало соединение из пула
     @Override
-    public Optional<User> getUserById(Long id) {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public UserView createUser(String idempotencyKey, String name, String email, Integer age) {
+        String fingerprint = IdempotencyStore.fingerprint(name, email, age);
+        Optional<UserView> replay = idempotencyStore.find(idempotencyKey, fingerprint);
+        if (replay.isPresent()) {
+            return replay.get();
+        }
+        try {
+            return transactionTemplate.execute(status -> {
+                User user = createUser(name, email, age);
+                UserView view = new UserView(user.getId(), user.getName(), user.getEmail(), user.getAge(),
+                        user.getCreatedAt(), user.getVersion());
+                idempotencyStore.save(idempotencyKey, fingerprint, view);
+                return view;
+            });
+        } catch (EmailAlreadyExistsException e) {
+            // параллельный запрос с тем же ключом создал пользователя первым: INSERT дождался его коммита
+            return idempotencyStore.find(idempotencyKey, fingerprint).orElseThrow(() -> e);
+        }
+    }
+
+    // Чтения одним SELECT не открывают транзакцию (SUPPORTS): попадание в кэш не занимает соединение из пула,
+    // а промах выполняет запрос в autocommit. readOnly остаётся, если метод вызван внутри чужой транзакции
+    @Override
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public Optional<UserView> getUserById(Long id) {
         if (id == null || id <= 0) {
             log.warn("Получен некорректный ID: {}", id);
-            throw new IllegalArgumentException("ID должен быть положительным числом");
+            throw new InvalidUserDataException("ID должен быть положительным числом");
         }
         log.debug("Запрос пользователя с ID: {}", id);
-        return userRepository.findById(id);
+        return userCache.getById(id, userRepository::findViewById);
+    }
+
+    @Override
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public Optional<UserView> getUserByEmail(String email) {
+        if (email == null || email.trim().isEmpty()) {
+            throw new InvalidUserDataException("Email не может быть пустым");
+        }
+        log.debug("Запрос пользователя с email: {}", email);
+        return userCache.getByEmail(email, userRepository::findViewByEmail);
     }
 
     @Override
-    public List<User> getAllUsers() {
-        log.debug("Запрос списка всех пользователей");
-        List<User> users = userRepository.findAll();
-        log.info("Получено {} пользователей", users.size());
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public List<UserView> getUsers(Long afterId, int limit) {
+        UserValidator.validateAfterId(afterId);
+        UserValidator.validatePageSize(limit);
+        log.debug("Запрос страницы пользователей: after={}, limit={}", afterId, limit);
+        List<UserView> users = userRepository.findViewsAfter(afterId == null ? 0L : afterId, limit);
+        log.debug("Получено {} пользователей", users.size());
         return users;
     }
 
+    // курсор с fetchSize работает только внутри транзакции; read-only — без flush и с BEGIN READ ONLY на стороне БД
     @Override
-    public void updateUser(Long userId, String name, String email, Integer age) {
+    @Transactional(readOnly = true)
+    public void streamUsers(Long afterId, Consumer<User> consumer) {
+        UserValidator.validateAfterId(afterId);
+        log.debug("Потоковая выгрузка пользователей: after={}", afterId);
+        userRepository.streamAll(afterId == null ? 0L : afterId, consumer);
+    }
+
+    @Override
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public List<UserView> searchUsers(UserSearchCriteria criteria) {
+        UserValidator.validateSearchCriteria(criteria);
+        log.debug("Поиск пользователей: {}", criteria);
+        return userRepository.search(criteria);
+    }
+
+    @Override
+    public User updateUser(Long userId, Long expectedVersion, String name, String email, Integer age) {
         if (userId == null || userId <= 0) {
-            throw new IllegalArgumentException("Некорректный ID пользователя");
+            throw new InvalidUserDataException("Некорректный ID пользователя");
         }
-        validateUserData(name, email, age);
-
-        User existingUser = userRepository.findById(userId)
-                .orElseThrow(() -> {
-                    log.error("Пользователь с ID {} не найден для обновления", userId);
-                    return new IllegalArgumentException("Пользователь с ID " + userId + " не найден");
-                });
+        UserValidator.validateUserData(name, email, age);
 
-        if (!existingUser.getEmail().equals(email)) {
-            if (userRepository.findByEmail(email).isPresent()) {
-                log.warn("Конфликт email: '{}' уже используется", email);
-                throw new IllegalArgumentException("Пользователь с email '" + email + "' уже существует");
+        // один запрос вместо findById + findByEmail + save: занятость email проверяет уникальный индекс
+        Optional<UpdatedUser> result;
+        try {
+            result = userRepository.updateReturning(userId, expectedVersion, name, email, age);
+        } catch (DuplicateKeyException e) {
+            log.warn("Конфликт email: '{}' уже используется", email);
+            throw new EmailAlreadyExistsException(email);
+        }
+        if (result.isEmpty()) {
+            // ноль строк: либо пользователя нет, либо версия не совпала — различаем только на этом редком пути
+            if (expectedVersion != null && userRepository.existsById(userId)) {
+                log.warn("Пользователь с ID {} изменён другим запросом, ожидалась версия {}", userId, expectedVersion);
+                throw new OptimisticLockingFailureException("Пользователь с ID " + userId + " был изменён другим запросом");
             }
+            log.error("Пользователь с ID {} не найден для обновления", userId);
+            throw UserNotFoundException.byId(userId);
         }
+        UpdatedUser updated = result.get();
 
-        existingUser.setName(name);
-        existingUser.setEmail(email);
-        existingUser.setAge(age);
-        userRepository.save(existingUser);
+        userCache.evictAfterCommit(userId, updated.previousEmail(), email);
+
+        userEventProducer.send(EventType.UPDATED, userId, email);
         log.info("Пользователь с ID {} успешно обновлён", userId);
+        return updated.user();
     }
 
     @Override
     public boolean deleteUser(Long id) {
         if (id == null || id <= 0) {
-            throw new IllegalArgumentException("Некорректный ID пользователя");
+            throw new InvalidUserDataException("Некорректный ID пользователя");
         }
 
         Optional<User> userOpt = userRepository.findById(id);
@@ -99,28 +191,199 @@ public class UserServiceImpl implements UserService {
 
         String email = userOpt.get().getEmail();
         userRepository.deleteById(id);
+        userCache.evictAfterCommit(id, email);
 
-        userEventProducer.send(EventType.DELETED, email);
+        userEventProducer.send(EventType.DELETED, id, email);
         log.info("Пользователь с ID {} успешно удалён. Событие отправлено в Kafka.", id);
 
         return true;
     }
 
-    private void validateUserData(String name, String email, Integer age) {
-        if (name == null || name.trim().isEmpty()) {
-            throw new IllegalArgumentException("Имя не может быть пустым");
+    @Override
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public Map<String, Boolean> emailsExist(List<String> emails) {
+        validateBatchSize(emails);
+        Set<String> requested = new HashSet<>(emails.size() * 2);
+        for (String email : emails) {
+            if (email == null || email.isBlank()) {
+                throw new InvalidUserDataException("Email не может быть пустым");
+            }
+            requested.add(email);
         }
-        if (name.trim().length() > 100) {
-            throw new IllegalArgumentException("Имя не может превышать 100 символов");
+        Set<String> existing = new HashSet<>(userRepository.findExistingEmails(requested));
+        Map<String, Boolean> result = new LinkedHashMap<>(emails.size() * 2);
+        for (String email : emails) {
+            result.put(email, existing.contains(email));
         }
-        if (email == null || email.trim().isEmpty()) {
-            throw new IllegalArgumentException("Email не может быть пустым");
+        log.debug("Проверка занятости email: запрошено {}, занято {}", requested.size(), existing.size());
+        return result;
+    }
+
+    @Override
+    public List<BatchItemResult> createUsers(List<User> users) {
+        validateBatchSize(users);
+        BatchItemResult[] results = new BatchItemResult[users.size()];
+
+        // Отбрасываем невалидные элементы и дубликаты email внутри самого пакета
+        Map<String, Integer> indexByEmail = new HashMap<>();
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            try {
+                UserValidator.validateUserData(user.getName(), user.getEmail(), user.getAge());
+            } catch (InvalidUserDataException e) {
+                results[i] = BatchItemResult.failure(i, null, Status.INVALID, e.getMessage());
+                continue;
+            }
+            if (indexByEmail.putIfAbsent(user.getEmail(), i) != null) {
+                results[i] = BatchItemResult.failure(i, null, Status.CONFLICT,
+                        "Email '" + user.getEmail() + "' повторяется в пакете");
+            }
+        }
+
+        // Один запрос на проверку всех email вместо findByEmail на каждый элемент
+        for (String existing : userRepository.findExistingEmails(indexByEmail.keySet())) {
+            int i = indexByEmail.remove(existing);
+            results[i] = BatchItemResult.failure(i, null, Status.CONFLICT,
+                    "Пользователь с email '" + existing + "' уже существует");
+        }
+
+        List<User> toSave = new ArrayList<>(indexByEmail.size());
+        for (int i : indexByEmail.values()) {
+            User user = users.get(i);
+            toSave.add(new User(user.getName(), user.getEmail(), user.getAge()));
         }
-        if (age == null) {
-            throw new IllegalArgumentException("Возраст не может быть null");
+        // id выделяются из последовательности блоками, INSERT уходят JDBC-пакетами при flush
+        for (User saved : userRepository.saveAll(toSave)) {
+            int i = indexByEmail.get(saved.getEmail());
+            results[i] = BatchItemResult.success(i, saved.getId(), Status.CREATED);
+            userEventProducer.send(EventType.CREATED, saved.getId(), saved.getEmail());
+        }
+
+        log.info("Пакетное создание: запрошено {}, создано {}", users.size(), toSave.size());
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public List<BatchItemResult> updateUsers(List<User> users) {
+        validateBatchSize(users);
+        BatchItemResult[] results = new BatchItemResult[users.size()];
+
+        Map<Long, Integer> indexById = new HashMap<>();
+        Map<String, Integer> indexByEmail = new HashMap<>();
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            try {
+                if (user.getId() == null || user.getId() <= 0) {
+                    throw new InvalidUserDataException("Некорректный ID пользователя");
+                }
+                UserValidator.validateUserData(user.getName(), user.getEmail(), user.getAge());
+            } catch (InvalidUserDataException e) {
+                results[i] = BatchItemResult.failure(i, user.getId(), Status.INVALID, e.getMessage());
+                continue;
+            }
+            if (indexById.putIfAbsent(user.getId(), i) != null) {
+                results[i] = BatchItemResult.failure(i, user.getId(), Status.INVALID,
+                        "ID " + user.getId() + " повторяется в пакете");
+            } else if (indexByEmail.putIfAbsent(user.getEmail(), i) != null) {
+                indexById.remove(user.getId());
+                results[i] = BatchItemResult.failure(i, user.getId(), Status.CONFLICT,
+                        "Email '" + user.getEmail() + "' повторяется в пакете");
+            }
+        }
+
+        Map<Long, User> existingById = new HashMap<>();
+        for (User existing : userRepository.findAllById(indexById.keySet())) {
+            existingById.put(existing.getId(), existing);
+        }
+
+        Set<String> changedEmails = new HashSet<>();
+        for (Map.Entry<Long, Integer> entry : indexById.entrySet()) {
+            User existing = existingById.get(entry.getKey());
+            String email = users.get(entry.getValue()).getEmail();
+            if (existing != null && !existing.getEmail().equals(email)) {
+                changedEmails.add(email);
+            }
+        }
+        Map<String, Long> ownerByEmail = new HashMap<>();
+        if (!changedEmails.isEmpty()) {
+            for (User owner : userRepository.findByEmailIn(changedEmails)) {
+                ownerByEmail.put(owner.getEmail(), owner.getId());
+            }
+        }
+
+        int updated = 0;
+        for (Map.Entry<Long, Integer> entry : indexById.entrySet()) {
+            Long id = entry.getKey();
+            int i = entry.getValue();
+            User update = users.get(i);
+            User existing = existingById.get(id);
+            if (existing == null) {
+                results[i] = BatchItemResult.failure(i, id, Status.NOT_FOUND,
+                        "Пользователь с ID " + id + " не найден");
+                continue;
+            }
+            Long owner = ownerByEmail.get(update.getEmail());
+            if (owner != null && !owner.equals(id)) {
+                results[i] = BatchItemResult.failure(i, id, Status.CONFLICT,
+                        "Пользователь с email '" + update.getEmail() + "' уже существует");
+                continue;
+            }
+            // изменения сбрасываются dirty checking'ом при коммите, UPDATE группируются в JDBC batch
+            userCache.evictAfterCommit(id, existing.getEmail(), update.getEmail());
+            existing.setName(update.getName());
+            existing.setEmail(update.getEmail());
+            existing.setAge(update.getAge());
+            results[i] = BatchItemResult.success(i, id, Status.UPDATED);
+            userEventProducer.send(EventType.UPDATED, id, update.getEmail());
+            updated++;
+        }
+
+        log.info("Пакетное обновление: запрошено {}, обновлено {}", users.size(), updated);
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public List<BatchItemResult> deleteUsers(List<Long> ids) {
+        validateBatchSize(ids);
+        BatchItemResult[] results = new BatchItemResult[ids.size()];
+
+        Map<Long, Integer> indexById = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            if (id == null || id <= 0) {
+                results[i] = BatchItemResult.failure(i, id, Status.INVALID, "Некорректный ID пользователя");
+            } else if (indexById.putIfAbsent(id, i) != null) {
+                results[i] = BatchItemResult.failure(i, id, Status.INVALID, "ID " + id + " повторяется в пакете");
+            }
+        }
+
+        List<User> found = userRepository.findAllById(indexById.keySet());
+        if (!found.isEmpty()) {
+            // один DELETE ... WHERE id IN (...) вместо удаления по одному
+            userRepository.deleteAllInBatch(found);
+        }
+        for (User user : found) {
+            int i = indexById.remove(user.getId());
+            results[i] = BatchItemResult.success(i, user.getId(), Status.DELETED);
+            userCache.evictAfterCommit(user.getId(), user.getEmail());
+            userEventProducer.send(EventType.DELETED, user.getId(), user.getEmail());
+        }
+        for (Map.Entry<Long, Integer> entry : indexById.entrySet()) {
+            int i = entry.getValue();
+            results[i] = BatchItemResult.failure(i, entry.getKey(), Status.NOT_FOUND,
+                    "Пользователь с ID " + entry.getKey() + " не найден");
+        }
+
+        log.info("Пакетное удаление: запрошено {}, удалено {}", ids.size(), found.size());
+        return Arrays.asList(results);
+    }
+
+    private void validateBatchSize(List<?> items) {
+        if (items == null || items.isEmpty()) {
+            throw new InvalidUserDataException("Пакет не может быть пустым");
         }
-        if (age < 0 || age > 150) {
-            throw new IllegalArgumentException("Возраст должен быть в диапазоне от 0 до 150 лет");
+        if (items.size() > MAX_BATCH_SIZE) {
+            throw new InvalidUserDataException("Размер пакета не может превышать " + MAX_BATCH_SIZE);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,61 @@
+package ru.lisa.service;
+
+import ru.lisa.exception.InvalidUserDataException;
+import ru.lisa.repository.UserSearchCriteria;
+
+// Проверки входных данных, общие для UserServiceImpl и ReactiveUserServiceImpl
+public final class UserValidator {
+
+    private UserValidator() {
+    }
+
+    public static void validateUserData(String name, String email, Integer age) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new InvalidUserDataException("Имя не может быть пустым");
+        }
+        if (name.trim().length() > 100) {
+            throw new InvalidUserDataException("Имя не может превышать 100 символов");
+        }
+        if (email == null || email.trim().isEmpty()) {
+            throw new InvalidUserDataException("Email не может быть пустым");
+        }
+        if (age == null) {
+            throw new InvalidUserDataException("Возраст не может быть null");
+        }
+        if (age < 0 || age > 150) {
+            throw new InvalidUserDataException("Возраст должен быть в диапазоне от 0 до 150 лет");
+        }
+    }
+
+    public static void validateAfterId(Long afterId) {
+        if (afterId != null && afterId < 0) {
+            throw new InvalidUserDataException("Курсор after не может быть отрицательным");
+        }
+    }
+
+    public static void validatePageSize(int limit) {
+        if (limit <= 0 || limit > UserServiceImpl.MAX_PAGE_SIZE) {
+            throw new InvalidUserDataException("Размер страницы должен быть в диапазоне от 1 до " + UserServiceImpl.MAX_PAGE_SIZE);
+        }
+    }
+
+    public static void validateSearchCriteria(UserSearchCriteria criteria) {
+        validatePageSize(criteria.limit());
+        if (criteria.sort() == null) {
+            throw new InvalidUserDataException("Не указано поле сортировки");
+        }
+        if (criteria.namePrefix() != null && (criteria.namePrefix().isBlank() || criteria.namePrefix().length() > 100)) {
+            throw new InvalidUserDataException("Префикс имени должен содержать от 1 до 100 символов");
+        }
+        if (criteria.minAge() != null && criteria.maxAge() != null && criteria.minAge() > criteria.maxAge()) {
+            throw new InvalidUserDataException("Минимальный возраст не может быть больше максимального");
+        }
+        if (criteria.createdFrom() != null && criteria.createdTo() != null
+                && !criteria.createdFrom().isBefore(criteria.createdTo())) {
+            throw new InvalidUserDataException("Начало периода createdFrom должно быть раньше createdTo");
+        }
+        if (criteria.afterId() != null && criteria.sort() != UserSearchCriteria.SortField.ID && criteria.afterKey() == null) {
+            throw new InvalidUserDataException("Курсор поиска не содержит значения ключа сортировки");
+        }
+    }
+}
@@ -0,0 +1,8 @@
+-- Перевод users.id с IDENTITY на последовательность с шагом 50.
+-- Hibernate (pooled optimizer) берёт из неё блок из 50 id за один вызов nextval,
+-- что позволяет отправлять INSERT пакетами (hibernate.jdbc.batch_size).
+ALTER TABLE users ALTER COLUMN id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE IF NOT EXISTS users_id_seq INCREMENT BY 50;
+SELECT setval('users_id_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM users));
+ALTER TABLE users ALTER COLUMN id SET DEFAULT nextval('users_id_seq');
+ALTER SEQUENCE users_id_seq OWNED BY users.id;
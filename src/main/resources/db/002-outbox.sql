@@ -0,0 +1,13 @@
+-- Transactional outbox: события пишутся в одной транзакции с изменением users,
+-- OutboxRelay вычитывает их пачками (FOR UPDATE SKIP LOCKED) и публикует в Kafka.
+CREATE SEQUENCE IF NOT EXISTS outbox_id_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS outbox (
+    id         BIGINT      PRIMARY KEY DEFAULT nextval('outbox_id_seq'),
+    event_type VARCHAR(20) NOT NULL,
+    user_id    BIGINT,
+    email      VARCHAR(100),
+    created_at TIMESTAMP   NOT NULL DEFAULT now()
+);
+
+ALTER SEQUENCE outbox_id_seq OWNED BY outbox.id;
@@ -0,0 +1,3 @@
+-- Версия строки для оптимистичной блокировки (@Version в User): отдаётся клиентам как ETag,
+-- PUT с If-Match обновляет строку только при совпадении версии.
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
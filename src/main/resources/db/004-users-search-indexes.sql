@@ -0,0 +1,13 @@
+-- Индексы для GET /api/users/search (keyset-пагинация по (ключ сортировки, id)).
+-- CONCURRENTLY не блокирует запись в users, но не выполняется внутри транзакции:
+-- запускать каждую команду отдельно (psql в режиме autocommit).
+
+-- Префикс имени без учёта регистра и сортировка по имени: выражение в collation "C"
+-- допускает и LIKE 'abc%' диапазоном, и ORDER BY без отдельной сортировки
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_name_lower_c ON users ((lower(name) COLLATE "C"), id);
+
+-- Диапазон created_at и сортировка по дате создания
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_created_at_id ON users (created_at, id);
+
+-- Диапазон возраста при сортировке по id
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_age_id ON users (age, id);
@@ -0,0 +1,17 @@
+-- Idempotency-Key для POST /api/users: ответ на первый запрос хранится user.idempotency.ttl,
+-- повтор с тем же ключом получает его без обращения к users и Kafka.
+-- fingerprint — хэш тела запроса: тот же ключ с другими данными отклоняется (422).
+-- Строки старше ttl удаляет IdempotencyStore по индексу created_at.
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    idempotency_key VARCHAR(100) PRIMARY KEY,
+    fingerprint     INTEGER      NOT NULL,
+    user_id         BIGINT       NOT NULL,
+    name            VARCHAR(100) NOT NULL,
+    email           VARCHAR(100) NOT NULL,
+    age             INTEGER,
+    user_created_at TIMESTAMP    NOT NULL,
+    user_version    BIGINT       NOT NULL,
+    created_at      TIMESTAMP    NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_created_at ON idempotency_keys (created_at);
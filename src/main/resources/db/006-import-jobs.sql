@@ -0,0 +1,22 @@
+-- Состояние загрузок POST /api/users/import: файл обрабатывает реплика, которая его приняла,
+-- а GET /api/users/import/{id} может прийти в любую. Реплика пишет строку при каждой смене этапа;
+-- счётчики строк между сменами этапов обновляются только в её памяти.
+-- errors — первые отклонённые записи (не больше user.import.max-reported-errors).
+-- Завершённые загрузки старше user.import.retention удаляет UserImportJobs по индексу finished_at.
+CREATE TABLE IF NOT EXISTS import_jobs (
+    id           VARCHAR(36) PRIMARY KEY,
+    state        VARCHAR(16) NOT NULL,
+    format       VARCHAR(16) NOT NULL,
+    compression  VARCHAR(16) NOT NULL,
+    submitted_at TIMESTAMP   NOT NULL,
+    started_at   TIMESTAMP,
+    finished_at  TIMESTAMP,
+    rows_read    BIGINT      NOT NULL,
+    invalid      BIGINT      NOT NULL,
+    conflicts    BIGINT      NOT NULL,
+    created      BIGINT      NOT NULL,
+    errors       JSONB       NOT NULL,
+    error        TEXT
+);
+
+CREATE INDEX IF NOT EXISTS idx_import_jobs_finished_at ON import_jobs (finished_at);
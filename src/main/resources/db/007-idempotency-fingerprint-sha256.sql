@@ -0,0 +1,8 @@
+-- fingerprint — SHA-256 тела запроса (hex) вместо 32-битного хэша: на INTEGER разные тела совпадали, и повтор
+-- ключа с другими данными получал ответ на чужой запрос вместо 422. Действующие записи пересчитываются из
+-- сохранённых name, email и age по той же формуле, что IdempotencyStore.fingerprint: длина поля в символах,
+-- ':' и значение, '-' для отсутствующего возраста. sha256() есть в PostgreSQL начиная с 11.
+ALTER TABLE idempotency_keys ALTER COLUMN fingerprint TYPE VARCHAR(64) USING encode(sha256(convert_to(
+        length(name) || ':' || name ||
+        length(email) || ':' || email ||
+        coalesce(length(age::text) || ':' || age::text, '-'), 'UTF8')), 'hex');
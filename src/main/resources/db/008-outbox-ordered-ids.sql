@@ -0,0 +1,8 @@
+-- Порядок событий одного пользователя в outbox. С шагом 50 каждая реплика брала свой блок id, и UPDATED,
+-- записанный позже, мог получить id меньше, чем более ранний CREATED с другой реплики. С шагом 1 nextval
+-- выдаётся в момент вставки: событие пишется уже после того, как строка users заблокирована (UPDATE/DELETE)
+-- или проверена по version при коммите, поэтому у одного пользователя порядок id совпадает с порядком коммитов.
+-- Выданные блоки не пересекаются с новыми id: блок значения v — это v-49..v, а следующий nextval больше v.
+-- Старая версия сервиса считала бы значение с шагом 1 блоком из 50 и выдала бы занятые id, поэтому миграция
+-- применяется, когда реплики старой версии остановлены.
+ALTER SEQUENCE outbox_id_seq INCREMENT BY 1;
@@ -0,0 +1,6 @@
+-- Загрузку ведёт только принявшая файл реплика: если она упала, строка осталась бы в LOADING/MERGING навсегда
+-- и держала бы границу выгрузки. owner — кто ведёт загрузку (pid@host), heartbeat_at — когда он последний раз
+-- подтвердил её (user.import.heartbeat-interval). Незавершённые загрузки без подтверждения дольше
+-- user.import.heartbeat-timeout любая реплика помечает FAILED; строки, созданные до миграции, — сразу.
+ALTER TABLE import_jobs ADD COLUMN IF NOT EXISTS owner VARCHAR(255);
+ALTER TABLE import_jobs ADD COLUMN IF NOT EXISTS heartbeat_at TIMESTAMP;
@@ -0,0 +1,89 @@
+package ru.lisa.admission;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long FAST = Duration.ofMillis(20).toNanos();
+    private static final long SLOW = Duration.ofSeconds(1).toNanos();
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    @DisplayName("Лимит отсекает лишние запросы и растёт на 1 за каждые limit быстрых ответов под нагрузкой")
+    void testAdditiveIncreaseUnderLoad() {
+        AdaptiveConcurrencyLimit limit = newLimit(4);
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+        assertFalse(limit.tryAcquire());
+
+        // засчитываются три ответа: последний пришёл, когда выполнялся один запрос из четырёх
+        for (int i = 0; i < 4; i++) {
+            limit.release(FAST, false);
+        }
+        assertEquals(4, limit.getLimit());
+
+        for (int i = 0; i < 4; i++) {
+            limit.tryAcquire();
+        }
+        limit.release(FAST, false);
+        assertEquals(5, limit.getLimit());
+        assertTrue(limit.tryAcquire());
+        for (int i = 0; i < 4; i++) {
+            limit.release(FAST, false);
+        }
+        assertEquals(0, limit.inFlight());
+    }
+
+    @Test
+    @DisplayName("Медленные ответы и 503 уменьшают лимит не чаще раза за порог задержки и не ниже минимума")
+    void testMultiplicativeDecrease() {
+        AdaptiveConcurrencyLimit limit = newLimit(20);
+
+        for (int i = 0; i < 5; i++) {
+            limit.tryAcquire();
+        }
+        for (int i = 0; i < 5; i++) {
+            limit.release(SLOW, false);
+        }
+        assertEquals(10, limit.getLimit());
+
+        clock.addAndGet(Duration.ofMillis(250).toNanos());
+        limit.tryAcquire();
+        limit.release(FAST, true);
+        assertEquals(5, limit.getLimit());
+
+        for (int i = 0; i < 3; i++) {
+            clock.addAndGet(Duration.ofMillis(250).toNanos());
+            limit.tryAcquire();
+            limit.release(SLOW, false);
+        }
+        assertEquals(4, limit.getLimit());
+    }
+
+    @Test
+    @DisplayName("Асинхронный запрос освобождает место, не меняя лимит")
+    void testAsyncReleaseIsNotSampled() {
+        AdaptiveConcurrencyLimit limit = newLimit(4);
+
+        limit.tryAcquire();
+        limit.release(-1, false);
+
+        assertEquals(0, limit.inFlight());
+        assertEquals(4, limit.getLimit());
+    }
+
+    private AdaptiveConcurrencyLimit newLimit(int initial) {
+        return new AdaptiveConcurrencyLimit(initial, 4, 20, Duration.ofMillis(250), 0.5, clock::get);
+    }
+}
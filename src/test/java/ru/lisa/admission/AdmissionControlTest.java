@@ -0,0 +1,153 @@
+package ru.lisa.admission;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import ru.lisa.bulk.UserExporter;
+import ru.lisa.bulk.UserImportJobs;
+import ru.lisa.controller.UserController;
+import ru.lisa.controller.UserLinks;
+import ru.lisa.dto.UserView;
+import ru.lisa.service.UserService;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(value = UserController.class, properties = {
+        "user.admission.rate-limit.limit-for-period=2",
+        "user.admission.rate-limit.refresh-period=10s",
+        "user.admission.client-header=X-Client-Id",
+        "user.admission.concurrency.initial-limit=4",
+        "user.admission.concurrency.min-limit=1",
+        "user.admission.long-running.max-concurrent=1"
+})
+@Import({UserLinks.class, AdmissionConfig.class})
+class AdmissionControlTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AdaptiveConcurrencyLimit concurrencyLimit;
+
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private UserExporter userExporter;
+
+    @MockBean
+    private UserImportJobs userImportJobs;
+
+    @Test
+    @DisplayName("Адрес сверх своего лимита получает 429 с Retry-After, другой адрес обслуживается")
+    void testRateLimitPerAddress() throws Exception {
+        when(userService.getUserById(1L)).thenReturn(Optional.of(user()));
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/api/users/1").with(from("10.0.0.1")))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/api/users/1").with(from("10.0.0.1")))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "10"))
+                .andExpect(jsonPath("$.status").value(429));
+        mockMvc.perform(get("/api/users/1").with(from("10.0.0.2")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Новое значение X-Client-Id не даёт нового ведра в обход лимита адреса")
+    void testRotatingClientIdDoesNotBypassAddressLimit() throws Exception {
+        when(userService.getUserById(1L)).thenReturn(Optional.of(user()));
+
+        mockMvc.perform(get("/api/users/1").with(from("10.0.0.3")).header("X-Client-Id", "rotating-1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/users/1").with(from("10.0.0.3")).header("X-Client-Id", "rotating-2"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/users/1").with(from("10.0.0.3")).header("X-Client-Id", "rotating-3"))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    @DisplayName("Лимит клиента из заголовка шлюза действует независимо от адреса")
+    void testRateLimitPerClient() throws Exception {
+        when(userService.getUserById(1L)).thenReturn(Optional.of(user()));
+
+        mockMvc.perform(get("/api/users/1").with(from("10.0.0.4")).header("X-Client-Id", "partner-a"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/users/1").with(from("10.0.0.5")).header("X-Client-Id", "partner-a"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/users/1").with(from("10.0.0.6")).header("X-Client-Id", "partner-a"))
+                .andExpect(status().isTooManyRequests());
+        mockMvc.perform(get("/api/users/1").with(from("10.0.0.6")).header("X-Client-Id", "partner-b"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("При исчерпанном лимите одновременных запросов — 503 с Retry-After, место освобождается после ответа")
+    void testConcurrencyLimitSheds() throws Exception {
+        when(userService.getUserById(1L)).thenReturn(Optional.of(user()));
+        int busy = concurrencyLimit.getLimit();
+        for (int i = 0; i < busy; i++) {
+            concurrencyLimit.tryAcquire();
+        }
+        try {
+            mockMvc.perform(get("/api/users/1").with(from("10.0.0.7")))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+        } finally {
+            for (int i = 0; i < busy; i++) {
+                concurrencyLimit.release(-1, false);
+            }
+        }
+        mockMvc.perform(get("/api/users/1").with(from("10.0.0.7")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Выгрузки ограничены своим Bulkhead: место занято до конца асинхронного ответа")
+    void testLongRunningBulkhead() throws Exception {
+        MvcResult first = mockMvc.perform(get("/api/users/stream").with(from("10.0.0.8")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(get("/api/users/stream").with(from("10.0.0.9")))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "30"));
+
+        mockMvc.perform(asyncDispatch(first))
+                .andExpect(status().isOk());
+        MvcResult second = mockMvc.perform(get("/api/users/stream").with(from("10.0.0.9")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(second))
+                .andExpect(status().isOk());
+    }
+
+    private static RequestPostProcessor from(String address) {
+        return request -> {
+            request.setRemoteAddr(address);
+            return request;
+        };
+    }
+
+    private static UserView user() {
+        return new UserView(1L, "Leon", "leon@rambler.com", 24, LocalDateTime.now(), 0L);
+    }
+}
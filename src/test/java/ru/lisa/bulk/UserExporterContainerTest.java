@@ -0,0 +1,76 @@
+package ru.lisa.bulk;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.lisa.repository.ImportJobRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+// Оба оператора COPY против настоящего PostgreSQL: синтаксис, экранирование CSV и JSON и граница lag
+@Testcontainers(disabledWithoutDocker = true)
+class UserExporterContainerTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 5, 1, 10, 15, 30);
+
+    private static UserExporter exporter;
+
+    @BeforeAll
+    static void setUp() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword()));
+        jdbcTemplate.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, name VARCHAR(100) NOT NULL, " +
+                "email VARCHAR(100) NOT NULL UNIQUE, age INT NOT NULL, created_at TIMESTAMP NOT NULL, " +
+                "version BIGINT NOT NULL)");
+        jdbcTemplate.update("INSERT INTO users VALUES (1, 'Leon', 'leon@rambler.com', 24, ?, 0)", CREATED);
+        jdbcTemplate.update("INSERT INTO users VALUES (51, 'O\"Brien, \\Jr', 'obrien@ya.com', 40, ?, 2)",
+                CREATED.plusMinutes(1));
+        // строка младше lag: её транзакция могла быть ещё не видна, она уйдёт в следующую выгрузку
+        jdbcTemplate.update("INSERT INTO users VALUES (2, 'Fresh', 'fresh@ya.com', 30, ?, 0)", LocalDateTime.now());
+        exporter = new UserExporter(jdbcTemplate, mock(ImportJobRepository.class), Duration.ofMinutes(1));
+    }
+
+    @Test
+    @DisplayName("CSV: заголовок, кавычки и обратный слэш как в RFC 4180, свежие строки не выгружаются")
+    void testCsvExport() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = exporter.export(ExportFormat.CSV, ExportCompression.NONE,
+                exporter.watermark(null, null, null), out);
+
+        assertEquals(2, rows);
+        assertEquals("""
+                id,name,email,age,created_at,version
+                1,Leon,leon@rambler.com,24,2024-05-01 10:15:30,0
+                51,"O""Brien, \\Jr",obrien@ya.com,40,2024-05-01 10:16:30,2
+                """, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("NDJSON: одна строка JSON на пользователя, граница по created_at исключает выгруженное")
+    void testNdjsonExportAfterWatermark() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = exporter.export(ExportFormat.NDJSON, ExportCompression.NONE,
+                exporter.watermark(null, CREATED, null), out);
+
+        assertEquals(1, rows);
+        assertEquals("{\"id\":51,\"name\":\"O\\\"Brien, \\\\Jr\",\"email\":\"obrien@ya.com\",\"age\":40," +
+                "\"createdAt\":\"2024-05-01T10:16:30\",\"version\":2}\n", out.toString(StandardCharsets.UTF_8));
+    }
+}
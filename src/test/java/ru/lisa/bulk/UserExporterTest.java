@@ -0,0 +1,88 @@
+package ru.lisa.bulk;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.lisa.repository.ImportJobRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserExporterTest {
+
+    @Test
+    @DisplayName("COPY для CSV с заголовком и границей по id и дате создания")
+    void testCsvCopyWithWatermark() {
+        String sql = UserExporter.copySql(ExportFormat.CSV, new ExportWatermark(120L,
+                LocalDateTime.of(2024, 5, 1, 10, 15, 30), LocalDateTime.of(2024, 5, 2, 0, 0)));
+
+        assertEquals("COPY (SELECT id, name, email, age, created_at, version FROM users WHERE TRUE AND id > 120 " +
+                "AND created_at > TIMESTAMP '2024-05-01T10:15:30' AND created_at <= TIMESTAMP '2024-05-02T00:00:00' " +
+                "ORDER BY id) TO STDOUT WITH (FORMAT csv, HEADER true)", sql);
+    }
+
+    @Test
+    @DisplayName("COPY для NDJSON отдаёт JSON без экранирования текстового формата COPY")
+    void testNdjsonCopyWithoutWatermark() {
+        String sql = UserExporter.copySql(ExportFormat.NDJSON, ExportWatermark.NONE);
+
+        assertEquals("COPY (SELECT row_to_json(u)::text FROM (SELECT id, name, email, age, " +
+                "created_at AS \"createdAt\", version FROM users WHERE TRUE ORDER BY id) u) " +
+                "TO STDOUT WITH (FORMAT csv, QUOTE E'\\x01', DELIMITER E'\\x02')", sql);
+    }
+
+    @Test
+    @DisplayName("Верхняя граница отстаёт от текущего момента на lag и не сдвигается вперёд по запросу")
+    void testWatermarkLag() {
+        UserExporter exporter = new UserExporter(null, mock(ImportJobRepository.class), Duration.ofMinutes(1));
+        LocalDateTime before = LocalDateTime.now().minusMinutes(1);
+
+        ExportWatermark latest = exporter.watermark(null, null, null);
+        ExportWatermark future = exporter.watermark(null, null, LocalDateTime.now().plusHours(1));
+        ExportWatermark resumed = exporter.watermark(120L, null, LocalDateTime.of(2024, 5, 2, 0, 0));
+
+        assertFalse(latest.createdUntil().isBefore(before));
+        assertFalse(latest.createdUntil().isAfter(LocalDateTime.now().minusMinutes(1)));
+        assertFalse(future.createdUntil().isAfter(LocalDateTime.now().minusMinutes(1)));
+        assertEquals(LocalDateTime.of(2024, 5, 2, 0, 0), resumed.createdUntil());
+    }
+
+    @Test
+    @DisplayName("Незавершённая загрузка из файла держит верхнюю границу на моменте своего приёма")
+    void testWatermarkHeldByUnfinishedImport() {
+        ImportJobRepository importJobs = mock(ImportJobRepository.class);
+        LocalDateTime submitted = LocalDateTime.now().minusMinutes(30);
+        when(importJobs.findOldestUnfinishedSubmittedAt()).thenReturn(Optional.of(submitted));
+        UserExporter exporter = new UserExporter(null, importJobs, Duration.ofMinutes(1));
+
+        assertEquals(submitted, exporter.watermark(null, null, null).createdUntil());
+        assertEquals(LocalDateTime.of(2024, 5, 2, 0, 0),
+                exporter.watermark(120L, null, LocalDateTime.of(2024, 5, 2, 0, 0)).createdUntil());
+    }
+
+    @Test
+    @DisplayName("gzip дописывает хвост потока, не закрывая сам ответ")
+    void testGzipRoundTrip() throws IOException {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        try (OutputStream out = ExportCompression.GZIP.wrap(target)) {
+            out.write("id,name\n1,Leon\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(target.toByteArray()))) {
+            assertEquals("id,name\n1,Leon\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals("users.csv.gz", ExportCompression.GZIP.fileName(ExportFormat.CSV));
+        assertEquals("users.ndjson", ExportCompression.NONE.fileName(ExportFormat.NDJSON));
+    }
+}
@@ -0,0 +1,148 @@
+package ru.lisa.bulk;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+import ru.lisa.dto.ImportJobStatus;
+import ru.lisa.exception.ImportTooLargeException;
+import ru.lisa.repository.ImportJobRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserImportJobsTest {
+
+    @Mock
+    private UserImporter importer;
+
+    @Mock
+    private ImportJobRepository repository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path spoolDirectory;
+
+    private UserImportJobs jobs;
+
+    @BeforeEach
+    void setUp() {
+        jobs = new UserImportJobs(importer, repository, transactionManager, spoolDirectory,
+                DataSize.ofBytes(100_000), Duration.ofHours(24), Duration.ofMinutes(5), 100, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobs.shutdown();
+    }
+
+    @Test
+    @DisplayName("Файл больше user.import.max-size отклоняется, принятая часть удаляется, загрузка не создаётся")
+    void testSubmitTooLarge() throws IOException {
+        ByteArrayInputStream body = new ByteArrayInputStream(new byte[100_001]);
+
+        assertThrows(ImportTooLargeException.class, () -> jobs.submit(ExportFormat.CSV, ExportCompression.NONE, body));
+
+        try (var files = Files.list(spoolDirectory)) {
+            assertEquals(0, files.count());
+        }
+        verifyNoInteractions(importer, repository);
+    }
+
+    @Test
+    @DisplayName("Принятая загрузка сразу сохраняется в import_jobs в состоянии QUEUED")
+    void testSubmitPersistsQueuedJob() throws IOException {
+        ImportJob job = jobs.submit(ExportFormat.CSV, ExportCompression.NONE, new ByteArrayInputStream(new byte[100_000]));
+
+        verify(repository).save(argThat(status -> status.id().equals(job.getId()) && status.state().equals("QUEUED")),
+                anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Без записи в import_jobs загрузка не принимается: по ней выгрузка сдерживает свою границу")
+    void testSubmitFailsWithoutPersistedJob() throws IOException {
+        doThrow(new DataAccessResourceFailureException("db down")).when(repository).save(any(), anyString(), any());
+
+        assertThrows(DataAccessResourceFailureException.class,
+                () -> jobs.submit(ExportFormat.CSV, ExportCompression.NONE, new ByteArrayInputStream(new byte[10])));
+
+        try (var files = Files.list(spoolDirectory)) {
+            assertEquals(0, files.count());
+        }
+        verifyNoInteractions(importer);
+    }
+
+    @Test
+    @DisplayName("Загрузку, принятую другой репликой, состояние берётся из import_jobs")
+    void testFindFallsBackToRepository() {
+        ImportJobStatus stored = new ImportJobStatus("job-1", "COMPLETED", "CSV", "NONE",
+                null, null, null, 10, 0, 0, 10, List.of(), null);
+        when(repository.find("job-1")).thenReturn(Optional.of(stored));
+
+        assertSame(stored, jobs.find("job-1").orElseThrow());
+        assertEquals(Optional.empty(), jobs.find("missing"));
+    }
+
+    @Test
+    @DisplayName("Загрузку этой реплики состояние отдаётся из памяти, без запроса к базе")
+    void testFindOwnJobFromMemory() throws IOException {
+        ImportJob job = jobs.submit(ExportFormat.CSV, ExportCompression.NONE, new ByteArrayInputStream(new byte[10]));
+
+        assertEquals(job.getId(), jobs.find(job.getId()).orElseThrow().id());
+        verify(repository, never()).find(job.getId());
+    }
+
+    @Test
+    @DisplayName("Heartbeat подтверждает свои незавершённые загрузки и помечает FAILED брошенные другими репликами")
+    void testHeartbeatFailsAbandonedJobs() throws IOException {
+        ImportJob job = jobs.submit(ExportFormat.CSV, ExportCompression.NONE, new ByteArrayInputStream(new byte[10]));
+        LocalDateTime before = LocalDateTime.now().minusMinutes(5);
+
+        jobs.heartbeat();
+
+        verify(repository, times(2)).save(argThat(status -> status.id().equals(job.getId())), anyString(), any());
+        verify(repository).failAbandoned(argThat(threshold -> !threshold.isBefore(before)
+                && !threshold.isAfter(LocalDateTime.now().minusMinutes(5))), any(), anyString());
+    }
+
+    @Test
+    @DisplayName("Остановка реплики сразу записывает её незавершённые загрузки как FAILED")
+    void testShutdownFailsUnfinishedJobs() throws IOException {
+        ImportJob job = jobs.submit(ExportFormat.CSV, ExportCompression.NONE, new ByteArrayInputStream(new byte[10]));
+
+        jobs.shutdown();
+
+        assertEquals(ImportJob.State.FAILED, job.getState());
+        verify(repository).save(argThat(status -> status.id().equals(job.getId()) && status.state().equals("FAILED")),
+                anyString(), any());
+    }
+}
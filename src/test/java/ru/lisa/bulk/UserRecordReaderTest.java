@@ -0,0 +1,73 @@
+package ru.lisa.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.lisa.exception.InvalidUserDataException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UserRecordReaderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("CSV выгрузки читается обратно: кавычки, перевод строки в значении, лишние колонки")
+    void testCsvFromExport() throws IOException {
+        String csv = "id,name,email,age,created_at,version\r\n" +
+                "1,\"Leon \"\"the\"\" pro\",leon@rambler.com,24,2024-05-01 10:15:30,0\r\n" +
+                "\n" +
+                "2,\"Ann\nB\",ann@rambler.com,,2024-05-01 10:15:30,0\n" +
+                "3,Bob,bob@rambler.com,old,2024-05-01 10:15:30,0";
+        UserRecordReader reader = UserRecordReader.open(ExportFormat.CSV, new StringReader(csv), objectMapper);
+
+        UserRecordReader.Row first = reader.next();
+        assertEquals(new UserRecordReader.Row(1, "Leon \"the\" pro", "leon@rambler.com", 24, null), first);
+        assertNull(UserImporter.validate(first));
+
+        UserRecordReader.Row second = reader.next();
+        assertEquals("Ann\nB", second.name());
+        assertEquals("Возраст не может быть null", UserImporter.validate(second));
+
+        UserRecordReader.Row third = reader.next();
+        assertEquals(3, third.line());
+        assertEquals("Возраст должен быть целым числом: old", UserImporter.validate(third));
+        assertNull(reader.next());
+    }
+
+    @Test
+    @DisplayName("CSV без обязательной колонки отклоняется целиком")
+    void testCsvWithoutRequiredColumn() {
+        assertThrows(InvalidUserDataException.class, () ->
+                UserRecordReader.open(ExportFormat.CSV, new StringReader("name,age\nLeon,24\n"), objectMapper));
+    }
+
+    @Test
+    @DisplayName("NDJSON: битая строка отклоняется, чтение продолжается")
+    void testNdjsonSkipsBrokenLine() throws IOException {
+        String ndjson = "{\"id\":1,\"name\":\"Leon\",\"email\":\"leon@rambler.com\",\"age\":24}\n" +
+                "{\"name\":\"Ann\"\n" +
+                "{\"name\":\"Bob\",\"email\":\"bob@rambler.com\",\"age\":200}\n";
+        UserRecordReader reader = UserRecordReader.open(ExportFormat.NDJSON, new StringReader(ndjson), objectMapper);
+
+        assertEquals(new UserRecordReader.Row(1, "Leon", "leon@rambler.com", 24, null), reader.next());
+        assertEquals("Строка не является JSON-объектом", UserImporter.validate(reader.next()));
+        assertEquals("Возраст должен быть в диапазоне от 0 до 150 лет", UserImporter.validate(reader.next()));
+        assertNull(reader.next());
+    }
+
+    @Test
+    @DisplayName("Строка для COPY FROM экранирует кавычки внутри значений")
+    void testCopyRow() throws IOException {
+        StringWriter out = new StringWriter();
+        UserImporter.writeRow(out, new UserRecordReader.Row(7, "Leon \"the\" pro", "a,b@rambler.com", 24, null));
+
+        assertEquals("7,\"Leon \"\"the\"\" pro\",\"a,b@rambler.com\",24\n", out.toString());
+    }
+}
@@ -0,0 +1,51 @@
+package ru.lisa.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AdaptivePoolSizerTest {
+
+    @Mock
+    private HikariPoolMXBean pool;
+
+    @Test
+    @DisplayName("Пул растёт на первом замере с ожиданием, уменьшается постепенно по окну и не выходит за границы")
+    void testPoolFollowsObservedConcurrency() {
+        HikariConfig config = new HikariConfig();
+        config.setMaximumPoolSize(10);
+        config.setMinimumIdle(10);
+        AdaptivePoolSizer sizer = new AdaptivePoolSizer(config, () -> pool, 4, 32, 1.25, 3);
+
+        when(pool.getActiveConnections()).thenReturn(10, 16, 12);
+        when(pool.getThreadsAwaitingConnection()).thenReturn(0, 4, 0);
+        sizer.sample();
+        assertEquals(10, config.getMaximumPoolSize());
+        sizer.sample();
+        // 16 + 4 ожидающих, с запасом 25% — 25 соединений, не дожидаясь конца окна
+        assertEquals(25, config.getMaximumPoolSize());
+        sizer.sample();
+        // конец окна: пик окна тот же, пул не уменьшается
+        assertEquals(25, config.getMaximumPoolSize());
+
+        sizer.resize(2);
+        assertEquals(15, config.getMaximumPoolSize());
+        assertEquals(10, config.getMinimumIdle());
+        for (int window = 0; window < 5; window++) {
+            sizer.resize(2);
+        }
+        assertEquals(4, config.getMaximumPoolSize());
+        assertEquals(4, config.getMinimumIdle());
+
+        sizer.resize(100);
+        assertEquals(32, config.getMaximumPoolSize());
+    }
+}
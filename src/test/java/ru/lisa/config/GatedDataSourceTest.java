@@ -0,0 +1,61 @@
+package ru.lisa.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class GatedDataSourceTest {
+
+    @Mock
+    private DataSource pool;
+
+    @Mock
+    private Connection connection;
+
+    @Test
+    @DisplayName("Соединение сверх лимита не выдаётся, а после close() разрешение возвращается")
+    void testGateLimitsConcurrentConnections() throws SQLException {
+        when(pool.getConnection()).thenReturn(connection);
+        DatabaseConcurrencyGate gate = new DatabaseConcurrencyGate(1, Duration.ofMillis(10));
+        GatedDataSource dataSource = new GatedDataSource(pool, () -> gate);
+
+        Connection first = dataSource.getConnection();
+        assertEquals(1, gate.inUse());
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+
+        first.close();
+        first.close();
+        assertEquals(0, gate.inUse());
+        verify(connection, times(2)).close();
+
+        dataSource.getConnection().close();
+        assertEquals(0, gate.inUse());
+    }
+
+    @Test
+    @DisplayName("Ошибка пула при получении соединения возвращает разрешение")
+    void testPermitReleasedWhenPoolFails() throws SQLException {
+        when(pool.getConnection()).thenThrow(new SQLTransientConnectionException("pool timeout"));
+        DatabaseConcurrencyGate gate = new DatabaseConcurrencyGate(1, Duration.ofMillis(10));
+        GatedDataSource dataSource = new GatedDataSource(pool, () -> gate);
+
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+
+        assertEquals(0, gate.inUse());
+    }
+}
@@ -0,0 +1,53 @@
+package ru.lisa.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.ConfigDataApplicationContextInitializer;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+// application-perf.yml поверх application.yml: настройки должны доходить до HikariDataSource и включать
+// AdaptivePoolSizer. Пул не стартует, поэтому база не нужна
+class PerfProfileTest {
+
+    // конвертер строк вроде 30s в Duration для @Value ставит SpringApplication, здесь — вручную
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withInitializer(new ConfigDataApplicationContextInitializer())
+            .withInitializer(context -> context.getBeanFactory()
+                    .setConversionService(ApplicationConversionService.getSharedInstance()))
+            .withConfiguration(AutoConfigurations.of(DataSourceAutoConfiguration.class))
+            .withUserConfiguration(AdaptivePoolSizer.class)
+            .withPropertyValues("spring.datasource.url=jdbc:postgresql://localhost:5432/users");
+
+    @Test
+    @DisplayName("Профиль perf настраивает Hikari и драйвер PostgreSQL и включает адаптивный размер пула")
+    void testPerfProfileConfiguresPool() {
+        contextRunner.withPropertyValues("spring.profiles.active=perf").run(context -> {
+            assertThat(context).hasNotFailed();
+            HikariDataSource dataSource = context.getBean(HikariDataSource.class);
+            assertEquals(32, dataSource.getMaximumPoolSize());
+            assertEquals(4, dataSource.getMinimumIdle());
+            assertEquals(2_000, dataSource.getConnectionTimeout());
+            assertEquals(300_000, dataSource.getKeepaliveTime());
+            assertEquals("true", dataSource.getDataSourceProperties().getProperty("reWriteBatchedInserts"));
+            assertEquals("2", dataSource.getDataSourceProperties().getProperty("prepareThreshold"));
+
+            assertEquals(32, context.getBean(AdaptivePoolSizer.class).targetSize());
+            assertEquals("50", context.getEnvironment().getProperty("spring.jpa.properties.hibernate.jdbc.batch_size"));
+            assertFalse(context.getEnvironment().getProperty("spring.jpa.open-in-view", Boolean.class, true));
+        });
+    }
+
+    @Test
+    @DisplayName("Без профиля perf адаптивный размер пула выключен")
+    void testDefaultProfileWithoutAdaptivePool() {
+        contextRunner.run(context -> assertThat(context).doesNotHaveBean(AdaptivePoolSizer.class));
+    }
+}
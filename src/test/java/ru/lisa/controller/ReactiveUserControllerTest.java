@@ -0,0 +1,108 @@
+package ru.lisa.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.lisa.entity.User;
+import ru.lisa.handling.GlobalExceptionHandler;
+import ru.lisa.service.ReactiveUserService;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(ReactiveUserController.class)
+@ActiveProfiles("reactive")
+@Import({UserLinks.class, GlobalExceptionHandler.class})
+class ReactiveUserControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveUserService userService;
+
+    @Test
+    @DisplayName("GET /api/users/{id} — возвращает пользователя и ETag")
+    void getUserById() {
+        when(userService.getUserById(1L)).thenReturn(Mono.just(user(1L, "Alice", 3L)));
+
+        webTestClient.get().uri("/api/users/1?links=false")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3-n\"")
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(1)
+                .jsonPath("$.name").isEqualTo("Alice");
+    }
+
+    @Test
+    @DisplayName("GET /api/users/{id} — 304 при совпадении If-None-Match")
+    void getUserByIdNotModified() {
+        when(userService.getUserById(1L)).thenReturn(Mono.just(user(1L, "Alice", 3L)));
+
+        webTestClient.get().uri("/api/users/1")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    @DisplayName("GET /api/users/{id} — 404 с problem details, если пользователь не найден")
+    void getUserByIdNotFound() {
+        when(userService.getUserById(99L)).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/api/users/99")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectHeader().contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(404)
+                .jsonPath("$.detail").isEqualTo("Пользователь с ID 99 не найден");
+    }
+
+    @Test
+    @DisplayName("PUT /api/users — 412, если версия из If-Match устарела")
+    void updateUserStaleVersion() {
+        when(userService.updateUser(eq(1L), eq(2L), anyString(), anyString(), eq(30)))
+                .thenReturn(Mono.error(new OptimisticLockingFailureException("Пользователь с ID 1 был изменён другим запросом")));
+
+        webTestClient.put().uri("/api/users")
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"id\":1,\"name\":\"Alice\",\"email\":\"alice@rambler.com\",\"age\":30}")
+                .exchange()
+                .expectStatus().isEqualTo(412);
+    }
+
+    @Test
+    @DisplayName("GET /api/users/stream — отдаёт пользователей построчно в NDJSON")
+    void streamUsers() {
+        when(userService.streamUsers(null)).thenReturn(Flux.just(user(1L, "Alice", 0L), user(2L, "Bob", 0L)));
+
+        webTestClient.get().uri("/api/users/stream")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Object.class).hasSize(2);
+    }
+
+    private static User user(Long id, String name, Long version) {
+        User user = new User(name, name.toLowerCase() + "@rambler.com", 30);
+        user.setId(id);
+        user.setVersion(version);
+        return user;
+    }
+}
@@ -8,26 +8,67 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.lisa.bulk.ExportCompression;
+import ru.lisa.bulk.ExportFormat;
+import ru.lisa.bulk.ExportWatermark;
+import ru.lisa.bulk.ImportJob;
+import ru.lisa.bulk.UserExporter;
+import ru.lisa.bulk.UserImportJobs;
+import ru.lisa.dto.BatchItemResult;
+import ru.lisa.dto.ImportJobStatus;
 import ru.lisa.dto.UserModel;
+import ru.lisa.dto.UserView;
 import ru.lisa.entity.User;
+import ru.lisa.exception.EmailAlreadyExistsException;
+import ru.lisa.exception.IdempotencyKeyReusedException;
+import ru.lisa.exception.ImportTooLargeException;
+import ru.lisa.exception.InvalidUserDataException;
+import ru.lisa.repository.UserSearchCriteria;
+import ru.lisa.repository.UserSearchCriteria.SortField;
+import ru.lisa.service.UserSearchCursor;
 import ru.lisa.service.UserService;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(UserController.class)
+@Import(UserLinks.class)
 class UserControllerTest {
 
     @Autowired
@@ -39,6 +80,12 @@ class UserControllerTest {
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private UserExporter userExporter;
+
+    @MockBean
+    private UserImportJobs userImportJobs;
+
     @BeforeEach
     void setUp() {
         objectMapper.registerModule(new JavaTimeModule());
@@ -55,8 +102,7 @@ class UserControllerTest {
         User savedUser = new User("Alice", "alice@rambler.com", 36);
         savedUser.setId(1L);
 
-        when(userService.createUser(anyString(), anyString(), anyInt())).thenReturn(1L);
-        when(userService.getUserById(1L)).thenReturn(Optional.of(savedUser));
+        when(userService.createUser(anyString(), anyString(), anyInt())).thenReturn(savedUser);
 
         mockMvc.perform(post("/api/users")
                         .contentType(APPLICATION_JSON)
@@ -71,11 +117,50 @@ class UserControllerTest {
         verify(userService).createUser("Alice", "alice@rambler.com", 36);
     }
 
+    @Test
+    @DisplayName("POST /api/users с Idempotency-Key — ключ передаётся в сервис, ответ строится из сохранённого результата")
+    void createUserWithIdempotencyKey() throws Exception {
+        UserModel requestDto = new UserModel();
+        requestDto.setName("Alice");
+        requestDto.setEmail("alice@rambler.com");
+        requestDto.setAge(36);
+        UserView created = new UserView(1L, "Alice", "alice@rambler.com", 36, LocalDateTime.now(), 0L);
+
+        when(userService.createUser("retry-1", "Alice", "alice@rambler.com", 36)).thenReturn(created);
+
+        mockMvc.perform(post("/api/users")
+                        .header("Idempotency-Key", " retry-1 ")
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andExpect(jsonPath("$.id").value(1));
+
+        verify(userService, never()).createUser(anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    @DisplayName("POST /api/users — Idempotency-Key с другими данными отклоняется с 422")
+    void createUserWithReusedIdempotencyKey() throws Exception {
+        UserModel requestDto = new UserModel();
+        requestDto.setName("Alice");
+        requestDto.setEmail("alice@rambler.com");
+        requestDto.setAge(36);
+
+        when(userService.createUser("retry-1", "Alice", "alice@rambler.com", 36))
+                .thenThrow(new IdempotencyKeyReusedException("retry-1"));
+
+        mockMvc.perform(post("/api/users")
+                        .header("Idempotency-Key", "retry-1")
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
     @Test
     @DisplayName("GET /api/users/{id} — возвращает пользователя по ID")
     void dGetUserById() throws Exception {
-        User user = new User("Bob", "bob@ya.com", 25);
-        user.setId(2L);
+        UserView user = new UserView(2L, "Bob", "bob@ya.com", 25, LocalDateTime.now(), 0L);
 
         when(userService.getUserById(2L)).thenReturn(Optional.of(user));
 
@@ -100,7 +185,7 @@ class UserControllerTest {
         User updatedUser = new User("Alice Updated", "alice@example.com", 31);
         updatedUser.setId(1L);
 
-        when(userService.getUserById(1L)).thenReturn(Optional.of(updatedUser));
+        when(userService.updateUser(1L, null, "Alice Updated", "alice@example.com", 31)).thenReturn(updatedUser);
 
         mockMvc.perform(put("/api/users")
                         .contentType(APPLICATION_JSON)
@@ -112,7 +197,98 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.age").value(31))
                 .andExpect(jsonPath("$.createdAt").exists());
 
-        verify(userService).updateUser(1L, "Alice Updated", "alice@example.com", 31);
+        verify(userService).updateUser(1L, null, "Alice Updated", "alice@example.com", 31);
+        verify(userService, never()).getUserById(any());
+    }
+
+    @Test
+    @DisplayName("PUT /api/users с If-Match — передаёт ожидаемую версию и отдаёт новый ETag")
+    void updateUserWithIfMatch() throws Exception {
+        UserModel updateDto = new UserModel();
+        updateDto.setId(1L);
+        updateDto.setName("Alice Updated");
+        updateDto.setEmail("alice@example.com");
+        updateDto.setAge(31);
+
+        User updatedUser = new User("Alice Updated", "alice@example.com", 31);
+        updatedUser.setId(1L);
+        updatedUser.setVersion(4L);
+        when(userService.updateUser(1L, 3L, "Alice Updated", "alice@example.com", 31)).thenReturn(updatedUser);
+
+        mockMvc.perform(put("/api/users")
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updateDto)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    }
+
+    @Test
+    @DisplayName("PUT /api/users с устаревшим If-Match — 412 Precondition Failed")
+    void updateUserWithStaleIfMatch() throws Exception {
+        UserModel updateDto = new UserModel();
+        updateDto.setId(1L);
+        updateDto.setName("Alice Updated");
+        updateDto.setEmail("alice@example.com");
+        updateDto.setAge(31);
+
+        when(userService.updateUser(1L, 3L, "Alice Updated", "alice@example.com", 31))
+                .thenThrow(new OptimisticLockingFailureException("Пользователь с ID 1 был изменён другим запросом"));
+
+        mockMvc.perform(put("/api/users")
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updateDto)))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    @DisplayName("GET /api/users/{id} — отдаёт ETag, а при совпадении If-None-Match — 304 без тела")
+    void getUserByIdNotModified() throws Exception {
+        UserView user = new UserView(2L, "Bob", "bob@ya.com", 25, LocalDateTime.now(), 5L);
+        when(userService.getUserById(2L)).thenReturn(Optional.of(user));
+
+        mockMvc.perform(get("/api/users/2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"5\""));
+
+        mockMvc.perform(get("/api/users/2").header(HttpHeaders.IF_NONE_MATCH, "\"5\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @DisplayName("GET /api/users/{id}?links=false — свой ETag: 304 не отдаёт закэшированное тело со ссылками")
+    void getUserByIdWithoutLinksHasOwnETag() throws Exception {
+        UserView user = new UserView(2L, "Bob", "bob@ya.com", 25, LocalDateTime.now(), 5L);
+        when(userService.getUserById(2L)).thenReturn(Optional.of(user));
+
+        mockMvc.perform(get("/api/users/2").param("links", "false"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"5-n\""));
+
+        mockMvc.perform(get("/api/users/2").param("links", "false").header(HttpHeaders.IF_NONE_MATCH, "\"5\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._links").doesNotExist());
+
+        mockMvc.perform(get("/api/users/2").param("links", "false").header(HttpHeaders.IF_NONE_MATCH, "\"5-n\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @DisplayName("PUT /api/users с If-Match из ответа без ссылок — ожидаемая версия та же")
+    void updateUserWithIfMatchWithoutLinks() throws Exception {
+        User updatedUser = new User("Leon", "leon@rambler.com", 24);
+        updatedUser.setId(5L);
+        updatedUser.setVersion(4L);
+        when(userService.updateUser(5L, 3L, "Leon", "leon@rambler.com", 24)).thenReturn(updatedUser);
+
+        mockMvc.perform(put("/api/users")
+                        .header(HttpHeaders.IF_MATCH, "\"3-n\"")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"id\":5,\"name\":\"Leon\",\"email\":\"leon@rambler.com\",\"age\":24}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
     }
 
     @Test
@@ -124,12 +300,90 @@ class UserControllerTest {
         requestDto.setAge(36);
 
         when(userService.createUser(anyString(), anyString(), anyInt()))
-                .thenThrow(new IllegalArgumentException("Пользователь с email 'alice@rambler.com' уже существует"));
+                .thenThrow(new EmailAlreadyExistsException("alice@rambler.com"));
+
+        mockMvc.perform(post("/api/users")
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isConflict())
+                .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.detail").value("Пользователь с email 'alice@rambler.com' уже существует"));
+    }
+
+    @Test
+    @DisplayName("POST /api/users — 422 при невалидных данных пользователя")
+    void createUserWithInvalidData() throws Exception {
+        UserModel requestDto = new UserModel();
+        requestDto.setName("Alice");
+        requestDto.setEmail("alice@rambler.com");
+        requestDto.setAge(200);
+
+        when(userService.createUser(anyString(), anyString(), anyInt()))
+                .thenThrow(new InvalidUserDataException("Возраст должен быть в диапазоне от 0 до 150 лет"));
 
         mockMvc.perform(post("/api/users")
                         .contentType(APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(requestDto)))
-                .andExpect(status().isBadRequest());
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.status").value(422));
+    }
+
+    @Test
+    @DisplayName("GET /api/users/{id} — 404, если пользователь не найден")
+    void getUserByIdNotFound() throws Exception {
+        when(userService.getUserById(99L)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/users/99"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.detail").value("Пользователь с ID 99 не найден"));
+    }
+
+    @Test
+    @DisplayName("GET /api/users/{id} — 500 без текста исключения при непредвиденной ошибке")
+    void unexpectedErrorIsInternalServerError() throws Exception {
+        when(userService.getUserById(5L)).thenThrow(new IllegalStateException("пул закрыт: jdbc:postgresql://db"));
+
+        mockMvc.perform(get("/api/users/5"))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.detail").value("Внутренняя ошибка сервиса"));
+    }
+
+    @Test
+    @DisplayName("GET /api/users/{id} — IllegalArgumentException из глубины сервиса не становится ошибкой клиента")
+    void unexpectedIllegalArgumentIsInternalServerError() throws Exception {
+        when(userService.getUserById(5L)).thenThrow(new IllegalArgumentException("Неизвестный код типа события: 9"));
+
+        mockMvc.perform(get("/api/users/5"))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.detail").value("Внутренняя ошибка сервиса"));
+    }
+
+    @Test
+    @DisplayName("PUT /api/users — 400 на If-Match не вида \"<версия>\"")
+    void malformedIfMatchIsBadRequest() throws Exception {
+        mockMvc.perform(put("/api/users")
+                        .header(HttpHeaders.IF_MATCH, "W/\"3\"")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"id\":5,\"name\":\"Leon\",\"email\":\"leon@rambler.com\",\"age\":24}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value("If-Match должен содержать один ETag вида \"<версия>\""));
+    }
+
+    @Test
+    @DisplayName("PATCH /api/users/{id} — 405 от Spring MVC сохраняется")
+    void unsupportedMethodKeepsFrameworkStatus() throws Exception {
+        mockMvc.perform(patch("/api/users/5"))
+                .andExpect(status().isMethodNotAllowed())
+                .andExpect(header().exists(HttpHeaders.ALLOW))
+                .andExpect(jsonPath("$.status").value(405));
+    }
+
+    @Test
+    @DisplayName("POST /api/users/batch — 400 на тело, которое не разбирается как JSON")
+    void malformedBodyIsBadRequest() throws Exception {
+        mockMvc.perform(post("/api/users/batch").contentType(APPLICATION_JSON).content("[{"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value("Некорректное тело запроса"));
     }
 
     @Test
@@ -147,4 +401,233 @@ class UserControllerTest {
         mockMvc.perform(get("/api/users"))
                 .andExpect(status().isOk());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("GET /api/users — полная страница содержит ссылку next с курсором")
+    void getUsersPageWithNextLink() throws Exception {
+        UserView first = new UserView(5L, "Alice", "alice@rambler.com", 36, LocalDateTime.now(), 0L);
+        UserView second = new UserView(7L, "Bob", "bob@ya.com", 25, LocalDateTime.now(), 0L);
+        when(userService.getUsers(null, 2)).thenReturn(List.of(first, second));
+
+        mockMvc.perform(get("/api/users").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.users.length()").value(2))
+                .andExpect(jsonPath("$._links.next.href").value("http://localhost/api/users?after=7&limit=2"))
+                .andExpect(jsonPath("$._embedded.users[1]._links.self.href").value("http://localhost/api/users/7"));
+    }
+
+    @Test
+    @DisplayName("GET /api/users/{id} — содержит ссылки self и all-users")
+    void getUserByIdWithLinks() throws Exception {
+        UserView user = new UserView(2L, "Bob", "bob@ya.com", 25, LocalDateTime.now(), 0L);
+        when(userService.getUserById(2L)).thenReturn(Optional.of(user));
+
+        mockMvc.perform(get("/api/users/2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._links.self.href").value("http://localhost/api/users/2"))
+                .andExpect(jsonPath("$._links.all-users.href").value("http://localhost/api/users"));
+    }
+
+    @Test
+    @DisplayName("GET /api/users?links=false — страница без HATEOAS-ссылок")
+    void getUsersPageWithoutLinks() throws Exception {
+        UserView first = new UserView(5L, "Alice", "alice@rambler.com", 36, LocalDateTime.now(), 0L);
+        UserView second = new UserView(7L, "Bob", "bob@ya.com", 25, LocalDateTime.now(), 0L);
+        when(userService.getUsers(null, 2)).thenReturn(List.of(first, second));
+
+        mockMvc.perform(get("/api/users").param("limit", "2").param("links", "false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.users.length()").value(2))
+                .andExpect(jsonPath("$._links").doesNotExist())
+                .andExpect(jsonPath("$._embedded.users[0]._links").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("GET /api/users/search — полная страница отдаёт ссылку next с курсором по ключу сортировки")
+    void searchUsersWithNextCursor() throws Exception {
+        UserView first = new UserView(5L, "Alice", "alice@rambler.com", 36, LocalDateTime.of(2024, 1, 1, 10, 0), 0L);
+        UserView second = new UserView(7L, "Bob", "bob@ya.com", 25, LocalDateTime.of(2024, 1, 2, 10, 0), 0L);
+        when(userService.searchUsers(any())).thenReturn(List.of(first, second));
+
+        String nextCursor = UserSearchCursor.encode(SortField.CREATED_AT, second);
+        mockMvc.perform(get("/api/users/search")
+                        .param("minAge", "18").param("sort", "CREATED_AT").param("limit", "2").param("links", "false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.users.length()").value(2))
+                .andExpect(jsonPath("$._embedded.users[0]._links").doesNotExist())
+                .andExpect(jsonPath("$._links.next.href").value(endsWith("cursor=" + nextCursor)));
+
+        verify(userService).searchUsers(new UserSearchCriteria(null, 18, null, null, null,
+                SortField.CREATED_AT, false, null, null, 2));
+    }
+
+    @Test
+    @DisplayName("GET /api/users/search — курсор раскладывается в ключ и id последней строки")
+    void searchUsersFromCursor() throws Exception {
+        UserView last = new UserView(7L, "Bob", "bob@ya.com", 25, LocalDateTime.now(), 0L);
+        when(userService.searchUsers(any())).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/users/search")
+                        .param("namePrefix", "bo").param("sort", "NAME")
+                        .param("cursor", UserSearchCursor.encode(SortField.NAME, last)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._links.next").doesNotExist());
+
+        verify(userService).searchUsers(argThat(criteria -> "Bob".equals(criteria.afterKey())
+                && Long.valueOf(7L).equals(criteria.afterId()) && "bo".equals(criteria.namePrefix())));
+    }
+
+    @Test
+    @DisplayName("GET /api/users/search — курсор другой сортировки отклоняется")
+    void searchUsersWithForeignCursor() throws Exception {
+        UserView last = new UserView(7L, "Bob", "bob@ya.com", 25, LocalDateTime.now(), 0L);
+
+        mockMvc.perform(get("/api/users/search")
+                        .param("sort", "ID")
+                        .param("cursor", UserSearchCursor.encode(SortField.NAME, last)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value("Некорректный курсор поиска"));
+
+        verify(userService, never()).searchUsers(any());
+    }
+
+    @Test
+    @DisplayName("GET /api/users/stream — отдаёт пользователей построчно в NDJSON")
+    void streamUsers() throws Exception {
+        User user = new User("Bob", "bob@ya.com", 25);
+        user.setId(2L);
+        doAnswer(invocation -> {
+            Consumer<User> consumer = invocation.getArgument(1);
+            consumer.accept(user);
+            return null;
+        }).when(userService).streamUsers(any(), any());
+
+        MvcResult result = mockMvc.perform(get("/api/users/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(startsWith(
+                        "{\"id\":2,\"name\":\"Bob\",\"email\":\"bob@ya.com\",\"age\":25,")));
+    }
+
+    @Test
+    @DisplayName("GET /api/users/export — сжатый файл выгрузки с границей инкрементальной выгрузки")
+    void exportUsers() throws Exception {
+        ExportWatermark watermark = new ExportWatermark(120L,
+                LocalDateTime.of(2024, 5, 1, 10, 15, 30), LocalDateTime.of(2024, 5, 2, 0, 0));
+        when(userExporter.watermark(120L, LocalDateTime.of(2024, 5, 1, 10, 15, 30), null)).thenReturn(watermark);
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(3);
+            out.write("id,name\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(userExporter).export(any(), any(), any(), any());
+
+        MvcResult result = mockMvc.perform(get("/api/users/export")
+                        .param("format", "NDJSON")
+                        .param("compression", "ZSTD")
+                        .param("afterId", "120")
+                        .param("createdAfter", "2024-05-01T10:15:30"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/zstd"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.ndjson.zst\""))
+                .andExpect(header().string("X-Export-Next-Created-After", "2024-05-02T00:00"));
+
+        verify(userExporter).export(eq(ExportFormat.NDJSON), eq(ExportCompression.ZSTD), eq(watermark), any());
+    }
+
+    @Test
+    @DisplayName("POST /api/users/import — файл принят, 202 со ссылкой на состояние загрузки")
+    void importUsers() throws Exception {
+        ImportJob job = new ImportJob("job-1", ExportFormat.CSV, ExportCompression.GZIP, 100);
+        when(userImportJobs.submit(eq(ExportFormat.CSV), eq(ExportCompression.GZIP), any())).thenReturn(job);
+
+        mockMvc.perform(post("/api/users/import")
+                        .param("compression", "GZIP")
+                        .contentType("application/gzip")
+                        .content(new byte[]{1, 2, 3}))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, endsWith("/api/users/import/job-1")))
+                .andExpect(jsonPath("$.id").value("job-1"))
+                .andExpect(jsonPath("$.state").value("QUEUED"));
+    }
+
+    @Test
+    @DisplayName("POST /api/users/import — файл больше user.import.max-size, 413")
+    void importUsersTooLarge() throws Exception {
+        when(userImportJobs.submit(eq(ExportFormat.CSV), eq(ExportCompression.NONE), any()))
+                .thenThrow(new ImportTooLargeException(1024));
+
+        mockMvc.perform(post("/api/users/import")
+                        .contentType("text/csv")
+                        .content(new byte[]{1, 2, 3}))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(jsonPath("$.detail").value("Файл импорта больше допустимых 1024 МБ"));
+    }
+
+    @Test
+    @DisplayName("GET /api/users/import/{id} — состояние загрузки, в том числе принятой другой репликой")
+    void importStatus() throws Exception {
+        ImportJobStatus status = new ImportJobStatus("job-1", "LOADING", "CSV", "NONE",
+                LocalDateTime.of(2024, 5, 1, 10, 0), LocalDateTime.of(2024, 5, 1, 10, 1), null,
+                1500, 2, 0, 0, List.of(), null);
+        when(userImportJobs.find("job-1")).thenReturn(Optional.of(status));
+
+        mockMvc.perform(get("/api/users/import/job-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("job-1"))
+                .andExpect(jsonPath("$.state").value("LOADING"))
+                .andExpect(jsonPath("$.rowsRead").value(1500));
+    }
+
+    @Test
+    @DisplayName("GET /api/users/import/{id} — неизвестная загрузка, 404")
+    void importStatusNotFound() throws Exception {
+        when(userImportJobs.find("missing")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/users/import/missing"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.detail").value("Загрузка с ID missing не найдена"));
+    }
+
+    @Test
+    @DisplayName("POST /api/users/emails/exists — занятость каждого email из запроса")
+    void emailsExist() throws Exception {
+        Map<String, Boolean> answer = new LinkedHashMap<>();
+        answer.put("alice@rambler.com", true);
+        answer.put("new@rambler.com", false);
+        when(userService.emailsExist(List.of("alice@rambler.com", "new@rambler.com"))).thenReturn(answer);
+
+        mockMvc.perform(post("/api/users/emails/exists")
+                        .contentType(APPLICATION_JSON)
+                        .content("[\"alice@rambler.com\",\"new@rambler.com\"]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['alice@rambler.com']").value(true))
+                .andExpect(jsonPath("$['new@rambler.com']").value(false));
+    }
+
+    @Test
+    @DisplayName("POST /api/users/batch — возвращает результат по каждому элементу")
+    void createUsersBatch() throws Exception {
+        UserModel alice = new UserModel(null, "Alice", "alice@rambler.com", 36, null);
+        UserModel bob = new UserModel(null, "Bob", "bob@ya.com", 25, null);
+        when(userService.createUsers(any())).thenReturn(List.of(
+                BatchItemResult.success(0, 1L, BatchItemResult.Status.CREATED),
+                BatchItemResult.failure(1, null, BatchItemResult.Status.CONFLICT, "Пользователь с email 'bob@ya.com' уже существует")
+        ));
+
+        mockMvc.perform(post("/api/users/batch")
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(alice, bob))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("CREATED"))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].status").value("CONFLICT"));
+    }
+}
@@ -0,0 +1,75 @@
+package ru.lisa.event;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserEventSerializerTest {
+
+    private final BinaryUserEventSerializer binary = new BinaryUserEventSerializer();
+    private final JsonUserEventSerializer json = new JsonUserEventSerializer();
+
+    @Test
+    @DisplayName("Бинарный формат восстанавливает событие без потерь, включая не-ASCII email")
+    void testBinaryRoundTrip() {
+        UserEvent event = new UserEvent(EventType.UPDATED, 1_234_567_890_123L, "леонид@пример.рф");
+
+        UserEvent restored = binary.deserialize(binary.serialize(event));
+
+        assertEquals(EventType.UPDATED, restored.getEventType());
+        assertEquals(1_234_567_890_123L, restored.getUserId());
+        assertEquals("леонид@пример.рф", restored.getEmail());
+    }
+
+    @Test
+    @DisplayName("Бинарный формат сохраняет отсутствующие поля")
+    void testBinaryRoundTripWithNulls() {
+        UserEvent restored = binary.deserialize(binary.serialize(new UserEvent(EventType.DELETED, null, null)));
+
+        assertEquals(EventType.DELETED, restored.getEventType());
+        assertNull(restored.getUserId());
+        assertNull(restored.getEmail());
+    }
+
+    @Test
+    @DisplayName("Бинарное событие в несколько раз компактнее JSON")
+    void testBinaryIsSmallerThanJson() {
+        UserEvent event = new UserEvent(EventType.CREATED, 42L, "leon@rambler.com");
+
+        int binarySize = binary.serialize(event).length;
+        int jsonSize = json.serialize(event).length;
+
+        assertEquals(3 + 1 + 1 + 16, binarySize);
+        assertTrue(jsonSize > 2 * binarySize);
+    }
+
+    @Test
+    @DisplayName("Неизвестная версия бинарного формата отклоняется")
+    void testUnknownVersion() {
+        byte[] data = binary.serialize(new UserEvent(EventType.CREATED, 1L, "a@b.c"));
+        data[0] = 99;
+
+        assertThrows(IllegalArgumentException.class, () -> binary.deserialize(data));
+    }
+
+    @Test
+    @DisplayName("Сообщение без заголовка формата читается как старый JSON")
+    void testMissingHeaderFallsBackToJson() {
+        UserEventSerializers serializers = new UserEventSerializers(List.of(binary, json), BinaryUserEventSerializer.FORMAT);
+        byte[] legacy = "{\"eventType\":\"DELETED\",\"email\":\"a@b.c\"}".getBytes(StandardCharsets.UTF_8);
+
+        UserEvent event = serializers.forHeader(null).deserialize(legacy);
+
+        assertSame(binary, serializers.defaultSerializer());
+        assertEquals(EventType.DELETED, event.getEventType());
+        assertEquals("a@b.c", event.getEmail());
+    }
+}
@@ -0,0 +1,27 @@
+package ru.lisa.handling;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StackTraceSamplerTest {
+
+    @Test
+    @DisplayName("Стек одного класса исключения пишется не чаще раза за интервал")
+    void testStackTraceRateLimitedPerExceptionClass() {
+        AtomicLong clock = new AtomicLong(1_000_000_000L);
+        StackTraceSampler sampler = new StackTraceSampler(Duration.ofSeconds(60), clock::get);
+
+        assertTrue(sampler.shouldLogStackTrace(new IllegalStateException("первая")));
+        assertFalse(sampler.shouldLogStackTrace(new IllegalStateException("вторая")));
+        assertTrue(sampler.shouldLogStackTrace(new IllegalArgumentException("другой класс")));
+
+        clock.addAndGet(Duration.ofSeconds(61).toNanos());
+        assertTrue(sampler.shouldLogStackTrace(new IllegalStateException("после интервала")));
+    }
+}
@@ -0,0 +1,127 @@
+package ru.lisa.kafka;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.mockito.ArgumentMatcher;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.lisa.entity.OutboxEvent;
+import ru.lisa.event.BinaryUserEventSerializer;
+import ru.lisa.event.EventType;
+import ru.lisa.event.JsonUserEventSerializer;
+import ru.lisa.event.UserEventSerializers;
+import ru.lisa.repository.OutboxRepository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxRepository outboxRepository;
+
+    @Mock
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OutboxRelay relay;
+
+    private static final BinaryUserEventSerializer BINARY = new BinaryUserEventSerializer();
+
+    private static ArgumentMatcher<ProducerRecord<String, byte[]>> event(String key, EventType type) {
+        return record -> key.equals(record.key()) && BINARY.deserialize(record.value()).getEventType() == type;
+    }
+
+    @BeforeEach
+    void setUp() {
+        UserEventSerializers serializers = new UserEventSerializers(
+                List.of(BINARY, new JsonUserEventSerializer()), BinaryUserEventSerializer.FORMAT);
+        relay = new OutboxRelay(outboxRepository, kafkaTemplate, serializers, transactionManager,
+                "user-events", 2, 3, 2, Duration.ofSeconds(1));
+    }
+
+    @Test
+    @DisplayName("Пачка из outbox публикуется с ключом user id и удаляется после подтверждения")
+    void testRelayBatch() {
+        List<OutboxEvent> batch = List.of(
+                new OutboxEvent(EventType.CREATED, 1L, "a@example.com"),
+                new OutboxEvent(EventType.DELETED, 2L, "b@example.com"));
+        when(outboxRepository.tryLockPartition(OutboxRelay.PARTITION_LOCK_KEY, 0)).thenReturn(true);
+        when(outboxRepository.lockNextBatch(2, 0, 2)).thenReturn(batch);
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(new SendResult<>(null, null)));
+
+        int relayed = relay.relayBatch(0);
+
+        assertEquals(2, relayed);
+        verify(kafkaTemplate).send(argThat(event("1", EventType.CREATED)));
+        verify(kafkaTemplate).send(argThat(event("2", EventType.DELETED)));
+        verify(outboxRepository).deleteAllInBatch(batch);
+    }
+
+    @Test
+    @DisplayName("Полные пачки отправляются подряд, но не больше max-batches-per-tick за тик на все части")
+    void testRelayDrainIsBoundedPerTick() {
+        when(outboxRepository.tryLockPartition(eq(OutboxRelay.PARTITION_LOCK_KEY), anyInt())).thenReturn(true);
+        when(outboxRepository.lockNextBatch(eq(2), anyInt(), eq(2))).thenAnswer(invocation -> List.of(
+                new OutboxEvent(EventType.CREATED, 2L, "a@example.com"),
+                new OutboxEvent(EventType.CREATED, 4L, "b@example.com")));
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(new SendResult<>(null, null)));
+
+        relay.relay();
+
+        verify(outboxRepository, times(3)).lockNextBatch(eq(2), anyInt(), eq(2));
+    }
+
+    @Test
+    @DisplayName("Часть, которую разбирает другая реплика, пропускается, остальные разбираются")
+    void testRelaySkipsPartitionLockedByAnotherReplica() {
+        when(outboxRepository.tryLockPartition(OutboxRelay.PARTITION_LOCK_KEY, 0)).thenReturn(false);
+        when(outboxRepository.tryLockPartition(OutboxRelay.PARTITION_LOCK_KEY, 1)).thenReturn(true);
+        when(outboxRepository.lockNextBatch(2, 1, 2))
+                .thenReturn(List.of(new OutboxEvent(EventType.UPDATED, 1L, "a@example.com")));
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(new SendResult<>(null, null)));
+
+        relay.relay();
+
+        verify(outboxRepository, never()).lockNextBatch(2, 0, 2);
+        verify(kafkaTemplate).send(argThat(event("1", EventType.UPDATED)));
+    }
+
+    @Test
+    @DisplayName("Ошибка брокера оставляет события в outbox для повторной отправки")
+    void testRelayKeepsEventsOnFailure() {
+        List<OutboxEvent> batch = List.of(new OutboxEvent(EventType.CREATED, 1L, "a@example.com"));
+        when(outboxRepository.tryLockPartition(eq(OutboxRelay.PARTITION_LOCK_KEY), anyInt())).thenReturn(true);
+        when(outboxRepository.lockNextBatch(eq(2), anyInt(), eq(2))).thenReturn(List.of());
+        when(outboxRepository.lockNextBatch(2, 1, 2)).thenReturn(batch);
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        relay.relay();
+
+        verify(outboxRepository, never()).deleteAllInBatch(any());
+    }
+}
@@ -0,0 +1,78 @@
+package ru.lisa.kafka;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import ru.lisa.cache.UserCache;
+import ru.lisa.dto.UserView;
+import ru.lisa.event.BinaryUserEventSerializer;
+import ru.lisa.event.EventType;
+import ru.lisa.event.JsonUserEventSerializer;
+import ru.lisa.event.UserEvent;
+import ru.lisa.event.UserEventSerializers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserCacheInvalidationListenerTest {
+
+    private final BinaryUserEventSerializer binary = new BinaryUserEventSerializer();
+    private final UserEventSerializers serializers =
+            new UserEventSerializers(List.of(binary, new JsonUserEventSerializer()), BinaryUserEventSerializer.FORMAT);
+
+    @Test
+    @DisplayName("После смены email на другой реплике поиск по старому email идёт в БД, а не в кэш")
+    void testOldEmailEvictedOnRemoteReplica() {
+        UserCache remoteCache = new UserCache(true, 1000, Duration.ofMinutes(5));
+        UserCacheInvalidationListener listener = new UserCacheInvalidationListener(remoteCache, serializers);
+        UserView before = new UserView(1L, "Leon", "old@rambler.com", 24, LocalDateTime.now(), 0L);
+        AtomicInteger loads = new AtomicInteger();
+
+        remoteCache.getByEmail("old@rambler.com", email -> {
+            loads.incrementAndGet();
+            return Optional.of(before);
+        });
+        // UPDATED с новым email: старого адреса в событии нет
+        listener.onUserEvent(binary.serialize(new UserEvent(EventType.UPDATED, 1L, "new@rambler.com")),
+                binary.format().getBytes(StandardCharsets.UTF_8));
+
+        Optional<UserView> afterUpdate = remoteCache.getByEmail("old@rambler.com", email -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+        assertTrue(afterUpdate.isEmpty());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Слушатель инвалидации читает все партиции топика сам, без consumer group")
+    void testListenerUsesManualAssignmentWithoutGroup() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(KafkaAutoConfiguration.class))
+                .withBean(UserCache.class, () -> new UserCache(true, 10, Duration.ofMinutes(5)))
+                .withBean(UserEventSerializers.class, () -> serializers)
+                .withUserConfiguration(UserCacheInvalidationListener.class)
+                // без автостарта контейнер создаётся, но к брокеру не подключается
+                .withPropertyValues("user.cache.enabled=false", "topic.partitions=12")
+                .run(context -> {
+                    MessageListenerContainer container = context.getBean(KafkaListenerEndpointRegistry.class)
+                            .getListenerContainers().iterator().next();
+
+                    assertNull(container.getGroupId());
+                    assertEquals(12, container.getContainerProperties().getTopicPartitions().length);
+                    assertEquals(11, container.getContainerProperties().getTopicPartitions()[11].getPartition());
+                });
+    }
+}
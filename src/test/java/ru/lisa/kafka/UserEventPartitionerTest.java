@@ -0,0 +1,69 @@
+package ru.lisa.kafka;
+
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UserEventPartitionerTest {
+
+    private static final String TOPIC = "user-events";
+
+    private static Cluster cluster(int partitions) {
+        Node node = new Node(0, "localhost", 9092);
+        List<PartitionInfo> infos = new ArrayList<>();
+        for (int i = 0; i < partitions; i++) {
+            infos.add(new PartitionInfo(TOPIC, i, node, new Node[]{node}, new Node[]{node}));
+        }
+        return new Cluster("test", List.of(node), infos, Set.of(), Set.of());
+    }
+
+    private static int partition(UserEventPartitioner partitioner, String key, Cluster cluster) {
+        return partitioner.partition(TOPIC, key, key.getBytes(StandardCharsets.UTF_8), null, null, cluster);
+    }
+
+    @Test
+    @DisplayName("Один и тот же user id всегда попадает в одну партицию")
+    void testSameKeySamePartition() {
+        UserEventPartitioner partitioner = new UserEventPartitioner();
+        partitioner.configure(Map.of());
+        Cluster cluster = cluster(12);
+
+        assertEquals(partition(partitioner, "42", cluster), partition(partitioner, "42", cluster));
+    }
+
+    @Test
+    @DisplayName("Закреплённый ключ идёт в свою партицию, остальные её обходят")
+    void testPinnedKeyGetsDedicatedPartition() {
+        UserEventPartitioner partitioner = new UserEventPartitioner();
+        partitioner.configure(Map.of(UserEventPartitioner.PINNED_KEYS_CONFIG, "42:3"));
+        Cluster cluster = cluster(4);
+
+        assertEquals(3, partition(partitioner, "42", cluster));
+        for (int id = 0; id < 1000; id++) {
+            if (id != 42) {
+                assertNotEquals(3, partition(partitioner, String.valueOf(id), cluster));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Некорректная настройка закрепления отклоняется")
+    void testInvalidPinnedKeys() {
+        UserEventPartitioner partitioner = new UserEventPartitioner();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> partitioner.configure(Map.of(UserEventPartitioner.PINNED_KEYS_CONFIG, "42")));
+    }
+}
@@ -0,0 +1,134 @@
+package ru.lisa.kafka;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatcher;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import ru.lisa.event.BinaryUserEventSerializer;
+import ru.lisa.event.EventType;
+import ru.lisa.event.JsonUserEventSerializer;
+import ru.lisa.event.UserEvent;
+import ru.lisa.event.UserEventSerializers;
+import ru.lisa.kafka.UserEventProducerImpl.OverflowPolicy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserEventProducerImplTest {
+
+    private static final BinaryUserEventSerializer BINARY = new BinaryUserEventSerializer();
+
+    @Mock
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    private UserEventProducerImpl producer;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (producer != null) {
+            producer.stop();
+        }
+    }
+
+    private UserEventProducerImpl newProducer(int capacity, OverflowPolicy policy) {
+        UserEventSerializers serializers = new UserEventSerializers(
+                List.of(BINARY, new JsonUserEventSerializer()), BinaryUserEventSerializer.FORMAT);
+        return new UserEventProducerImpl(kafkaTemplate, serializers, CircuitBreakerRegistry.ofDefaults(), "user-events",
+                capacity, policy, Duration.ofMillis(10), 100);
+    }
+
+    private static ArgumentMatcher<ProducerRecord<String, byte[]>> event(String key, EventType type) {
+        return record -> {
+            UserEvent event = BINARY.deserialize(record.value());
+            return "user-events".equals(record.topic()) && key.equals(record.key()) && event.getEventType() == type;
+        };
+    }
+
+    @Test
+    @DisplayName("Событие отправляется асинхронно с ключом user id, правильным типом и заголовком формата")
+    void testSendKeyedByUserId() throws InterruptedException {
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(new SendResult<>(null, null)));
+        producer = newProducer(10, OverflowPolicy.DROP_NEWEST);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        producer.bindTo(registry);
+        producer.start();
+
+        producer.send(EventType.CREATED, 42L, "leon@rambler.com");
+
+        verify(kafkaTemplate, timeout(2000)).send(argThat(event("42", EventType.CREATED)));
+        verify(kafkaTemplate).send(argThat((ProducerRecord<String, byte[]> record) -> "binary".equals(
+                new String(record.headers().lastHeader(UserEventSerializers.FORMAT_HEADER).value()))));
+        producer.stop();
+        assertEquals(1L, registry.get("user.events.publish.latency").timer().count());
+    }
+
+    @Test
+    @DisplayName("При переполнении очереди с политикой DROP_NEWEST новое событие отбрасывается")
+    void testDropNewestWhenQueueIsFull() {
+        producer = newProducer(1, OverflowPolicy.DROP_NEWEST);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        producer.bindTo(registry);
+
+        producer.send(EventType.CREATED, 1L, "a@example.com");
+        producer.send(EventType.CREATED, 2L, "b@example.com");
+
+        assertEquals(1, producer.queueSize());
+        assertEquals(1.0, registry.get("user.events.dropped").functionCounter().count());
+        verify(kafkaTemplate, never()).send(any(ProducerRecord.class));
+    }
+
+    @Test
+    @DisplayName("При переполнении очереди с политикой DROP_OLDEST вытесняется старое событие")
+    void testDropOldestWhenQueueIsFull() {
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(new SendResult<>(null, null)));
+        producer = newProducer(1, OverflowPolicy.DROP_OLDEST);
+
+        producer.send(EventType.CREATED, 1L, "a@example.com");
+        producer.send(EventType.DELETED, 2L, "b@example.com");
+        producer.start();
+
+        verify(kafkaTemplate, timeout(2000)).send(argThat(event("2", EventType.DELETED)));
+        verify(kafkaTemplate, never()).send(argThat(event("1", EventType.CREATED)));
+    }
+
+    @Test
+    @DisplayName("При открытом circuit breaker событие уходит в fallback без вызова KafkaTemplate")
+    void testFallbackWhenCircuitOpen() throws InterruptedException {
+        UserEventSerializers serializers = new UserEventSerializers(
+                List.of(BINARY, new JsonUserEventSerializer()), BinaryUserEventSerializer.FORMAT);
+        CircuitBreakerRegistry circuitBreakers = CircuitBreakerRegistry.ofDefaults();
+        circuitBreakers.circuitBreaker("kafkaProducer").transitionToForcedOpenState();
+        producer = new UserEventProducerImpl(kafkaTemplate, serializers, circuitBreakers, "user-events",
+                10, OverflowPolicy.DROP_NEWEST, Duration.ofMillis(10), 100);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        producer.bindTo(registry);
+        producer.start();
+
+        producer.send(EventType.CREATED, 42L, "leon@rambler.com");
+        producer.stop();
+
+        assertEquals(1.0, registry.get("user.events.fallback").functionCounter().count());
+        assertEquals(0.0, registry.get("user.events.failed").functionCounter().count());
+        verify(kafkaTemplate, never()).send(any(ProducerRecord.class));
+    }
+}
@@ -0,0 +1,141 @@
+package ru.lisa.kafka.consumer;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import ru.lisa.config.KafkaConsumerConfig;
+import ru.lisa.config.KafkaProducerConfig;
+import ru.lisa.event.BinaryUserEventSerializer;
+import ru.lisa.event.EventType;
+import ru.lisa.event.JsonUserEventSerializer;
+import ru.lisa.event.UserEvent;
+import ru.lisa.event.UserEventSerializers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(
+        classes = {
+                KafkaProducerConfig.class,
+                KafkaConsumerConfig.class,
+                UserEventSerializers.class,
+                BinaryUserEventSerializer.class,
+                JsonUserEventSerializer.class,
+                UserEventBatchListener.class,
+                UserEventBatchListenerTest.RecordingHandler.class
+        },
+        properties = {
+                "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+                "spring.kafka.consumer.auto-offset-reset=earliest",
+                "topic.name=" + UserEventBatchListenerTest.TOPIC,
+                "topic.partitions=3",
+                "user.events.consumer.enabled=true",
+                "user.events.consumer.group-id=" + UserEventBatchListenerTest.GROUP,
+                "user.events.consumer.workers=4",
+                "user.events.consumer.retry-backoff=10ms"
+        })
+@ImportAutoConfiguration(KafkaAutoConfiguration.class)
+@EmbeddedKafka(partitions = 3, topics = {UserEventBatchListenerTest.TOPIC, UserEventBatchListenerTest.TOPIC + ".DLT"})
+class UserEventBatchListenerTest {
+
+    static final String TOPIC = "user-events-test";
+    static final String GROUP = "user-events-test-group";
+    private static final long POISON_USER_ID = 13L;
+    private static final int USERS = 5;
+    private static final int EVENTS_PER_USER = 50;
+
+    @Autowired
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Autowired
+    private RecordingHandler handler;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Test
+    @DisplayName("События одного пользователя обрабатываются по порядку, сбойное уходит в DLT, офсеты коммитятся")
+    void testBatchProcessingWithOrderingAndDeadLetter() throws Exception {
+        BinaryUserEventSerializer serializer = new BinaryUserEventSerializer();
+        byte[] format = serializer.format().getBytes(StandardCharsets.UTF_8);
+        for (int seq = 0; seq < EVENTS_PER_USER; seq++) {
+            for (long userId = 1; userId <= USERS; userId++) {
+                send(serializer, format, new UserEvent(EventType.UPDATED, userId, "u" + userId + "-" + seq + "@example.com"));
+            }
+        }
+        send(serializer, format, new UserEvent(EventType.UPDATED, POISON_USER_ID, "poison@example.com"));
+        kafkaTemplate.flush();
+
+        await().atMost(Duration.ofSeconds(30)).untilAsserted(() -> {
+            int total = handler.seen.values().stream().mapToInt(List::size).sum();
+            assertEquals(USERS * EVENTS_PER_USER, total);
+        });
+        for (long userId = 1; userId <= USERS; userId++) {
+            List<String> emails = handler.seen.get(userId);
+            for (int seq = 0; seq < EVENTS_PER_USER; seq++) {
+                assertEquals("u" + userId + "-" + seq + "@example.com", emails.get(seq));
+            }
+        }
+        assertEquals(3, handler.poisonAttempts);
+
+        try (Consumer<String, byte[]> dlt = new DefaultKafkaConsumerFactory<>(
+                KafkaTestUtils.consumerProps("dlt-reader", "false", broker),
+                new StringDeserializer(), new ByteArrayDeserializer()).createConsumer()) {
+            broker.consumeFromAnEmbeddedTopic(dlt, TOPIC + ".DLT");
+            ConsumerRecord<String, byte[]> deadLetter = KafkaTestUtils.getSingleRecord(dlt, TOPIC + ".DLT");
+            assertEquals(String.valueOf(POISON_USER_ID), deadLetter.key());
+        }
+
+        await().atMost(Duration.ofSeconds(30)).untilAsserted(() -> {
+            long committed = 0;
+            for (int partition = 0; partition < 3; partition++) {
+                committed += KafkaTestUtils.getCurrentOffset(broker.getBrokersAsString(), GROUP, TOPIC, partition)
+                        .offset();
+            }
+            assertEquals(USERS * EVENTS_PER_USER + 1, committed);
+        });
+    }
+
+    private void send(BinaryUserEventSerializer serializer, byte[] format, UserEvent event) {
+        ProducerRecord<String, byte[]> record =
+                new ProducerRecord<>(TOPIC, event.getUserId().toString(), serializer.serialize(event));
+        record.headers().add(UserEventSerializers.FORMAT_HEADER, format);
+        kafkaTemplate.send(record);
+    }
+
+    static class RecordingHandler implements UserEventHandler {
+
+        final Map<Long, List<String>> seen = new ConcurrentHashMap<>();
+        volatile int poisonAttempts;
+
+        @Override
+        public void handle(UserEvent event) {
+            if (event.getUserId() == POISON_USER_ID) {
+                poisonAttempts++;
+                throw new IllegalStateException("Событие не может быть обработано");
+            }
+            // поток для пользователя один, поэтому список одного ключа не изменяется конкурентно
+            seen.computeIfAbsent(event.getUserId(), id -> new CopyOnWriteArrayList<>()).add(event.getEmail());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ru.lisa.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserIdAllocatorTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Один nextval на 50 id: значение v отдаёт v-49..v, первое значение последовательности пропускается")
+    void testIdsComeFromBlocks() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(1L, 100L, 250L);
+        UserIdAllocator allocator = new UserIdAllocator(jdbcTemplate);
+
+        assertEquals(51L, allocator.nextId());
+        for (long id = 52; id <= 100; id++) {
+            assertEquals(id, allocator.nextId());
+        }
+        assertEquals(201L, allocator.nextId());
+
+        verify(jdbcTemplate, times(3)).queryForObject(anyString(), eq(Long.class));
+    }
+}
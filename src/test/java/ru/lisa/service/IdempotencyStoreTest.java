@@ -0,0 +1,77 @@
+package ru.lisa.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.lisa.dto.UserView;
+import ru.lisa.exception.IdempotencyKeyReusedException;
+import ru.lisa.repository.IdempotencyKeyRepository;
+import ru.lisa.repository.IdempotencyKeyRepository.StoredResponse;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyStoreTest {
+
+    @Mock
+    private IdempotencyKeyRepository repository;
+
+    @Test
+    @DisplayName("Ответ из БД кэшируется в памяти, повтор с другим телом отклоняется")
+    void testFindCachesStoredResponse() {
+        IdempotencyStore store = new IdempotencyStore(repository, Duration.ofHours(24), 100);
+        UserView user = new UserView(1L, "Leon", "leon@rambler.com", 24, LocalDateTime.now(), 0L);
+        String fingerprint = IdempotencyStore.fingerprint("Leon", "leon@rambler.com", 24);
+        when(repository.find(eq("key-1"), any()))
+                .thenReturn(Optional.of(new StoredResponse(fingerprint, user, LocalDateTime.now())));
+
+        assertEquals(Optional.of(user), store.find("key-1", fingerprint));
+        assertEquals(Optional.of(user), store.find("key-1", fingerprint));
+        assertThrows(IdempotencyKeyReusedException.class,
+                () -> store.find("key-1", IdempotencyStore.fingerprint("Leon", "other@rambler.com", 24)));
+
+        verify(repository, times(1)).find(eq("key-1"), any());
+    }
+
+    @Test
+    @DisplayName("Сохранённый ответ отдаётся из памяти, занятый чужим запросом ключ — ошибка")
+    void testSaveRemembersResponse() {
+        IdempotencyStore store = new IdempotencyStore(repository, Duration.ofHours(24), 100);
+        UserView user = new UserView(1L, "Leon", "leon@rambler.com", 24, LocalDateTime.now(), 0L);
+        when(repository.insertIfAbsent(eq("key-1"), any(), any())).thenReturn(true);
+        when(repository.insertIfAbsent(eq("key-2"), any(), any())).thenReturn(false);
+
+        store.save("key-1", "42", user);
+        assertTrue(store.find("key-1", "42").isPresent());
+        assertThrows(IdempotencyKeyReusedException.class, () -> store.save("key-2", "42", user));
+
+        verify(repository, never()).find(eq("key-1"), any());
+    }
+
+    @Test
+    @DisplayName("Отпечаток тела — SHA-256: границы полей и отсутствующий возраст различаются")
+    void testFingerprint() {
+        String fingerprint = IdempotencyStore.fingerprint("Leon", "leon@rambler.com", 24);
+
+        assertEquals(64, fingerprint.length());
+        assertEquals(fingerprint, IdempotencyStore.fingerprint("Leon", "leon@rambler.com", 24));
+        assertNotEquals(IdempotencyStore.fingerprint("ab", "c", 24), IdempotencyStore.fingerprint("a", "bc", 24));
+        assertNotEquals(IdempotencyStore.fingerprint("Leon", "leon@rambler.com", null),
+                IdempotencyStore.fingerprint("Leon", "leon@rambler.com", 0));
+    }
+}
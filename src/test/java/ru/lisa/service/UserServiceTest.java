@@ -5,12 +5,32 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.lisa.cache.UserCache;
+import ru.lisa.dto.BatchItemResult;
+import ru.lisa.dto.BatchItemResult.Status;
+import ru.lisa.dto.UserView;
 import ru.lisa.entity.User;
+import ru.lisa.event.EventType;
+import ru.lisa.exception.EmailAlreadyExistsException;
+import ru.lisa.exception.InvalidUserDataException;
+import ru.lisa.exception.UserNotFoundException;
 import ru.lisa.kafka.UserEventProducer;
 import ru.lisa.repository.UserRepository;
+import ru.lisa.repository.UserRepositoryCustom.UpdatedUser;
+import ru.lisa.repository.UserSearchCriteria;
+import ru.lisa.repository.UserSearchCriteria.SortField;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -21,6 +41,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -33,6 +54,15 @@ class UserServiceTest {
     @Mock
     private UserEventProducer producer;
 
+    @Spy
+    private UserCache userCache = new UserCache(true, 1000, Duration.ofMinutes(5));
+
+    @Mock
+    private IdempotencyStore idempotencyStore;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -44,34 +74,66 @@ class UserServiceTest {
         String email = "leon@rambler.com";
         Integer age = 24;
 
-        when(userRepository.findByEmail(email)).thenReturn(Optional.empty());
-
         User savedUser = new User(name, email, age);
         savedUser.setId(1L);
-        when(userRepository.save(any(User.class))).thenReturn(savedUser);
+        when(userRepository.insertIfEmailAbsent(name, email, age)).thenReturn(Optional.of(savedUser));
 
         // when
-        Long actualId = userService.createUser(name, email, age);
+        User actual = userService.createUser(name, email, age);
 
         // then
-        assertEquals(1L, actualId);
-        verify(userRepository).findByEmail(email);
-        verify(userRepository).save(any(User.class));
+        assertEquals(1L, actual.getId());
+        verify(producer).send(EventType.CREATED, 1L, email);
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Повтор с тем же Idempotency-Key возвращает сохранённый ответ без обращения к users и Kafka")
+    void testCreateUserIdempotentReplay() {
+        UserView stored = new UserView(1L, "Leon", "leon@rambler.com", 24, LocalDateTime.now(), 0L);
+        String fingerprint = IdempotencyStore.fingerprint("Leon", "leon@rambler.com", 24);
+        when(idempotencyStore.find("key-1", fingerprint)).thenReturn(Optional.of(stored));
+
+        UserView result = userService.createUser("key-1", "Leon", "leon@rambler.com", 24);
+
+        assertEquals(stored, result);
+        verify(transactionTemplate, never()).execute(any());
+        verify(userRepository, never()).insertIfEmailAbsent(any(), any(), any());
+        verify(producer, never()).send(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Первый запрос с Idempotency-Key создаёт пользователя и сохраняет ответ в той же транзакции")
+    void testCreateUserIdempotentFirstRequest() {
+        User saved = new User("Leon", "leon@rambler.com", 24);
+        saved.setId(1L);
+        saved.setVersion(0L);
+        String fingerprint = IdempotencyStore.fingerprint("Leon", "leon@rambler.com", 24);
+        when(idempotencyStore.find("key-1", fingerprint)).thenReturn(Optional.empty());
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(userRepository.insertIfEmailAbsent("Leon", "leon@rambler.com", 24)).thenReturn(Optional.of(saved));
+
+        UserView result = userService.createUser("key-1", "Leon", "leon@rambler.com", 24);
+
+        assertEquals(1L, result.id());
+        verify(idempotencyStore).save("key-1", fingerprint, result);
+        verify(producer).send(EventType.CREATED, 1L, "leon@rambler.com");
     }
 
     @Test
     @DisplayName("Создание пользователя с существующим email должно выбрасывать исключение и не отправлять в Kafka")
     void testCreateUserWithExistingEmail() {
         String email = "leon@rambler.com";
-        when(userRepository.findByEmail(email)).thenReturn(Optional.of(new User()));
+        when(userRepository.insertIfEmailAbsent("Leon", email, 24)).thenReturn(Optional.empty());
 
-        IllegalArgumentException exception = assertThrows(
-                IllegalArgumentException.class,
+        EmailAlreadyExistsException exception = assertThrows(
+                EmailAlreadyExistsException.class,
                 () -> userService.createUser("Leon", email, 24)
         );
 
         assertEquals("Пользователь с email 'leon@rambler.com' уже существует", exception.getMessage());
-        verify(userRepository, never()).save(any());
+        verify(producer, never()).send(any(), any(), any());
     }
 
 
@@ -107,39 +169,65 @@ class UserServiceTest {
 
 
     @Test
-    @DisplayName("Обновление пользователя без изменения email")
-    void testUpdateUserWithoutEmailChange() {
+    @DisplayName("Обновление выполняется одним запросом UPDATE ... RETURNING без предварительных чтений")
+    void testUpdateUserWithSingleStatement() {
         Long userId = 23L;
-        String email = "old@example.com";
-        User existingUser = new User("Old Name", email, 20);
-        existingUser.setId(userId);
-        when(userRepository.findById(userId)).thenReturn(Optional.of(existingUser));
+        User updatedUser = new User("New Name", "old@example.com", 30);
+        updatedUser.setId(userId);
+        when(userRepository.updateReturning(userId, null, "New Name", "old@example.com", 30))
+                .thenReturn(Optional.of(new UpdatedUser(updatedUser, "old@example.com")));
+
+        User actual = userService.updateUser(userId, null, "New Name", "old@example.com", 30);
+
+        assertEquals("New Name", actual.getName());
+        assertEquals(30, actual.getAge());
+        verify(userRepository, never()).findById(anyLong());
+        verify(userRepository, never()).save(any());
+    }
 
-        userService.updateUser(userId, "New Name", email, 30);
+    @Test
+    @DisplayName("Обновление несуществующего пользователя должно выбрасывать исключение")
+    void testUpdateUserNotFound() {
+        when(userRepository.updateReturning(42L, null, "New Name", "new@example.com", 30)).thenReturn(Optional.empty());
+
+        UserNotFoundException ex = assertThrows(
+                UserNotFoundException.class,
+                () -> userService.updateUser(42L, null, "New Name", "new@example.com", 30)
+        );
+
+        assertEquals("Пользователь с ID 42 не найден", ex.getMessage());
+        verify(producer, never()).send(any(), any(), any());
+    }
 
-        verify(userRepository).findById(userId);
-        verify(userRepository, never()).findByEmail(anyString());
-        verify(userRepository).save(existingUser);
-        assertEquals("New Name", existingUser.getName());
-        assertEquals(30, existingUser.getAge());
+    @Test
+    @DisplayName("Обновление с устаревшей версией (If-Match) должно выбрасывать OptimisticLockingFailureException")
+    void testUpdateUserWithStaleVersion() {
+        when(userRepository.updateReturning(7L, 3L, "New Name", "new@example.com", 30)).thenReturn(Optional.empty());
+        when(userRepository.existsById(7L)).thenReturn(true);
+
+        assertThrows(
+                OptimisticLockingFailureException.class,
+                () -> userService.updateUser(7L, 3L, "New Name", "new@example.com", 30)
+        );
+
+        verify(userCache, never()).evictAfterCommit(any(), any(String[].class));
+        verify(producer, never()).send(any(), any(), any());
     }
 
     @Test
     @DisplayName("Обновление с конфликтом email должно выбрасывать исключение")
     void testUpdateUserWithConflictingEmail() {
         Long userId = 1L;
-        User existingUser = new User("User1", "user1@example.com", 25);
-        existingUser.setId(userId);
-        when(userRepository.findById(userId)).thenReturn(Optional.of(existingUser));
-        when(userRepository.findByEmail("user2@example.com")).thenReturn(Optional.of(new User()));
-
-        IllegalArgumentException ex = assertThrows(
-                IllegalArgumentException.class,
-                () -> userService.updateUser(userId, "New Name", "user2@example.com", 30)
+        when(userRepository.updateReturning(userId, null, "New Name", "user2@example.com", 30))
+                .thenThrow(new DuplicateKeyException("duplicate key value violates unique constraint"));
+
+        EmailAlreadyExistsException ex = assertThrows(
+                EmailAlreadyExistsException.class,
+                () -> userService.updateUser(userId, null, "New Name", "user2@example.com", 30)
         );
 
         assertEquals("Пользователь с email 'user2@example.com' уже существует", ex.getMessage());
-        verify(userRepository, never()).save(any());
+        verify(producer, never()).send(any(), any(), any());
     }
 
 
@@ -147,48 +235,116 @@ class UserServiceTest {
     @DisplayName("Получение пользователя по валидному ID")
     void testGetUserByIdWithValidId() {
         Long userId = 1L;
-        User user = new User("Leon Fix", "leon@rambler.com", 24);
-        user.setId(userId);
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        UserView user = new UserView(userId, "Leon Fix", "leon@rambler.com", 24, null, 0L);
+        when(userRepository.findViewById(userId)).thenReturn(Optional.of(user));
 
-        Optional<User> actual = userService.getUserById(userId);
+        Optional<UserView> actual = userService.getUserById(userId);
 
         assertTrue(actual.isPresent());
-        assertEquals(userId, actual.get().getId());
-        verify(userRepository).findById(userId);
+        assertEquals(userId, actual.get().id());
+        verify(userRepository).findViewById(userId);
+        verify(userRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    @DisplayName("Повторное чтение по ID и по email обслуживается из кэша")
+    void testGetUserServedFromCache() {
+        UserView user = new UserView(1L, "Leon Fix", "leon@rambler.com", 24, null, 0L);
+        when(userRepository.findViewById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.findViewByEmail("leon@rambler.com")).thenReturn(Optional.of(user));
+
+        userService.getUserById(1L);
+        userService.getUserById(1L);
+        userService.getUserByEmail("leon@rambler.com");
+        Optional<UserView> cached = userService.getUserByEmail("leon@rambler.com");
+
+        assertEquals(1L, cached.orElseThrow().id());
+        verify(userRepository, times(1)).findViewById(1L);
+        verify(userRepository, times(1)).findViewByEmail("leon@rambler.com");
+    }
+
+    @Test
+    @DisplayName("Обновление инвалидирует кэш по ID и по старому и новому email")
+    void testUpdateUserEvictsCache() {
+        UserView user = new UserView(5L, "Old Name", "old@example.com", 20, null, 0L);
+        when(userRepository.findViewById(5L)).thenReturn(Optional.of(user));
+        userService.getUserById(5L);
+
+        User updated = new User("New Name", "new@example.com", 21);
+        updated.setId(5L);
+        when(userRepository.updateReturning(5L, null, "New Name", "new@example.com", 21))
+                .thenReturn(Optional.of(new UpdatedUser(updated, "old@example.com")));
+        userService.updateUser(5L, null, "New Name", "new@example.com", 21);
+        userService.getUserById(5L);
+
+        verify(userCache).evictAfterCommit(5L, "old@example.com", "new@example.com");
+        verify(producer).send(EventType.UPDATED, 5L, "new@example.com");
+        verify(userRepository, times(2)).findViewById(5L);
+    }
+
+    @Test
+    @DisplayName("Выключенный кэш всегда читает из репозитория")
+    void testDisabledCacheReadsThrough() {
+        UserCache disabled = new UserCache(false, 1000, Duration.ofMinutes(5));
+        UserView user = new UserView(1L, "Leon Fix", "leon@rambler.com", 24, null, 0L);
+        when(userRepository.findViewById(1L)).thenReturn(Optional.of(user));
+
+        disabled.getById(1L, userRepository::findViewById);
+        disabled.getById(1L, userRepository::findViewById);
+
+        verify(userRepository, times(2)).findViewById(1L);
     }
 
     @Test
     @DisplayName("Получение пользователя по отрицательному ID должно выбрасывать исключение")
     void testGetUserByIdWithNegativeId() {
-        IllegalArgumentException ex = assertThrows(
-                IllegalArgumentException.class,
+        InvalidUserDataException ex = assertThrows(
+                InvalidUserDataException.class,
                 () -> userService.getUserById(-1L)
         );
         assertEquals("ID должен быть положительным числом", ex.getMessage());
-        verify(userRepository, never()).findById(anyLong());
+        verify(userRepository, never()).findViewById(anyLong());
+    }
+
+    @Test
+    @DisplayName("Получение страницы пользователей по курсору")
+    void testGetUsersPage() {
+        UserView user1 = new UserView(11L, "Alice", "alice@example.com", 30, null, 0L);
+        UserView user2 = new UserView(12L, "Bob", "bob@example.com", 25, null, 0L);
+        when(userRepository.findViewsAfter(10L, 2)).thenReturn(List.of(user1, user2));
+
+        List<UserView> page = userService.getUsers(10L, 2);
+
+        assertEquals(2, page.size());
+        assertEquals("Alice", page.get(0).name());
+        assertEquals("Bob", page.get(1).name());
+        verify(userRepository, never()).findAll();
     }
 
     @Test
-    @DisplayName("Поиск всех пользователей")
-    void testFindAll() {
-        User user1 = new User("Alice", "alice@example.com", 30);
-        User user2 = new User("Bob", "bob@example.com", 25);
-        when(userRepository.findAll()).thenReturn(List.of(user1, user2));
+    @DisplayName("Первая страница запрашивается с курсором 0")
+    void testGetUsersFirstPage() {
+        userService.getUsers(null, 50);
 
-        List<User> allUsers = userService.getAllUsers();
+        verify(userRepository).findViewsAfter(0L, 50);
+    }
 
-        assertEquals(2, allUsers.size());
-        assertEquals("Alice", allUsers.get(0).getName());
-        assertEquals("Bob", allUsers.get(1).getName());
+    @Test
+    @DisplayName("Размер страницы больше максимального должен выбрасывать исключение")
+    void testGetUsersWithTooLargeLimit() {
+        InvalidUserDataException ex = assertThrows(
+                InvalidUserDataException.class,
+                () -> userService.getUsers(null, UserServiceImpl.MAX_PAGE_SIZE + 1)
+        );
+        assertEquals("Размер страницы должен быть в диапазоне от 1 до 1000", ex.getMessage());
     }
 
 
     @Test
     @DisplayName("Создание пользователя с пустым именем должно выбрасывать исключение")
     void testCreateUserWithEmptyName() {
-        IllegalArgumentException ex = assertThrows(
-                IllegalArgumentException.class,
+        InvalidUserDataException ex = assertThrows(
+                InvalidUserDataException.class,
                 () -> userService.createUser("", "test@example.com", 20)
         );
         assertEquals("Имя не может быть пустым", ex.getMessage());
@@ -198,8 +354,8 @@ class UserServiceTest {
     @Test
     @DisplayName("Создание пользователя с null email должно выбрасывать исключение")
     void testCreateUserWithNullEmail() {
-        IllegalArgumentException ex = assertThrows(
-                IllegalArgumentException.class,
+        InvalidUserDataException ex = assertThrows(
+                InvalidUserDataException.class,
                 () -> userService.createUser("Test", null, 20)
         );
         assertEquals("Email не может быть пустым", ex.getMessage());
@@ -208,10 +364,99 @@ class UserServiceTest {
     @Test
     @DisplayName("Создание пользователя с возрастом > 150 должно выбрасывать исключение")
     void testCreateUserWithInvalidAge() {
-        IllegalArgumentException ex = assertThrows(
-                IllegalArgumentException.class,
+        InvalidUserDataException ex = assertThrows(
+                InvalidUserDataException.class,
                 () -> userService.createUser("Test", "test@example.com", 200)
         );
         assertEquals("Возраст должен быть в диапазоне от 0 до 150 лет", ex.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Пакетное создание: одна проверка email на весь пакет и результат по каждому элементу")
+    void testCreateUsersBatch() {
+        List<User> batch = List.of(
+                new User("Alice", "alice@example.com", 30),
+                new User("", "empty@example.com", 30),
+                new User("Alice Copy", "alice@example.com", 31),
+                new User("Bob", "bob@example.com", 25)
+        );
+        when(userRepository.findExistingEmails(any())).thenReturn(List.of("bob@example.com"));
+        when(userRepository.saveAll(any())).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            users.get(0).setId(100L);
+            return users;
+        });
+
+        List<BatchItemResult> results = userService.createUsers(batch);
+
+        assertEquals(Status.CREATED, results.get(0).getStatus());
+        assertEquals(100L, results.get(0).getId());
+        assertEquals(Status.INVALID, results.get(1).getStatus());
+        assertEquals(Status.CONFLICT, results.get(2).getStatus());
+        assertEquals(Status.CONFLICT, results.get(3).getStatus());
+        verify(userRepository).findExistingEmails(any());
+        verify(producer).send(EventType.CREATED, 100L, "alice@example.com");
+    }
+
+    @Test
+    @DisplayName("Пакетное удаление: один DELETE для найденных и NOT_FOUND для остальных")
+    void testDeleteUsersBatch() {
+        User user = new User("Alice", "alice@example.com", 30);
+        user.setId(1L);
+        when(userRepository.findAllById(any())).thenReturn(List.of(user));
+
+        List<BatchItemResult> results = userService.deleteUsers(List.of(1L, 2L));
+
+        assertEquals(Status.DELETED, results.get(0).getStatus());
+        assertEquals(Status.NOT_FOUND, results.get(1).getStatus());
+        verify(userRepository).deleteAllInBatch(List.of(user));
+        verify(userRepository, never()).deleteById(anyLong());
+        verify(producer).send(EventType.DELETED, 1L, "alice@example.com");
+    }
+
+    @Test
+    @DisplayName("Пакет больше максимального размера должен выбрасывать исключение")
+    void testBatchTooLarge() {
+        List<Long> ids = Collections.nCopies(UserServiceImpl.MAX_BATCH_SIZE + 1, 1L);
+
+        InvalidUserDataException ex = assertThrows(
+                InvalidUserDataException.class,
+                () -> userService.deleteUsers(ids)
+        );
+        assertEquals("Размер пакета не может превышать 1000", ex.getMessage());
+    }
+
+    @Test
+    @DisplayName("Поиск передаёт критерии в репозиторий")
+    void testSearchUsers() {
+        UserSearchCriteria criteria = new UserSearchCriteria("le", 18, 30, null, null,
+                SortField.NAME, false, "leon", 5L, 20);
+        UserView user = new UserView(6L, "Leon", "leon@rambler.com", 24, null, 0L);
+        when(userRepository.search(criteria)).thenReturn(List.of(user));
+
+        assertEquals(List.of(user), userService.searchUsers(criteria));
+    }
+
+    @Test
+    @DisplayName("Поиск с перевёрнутым диапазоном возраста отклоняется без запроса к БД")
+    void testSearchUsersWithInvalidAgeRange() {
+        UserSearchCriteria criteria = new UserSearchCriteria(null, 40, 18, null, null,
+                SortField.ID, false, null, null, 20);
+
+        assertThrows(InvalidUserDataException.class, () -> userService.searchUsers(criteria));
+        verify(userRepository, never()).search(any());
+    }
+
+    @Test
+    @DisplayName("Проверка занятости email: один запрос, ответ в порядке запроса")
+    void testEmailsExist() {
+        when(userRepository.findExistingEmails(any())).thenReturn(List.of("bob@example.com"));
+
+        Map<String, Boolean> result = userService.emailsExist(List.of("alice@example.com", "bob@example.com"));
+
+        assertEquals(List.of("alice@example.com", "bob@example.com"), List.copyOf(result.keySet()));
+        assertFalse(result.get("alice@example.com"));
+        assertTrue(result.get("bob@example.com"));
+        verify(userRepository, times(1)).findExistingEmails(any());
+    }
+}